@@ -0,0 +1,49 @@
+package com.mask.mediaprojection.entity;
+
+import android.graphics.Bitmap;
+
+import com.mask.mediaprojection.utils.BitmapPool;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * 复用池中 Bitmap 的租约，使用完毕后需调用 {@link #release()} 归还
+ * Created by agent on 2026/10/18
+ */
+public class BitmapLease {
+
+    private final Bitmap bitmap;
+    private final BitmapPool pool;
+    private final AtomicBoolean released = new AtomicBoolean();
+
+    public BitmapLease(Bitmap bitmap, BitmapPool pool) {
+        this.bitmap = bitmap;
+        this.pool = pool;
+    }
+
+    /**
+     * 获取 Bitmap，归还后不可再使用
+     *
+     * @return Bitmap
+     */
+    public Bitmap getBitmap() {
+        if (released.get()) {
+            throw new IllegalStateException("BitmapLease already released");
+        }
+        return bitmap;
+    }
+
+    /**
+     * 归还到复用池(重复调用无效)
+     */
+    public void release() {
+        if (released.compareAndSet(false, true)) {
+            pool.release(bitmap);
+        }
+    }
+
+    public boolean isReleased() {
+        return released.get();
+    }
+
+}
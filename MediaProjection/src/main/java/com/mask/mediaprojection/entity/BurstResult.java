@@ -0,0 +1,158 @@
+package com.mask.mediaprojection.entity;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 连拍结果
+ * <p>
+ * 帧数据已复制到连拍开始时预先分配的Buffer中(紧凑排列)，回调之后仍然有效；
+ * 间隔超过预期帧间隔1.5倍的位置记为间隙(丢帧，或屏幕内容未变化时 VirtualDisplay 没有产生新帧)
+ * Created by agent on 2026/10/18
+ */
+public class BurstResult {
+
+    private static final float GAP_TOLERANCE = 1.5f;
+
+    private final int requestedCount;
+    private final List<ScreenFrame> frames;
+    private final long[] timestamps;
+    private final long expectedIntervalNanos;
+    private final List<Gap> gaps;
+
+    /**
+     * @param requestedCount        请求的帧数
+     * @param frames                帧(按时间顺序)
+     * @param expectedIntervalNanos 预期帧间隔(纳秒，如屏幕刷新间隔)
+     */
+    public BurstResult(int requestedCount, List<ScreenFrame> frames, long expectedIntervalNanos) {
+        this.requestedCount = requestedCount;
+        this.frames = Collections.unmodifiableList(new ArrayList<>(frames));
+        this.timestamps = new long[frames.size()];
+        for (int i = 0; i < timestamps.length; i++) {
+            timestamps[i] = frames.get(i).getTimestamp();
+        }
+        this.expectedIntervalNanos = expectedIntervalNanos;
+        this.gaps = Collections.unmodifiableList(findGaps(timestamps, expectedIntervalNanos));
+    }
+
+    /**
+     * 查找 间隙
+     *
+     * @param timestamps            时间戳
+     * @param expectedIntervalNanos 预期帧间隔
+     * @return List
+     */
+    private static List<Gap> findGaps(long[] timestamps, long expectedIntervalNanos) {
+        List<Gap> gaps = new ArrayList<>();
+        if (expectedIntervalNanos <= 0) {
+            return gaps;
+        }
+        for (int i = 1; i < timestamps.length; i++) {
+            long interval = timestamps[i] - timestamps[i - 1];
+            if (interval > expectedIntervalNanos * GAP_TOLERANCE) {
+                int missedFrames = (int) Math.max(1, Math.round((double) interval / expectedIntervalNanos) - 1);
+                gaps.add(new Gap(i, interval, missedFrames));
+            }
+        }
+        return gaps;
+    }
+
+    /**
+     * 是否完整(超时结束时帧数可能少于请求的帧数)
+     *
+     * @return boolean
+     */
+    public boolean isComplete() {
+        return frames.size() >= requestedCount;
+    }
+
+    public int getRequestedCount() {
+        return requestedCount;
+    }
+
+    public List<ScreenFrame> getFrames() {
+        return frames;
+    }
+
+    /**
+     * 获取 各帧时间戳(纳秒，Image.getTimestamp)
+     *
+     * @return long[]
+     */
+    public long[] getTimestamps() {
+        return timestamps.clone();
+    }
+
+    public long getExpectedIntervalNanos() {
+        return expectedIntervalNanos;
+    }
+
+    public List<Gap> getGaps() {
+        return gaps;
+    }
+
+    /**
+     * 获取 估计的丢帧总数
+     *
+     * @return int
+     */
+    public int getMissedFrameCount() {
+        int count = 0;
+        for (Gap gap : gaps) {
+            count += gap.missedFrames;
+        }
+        return count;
+    }
+
+    /**
+     * 间隙
+     */
+    public static class Gap {
+
+        private final int index;
+        private final long intervalNanos;
+        private final int missedFrames;
+
+        private Gap(int index, long intervalNanos, int missedFrames) {
+            this.index = index;
+            this.intervalNanos = intervalNanos;
+            this.missedFrames = missedFrames;
+        }
+
+        /**
+         * 获取 间隙之后的帧序号
+         *
+         * @return int
+         */
+        public int getIndex() {
+            return index;
+        }
+
+        /**
+         * 获取 与前一帧的间隔(纳秒)
+         *
+         * @return long
+         */
+        public long getIntervalNanos() {
+            return intervalNanos;
+        }
+
+        /**
+         * 获取 估计的丢帧数
+         *
+         * @return int
+         */
+        public int getMissedFrames() {
+            return missedFrames;
+        }
+
+        @Override
+        public String toString() {
+            return "Gap{index=" + index + ", interval=" + intervalNanos / 1000 + "us, missed=" + missedFrames + "}";
+        }
+
+    }
+
+}
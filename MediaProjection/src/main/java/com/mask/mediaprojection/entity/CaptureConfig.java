@@ -0,0 +1,159 @@
+package com.mask.mediaprojection.entity;
+
+import android.graphics.Bitmap;
+import android.graphics.PixelFormat;
+
+import com.mask.mediaprojection.utils.SizeUtils;
+
+/**
+ * 屏幕截图 配置
+ * Created by agent on 2026/10/18
+ */
+public class CaptureConfig {
+
+    private int maxImages = 2;// ImageReader 最大缓冲数
+    private int pixelFormat = PixelFormat.RGBA_8888;// ImageReader 像素格式
+    private Bitmap.Config bitmapConfig = Bitmap.Config.ARGB_8888;// 输出 Bitmap 格式
+    private float scale = 1f;// 缩放比例
+    private int targetWidth;// 目标最大宽度，优先于 scale
+    private int targetHeight;// 目标最大高度，优先于 scale
+    private boolean isSingleVirtualDisplay;// 截图和录制共用一个 VirtualDisplay
+
+    /**
+     * 设置 ImageReader 最大缓冲数，高帧率截图时可适当增大，避免生产端等待
+     *
+     * @param maxImages 最大缓冲数(不小于2)
+     * @return CaptureConfig
+     */
+    public CaptureConfig setMaxImages(int maxImages) {
+        if (maxImages < 2) {
+            throw new IllegalArgumentException("maxImages must be >= 2: " + maxImages);
+        }
+        this.maxImages = maxImages;
+        return this;
+    }
+
+    /**
+     * 设置 ImageReader 像素格式
+     * <p>
+     * 部分设备的 VirtualDisplay 不能输出 RGB_565，获取帧时失败原因为 {@link FailReason#UNSUPPORTED_FORMAT}
+     *
+     * @param pixelFormat {@link PixelFormat#RGBA_8888}、{@link PixelFormat#RGBX_8888}、{@link PixelFormat#RGB_565}
+     * @return CaptureConfig
+     */
+    public CaptureConfig setPixelFormat(int pixelFormat) {
+        if (pixelFormat != PixelFormat.RGBA_8888 && pixelFormat != PixelFormat.RGBX_8888 && pixelFormat != PixelFormat.RGB_565) {
+            throw new IllegalArgumentException("unsupported pixelFormat: " + pixelFormat);
+        }
+        this.pixelFormat = pixelFormat;
+        return this;
+    }
+
+    /**
+     * 设置 输出 Bitmap 格式
+     *
+     * @param bitmapConfig {@link Bitmap.Config#ARGB_8888}、{@link Bitmap.Config#RGB_565}
+     * @return CaptureConfig
+     */
+    public CaptureConfig setBitmapConfig(Bitmap.Config bitmapConfig) {
+        if (bitmapConfig != Bitmap.Config.ARGB_8888 && bitmapConfig != Bitmap.Config.RGB_565) {
+            throw new IllegalArgumentException("unsupported bitmapConfig: " + bitmapConfig);
+        }
+        this.bitmapConfig = bitmapConfig;
+        return this;
+    }
+
+    /**
+     * 设置 缩放比例，VirtualDisplay 与 ImageReader 直接按缩放后的尺寸创建，由系统合成时完成缩放
+     *
+     * @param scale 缩放比例 (0, 1]
+     * @return CaptureConfig
+     */
+    public CaptureConfig setScale(float scale) {
+        if (scale <= 0 || scale > 1) {
+            throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+        }
+        this.scale = scale;
+        this.targetWidth = 0;
+        this.targetHeight = 0;
+        return this;
+    }
+
+    /**
+     * 设置 目标最大尺寸(保持宽高比缩小到该尺寸以内，不放大)
+     *
+     * @param targetWidth  目标最大宽度
+     * @param targetHeight 目标最大高度
+     * @return CaptureConfig
+     */
+    public CaptureConfig setTargetSize(int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("target size must be > 0: " + targetWidth + "x" + targetHeight);
+        }
+        this.targetWidth = targetWidth;
+        this.targetHeight = targetHeight;
+        this.scale = 1f;
+        return this;
+    }
+
+    /**
+     * 设置 是否截图和录制共用一个 VirtualDisplay(同时开启截图和录制时生效)
+     * <p>
+     * 默认各自创建 VirtualDisplay，系统每帧合成两次；共用时系统按屏幕尺寸只合成一次，
+     * 再由GPU绘制到 ImageReader 和录制引擎的Surface(采集线程上执行，耗时见 MediaProjectionMetrics.Stage.FAN_OUT)；
+     * 只支持 RGBA_8888/RGBX_8888 像素格式，不支持或创建失败时仍使用两个 VirtualDisplay；
+     * 设置了遮挡区域(setRedactionRects)时录制总是经过共用 VirtualDisplay，不受此设置影响
+     *
+     * @param isSingleVirtualDisplay 是否共用
+     * @return CaptureConfig
+     */
+    public CaptureConfig setSingleVirtualDisplay(boolean isSingleVirtualDisplay) {
+        this.isSingleVirtualDisplay = isSingleVirtualDisplay;
+        return this;
+    }
+
+    /**
+     * 计算 截图尺寸
+     *
+     * @param width      屏幕宽度
+     * @param height     屏幕高度
+     * @param densityDpi 屏幕densityDpi
+     * @return FrameSize
+     */
+    public FrameSize getCaptureSize(int width, int height, int densityDpi) {
+        float captureScale = scale;
+        if (targetWidth > 0 && targetHeight > 0) {
+            captureScale = SizeUtils.getFitScale(width, height, targetWidth, targetHeight);
+        }
+        return SizeUtils.scale(width, height, densityDpi, captureScale, SizeUtils.DEFAULT_ALIGNMENT);
+    }
+
+    public int getMaxImages() {
+        return maxImages;
+    }
+
+    public int getPixelFormat() {
+        return pixelFormat;
+    }
+
+    public Bitmap.Config getBitmapConfig() {
+        return bitmapConfig;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public int getTargetWidth() {
+        return targetWidth;
+    }
+
+    public int getTargetHeight() {
+        return targetHeight;
+    }
+
+    public boolean isSingleVirtualDisplay() {
+        return isSingleVirtualDisplay;
+    }
+
+}
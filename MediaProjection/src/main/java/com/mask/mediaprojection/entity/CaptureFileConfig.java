@@ -0,0 +1,82 @@
+package com.mask.mediaprojection.entity;
+
+import android.graphics.Bitmap;
+
+/**
+ * 截图保存到文件 配置
+ * Created by agent on 2026/10/18
+ */
+public class CaptureFileConfig {
+
+    private Bitmap.CompressFormat format = Bitmap.CompressFormat.PNG;// 编码格式
+    private int quality = 100;// 编码质量(PNG忽略)
+    private String filePrefix = "ScreenCapture";// 文件名前缀
+
+    /**
+     * 设置 编码格式
+     *
+     * @param format PNG/JPEG/WEBP
+     * @return CaptureFileConfig
+     */
+    public CaptureFileConfig setFormat(Bitmap.CompressFormat format) {
+        if (format == null) {
+            throw new NullPointerException("format == null");
+        }
+        this.format = format;
+        return this;
+    }
+
+    /**
+     * 设置 编码质量
+     *
+     * @param quality 0-100，PNG忽略
+     * @return CaptureFileConfig
+     */
+    public CaptureFileConfig setQuality(int quality) {
+        if (quality < 0 || quality > 100) {
+            throw new IllegalArgumentException("quality must be in [0, 100]: " + quality);
+        }
+        this.quality = quality;
+        return this;
+    }
+
+    /**
+     * 设置 文件名前缀
+     *
+     * @param filePrefix 文件名前缀(会自动拼接 _ 和日期)
+     * @return CaptureFileConfig
+     */
+    public CaptureFileConfig setFilePrefix(String filePrefix) {
+        this.filePrefix = filePrefix;
+        return this;
+    }
+
+    public Bitmap.CompressFormat getFormat() {
+        return format;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public String getFilePrefix() {
+        return filePrefix;
+    }
+
+    /**
+     * 获取 文件扩展名
+     *
+     * @return String
+     */
+    public String getFileExtension() {
+        switch (format) {
+            case JPEG:
+                return ".jpg";
+            case PNG:
+                return ".png";
+            default:
+                return ".webp";
+        }
+    }
+
+}
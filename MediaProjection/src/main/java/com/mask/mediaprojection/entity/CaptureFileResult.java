@@ -0,0 +1,54 @@
+package com.mask.mediaprojection.entity;
+
+import java.io.File;
+
+/**
+ * 截图保存到文件 结果
+ * Created by agent on 2026/10/18
+ */
+public class CaptureFileResult {
+
+    private final File file;
+    private final long length;
+    private final long encodeMillis;
+    private final long writeMillis;
+
+    public CaptureFileResult(File file, long length, long encodeMillis, long writeMillis) {
+        this.file = file;
+        this.length = length;
+        this.encodeMillis = encodeMillis;
+        this.writeMillis = writeMillis;
+    }
+
+    public File getFile() {
+        return file;
+    }
+
+    /**
+     * 获取 文件字节数
+     *
+     * @return long
+     */
+    public long getLength() {
+        return length;
+    }
+
+    /**
+     * 获取 编码耗时(毫秒)
+     *
+     * @return long
+     */
+    public long getEncodeMillis() {
+        return encodeMillis;
+    }
+
+    /**
+     * 获取 写入耗时(毫秒)
+     *
+     * @return long
+     */
+    public long getWriteMillis() {
+        return writeMillis;
+    }
+
+}
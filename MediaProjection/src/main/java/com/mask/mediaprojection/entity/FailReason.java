@@ -0,0 +1,41 @@
+package com.mask.mediaprojection.entity;
+
+/**
+ * 失败原因
+ * Created by agent on 2026/10/18
+ */
+public enum FailReason {
+
+    NOT_ENABLED(false),// 创建 VirtualDisplay 时未开启该功能(截图/录制)
+    NOT_READY(false),// VirtualDisplay 未创建或已释放
+    PROJECTION_STOPPED(false),// MediaProjection 已停止(如用户在系统界面停止投屏)，需要重新申请权限
+    NO_NEW_FRAME(true),// 上次截图之后没有新的帧(屏幕内容未变化)，等待一帧(约16ms)后重试
+    BUSY(true),// 任务积压或正在录制，稍后重试
+    TIMEOUT(true),// 等待新的帧超时(屏幕内容长时间未变化)
+    INVALID_ARGUMENT(false),// 参数无效(如截图区域在屏幕之外)
+    IO_ERROR(false),// 文件创建/写入失败
+    ENCODER_ERROR(false),// 编码器/录制引擎出错
+    UNSUPPORTED_FORMAT(false),// 设备不支持配置的像素格式(如部分设备不支持 RGB_565)，改用 RGBA_8888 重新创建 VirtualDisplay
+    REDACTION_UNSUPPORTED(false),// 设置了遮挡区域，但录制不能经过共用 VirtualDisplay 遮挡(GPU不可用)，录制中时已停止
+    OUTPUT_ERROR(false),// 单 VirtualDisplay 模式下创建GPU到截图 ImageReader 的输出失败；重新添加截图输出也失败后需要重新创建 VirtualDisplay
+    UNKNOWN(false),// 其他原因
+    ;
+
+    private final boolean isTransient;
+
+    FailReason(boolean isTransient) {
+        this.isTransient = isTransient;
+    }
+
+    /**
+     * 是否暂时性失败(稍后重试可能成功)
+     * <p>
+     * 非暂时性失败重试没有意义，需要调整参数、重新创建 VirtualDisplay 或重新申请权限
+     *
+     * @return boolean
+     */
+    public boolean isTransient() {
+        return isTransient;
+    }
+
+}
@@ -0,0 +1,75 @@
+package com.mask.mediaprojection.entity;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 帧差异检测结果
+ * Created by agent on 2026/10/18
+ */
+public class FrameDiff {
+
+    private final int tileSize;
+    private final int tileCount;
+    private final int dirtyTileCount;
+    private final boolean isFullFrame;
+    private final List<TileRect> dirtyRects;
+
+    public FrameDiff(int tileSize, int tileCount, int dirtyTileCount, boolean isFullFrame, List<TileRect> dirtyRects) {
+        this.tileSize = tileSize;
+        this.tileCount = tileCount;
+        this.dirtyTileCount = dirtyTileCount;
+        this.isFullFrame = isFullFrame;
+        this.dirtyRects = Collections.unmodifiableList(dirtyRects);
+    }
+
+    /**
+     * 是否有变化
+     *
+     * @return boolean
+     */
+    public boolean isChanged() {
+        return dirtyTileCount > 0;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    /**
+     * 获取 分块总数
+     *
+     * @return int
+     */
+    public int getTileCount() {
+        return tileCount;
+    }
+
+    /**
+     * 获取 有变化的分块数
+     *
+     * @return int
+     */
+    public int getDirtyTileCount() {
+        return dirtyTileCount;
+    }
+
+    /**
+     * 是否整帧(第一帧或尺寸变化，没有可比较的前一帧)
+     *
+     * @return boolean
+     */
+    public boolean isFullFrame() {
+        return isFullFrame;
+    }
+
+    /**
+     * 获取 有变化的区域(同一行中相邻的分块已合并)
+     *
+     * @return List
+     */
+    public List<TileRect> getDirtyRects() {
+        return dirtyRects;
+    }
+
+}
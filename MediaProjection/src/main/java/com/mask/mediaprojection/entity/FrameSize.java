@@ -0,0 +1,56 @@
+package com.mask.mediaprojection.entity;
+
+/**
+ * 帧尺寸
+ * Created by agent on 2026/10/18
+ */
+public class FrameSize {
+
+    private final int width;
+    private final int height;
+    private final int densityDpi;
+
+    public FrameSize(int width, int height, int densityDpi) {
+        this.width = width;
+        this.height = height;
+        this.densityDpi = densityDpi;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    public int getDensityDpi() {
+        return densityDpi;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof FrameSize)) {
+            return false;
+        }
+        FrameSize size = (FrameSize) o;
+        return width == size.width && height == size.height && densityDpi == size.densityDpi;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = width;
+        result = 31 * result + height;
+        result = 31 * result + densityDpi;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return width + "x" + height + "@" + densityDpi + "dpi";
+    }
+
+}
@@ -0,0 +1,109 @@
+package com.mask.mediaprojection.entity;
+
+import com.mask.mediaprojection.utils.FrameDiffDetector;
+
+/**
+ * 帧流 配置
+ * Created by agent on 2026/10/18
+ */
+public class FrameStreamConfig {
+
+    private int maxFps;// 最大帧率，0表示不限制
+    private int frameInterval = 1;// 每N帧取1帧
+    private int queueCapacity = 2;// 待分发队列容量，消费过慢时丢弃最旧的帧
+    private int diffTileSize;// 差异检测分块边长，0表示不检测
+    private int diffSampleStride = FrameDiffDetector.DEFAULT_SAMPLE_STRIDE;// 差异检测采样间隔
+
+    /**
+     * 设置 最大帧率
+     *
+     * @param maxFps 最大帧率，0表示不限制
+     * @return FrameStreamConfig
+     */
+    public FrameStreamConfig setMaxFps(int maxFps) {
+        if (maxFps < 0) {
+            throw new IllegalArgumentException("maxFps must be >= 0: " + maxFps);
+        }
+        this.maxFps = maxFps;
+        return this;
+    }
+
+    /**
+     * 设置 帧间隔
+     *
+     * @param frameInterval 每N帧取1帧，1表示每帧都取
+     * @return FrameStreamConfig
+     */
+    public FrameStreamConfig setFrameInterval(int frameInterval) {
+        if (frameInterval <= 0) {
+            throw new IllegalArgumentException("frameInterval must be > 0: " + frameInterval);
+        }
+        this.frameInterval = frameInterval;
+        return this;
+    }
+
+    /**
+     * 设置 待分发队列容量
+     *
+     * @param queueCapacity 队列容量
+     * @return FrameStreamConfig
+     */
+    public FrameStreamConfig setQueueCapacity(int queueCapacity) {
+        if (queueCapacity <= 0) {
+            throw new IllegalArgumentException("queueCapacity must be > 0: " + queueCapacity);
+        }
+        this.queueCapacity = queueCapacity;
+        return this;
+    }
+
+    /**
+     * 设置 差异检测(只分发与前一帧有变化的帧，并通过 FrameListener 返回有变化的区域)
+     * <p>
+     * 在复制帧数据之前检测，未变化的帧不会复制和入队
+     *
+     * @param tileSize     分块边长(像素)，0表示不检测
+     * @param sampleStride 采样间隔(像素)，越大越快，但可能漏检细小的变化，不能大于 tileSize
+     * @return FrameStreamConfig
+     */
+    public FrameStreamConfig setChangeDetection(int tileSize, int sampleStride) {
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("tileSize must be >= 0: " + tileSize);
+        }
+        if (tileSize > 0 && (sampleStride <= 0 || sampleStride > tileSize)) {
+            throw new IllegalArgumentException("sampleStride must be in [1, " + tileSize + "]: " + sampleStride);
+        }
+        this.diffTileSize = tileSize;
+        this.diffSampleStride = sampleStride;
+        return this;
+    }
+
+    /**
+     * 是否开启差异检测
+     *
+     * @return boolean
+     */
+    public boolean isChangeDetectionEnabled() {
+        return diffTileSize > 0;
+    }
+
+    public int getMaxFps() {
+        return maxFps;
+    }
+
+    public int getFrameInterval() {
+        return frameInterval;
+    }
+
+    public int getQueueCapacity() {
+        return queueCapacity;
+    }
+
+    public int getDiffTileSize() {
+        return diffTileSize;
+    }
+
+    public int getDiffSampleStride() {
+        return diffSampleStride;
+    }
+
+}
@@ -0,0 +1,343 @@
+package com.mask.mediaprojection.entity;
+
+import android.media.MediaFormat;
+
+import com.mask.mediaprojection.utils.SizeUtils;
+
+/**
+ * 媒体录制 配置
+ * Created by agent on 2026/10/18
+ */
+public class RecorderConfig {
+
+    public static final int ENGINE_MEDIA_RECORDER = 0;// MediaRecorder 录制
+    public static final int ENGINE_MEDIA_CODEC = 1;// MediaCodec + MediaMuxer 录制，可调编码参数
+
+    public static final int BITRATE_MODE_DEFAULT = -1;// 编码器默认码率模式
+
+    private int engine = ENGINE_MEDIA_RECORDER;
+    private String videoMimeType = MediaFormat.MIMETYPE_VIDEO_AVC;// 视频编码类型，HEVC不支持时自动回退到AVC
+    private int frameRate = 30;// 帧率
+    private int bitRate;// 码率，0表示按 5 * width * height 计算
+    private int bitrateMode = BITRATE_MODE_DEFAULT;// 码率模式(MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_*)，仅 ENGINE_MEDIA_CODEC 有效
+    private int quality = -1;// CQ模式的质量，仅 ENGINE_MEDIA_CODEC 有效
+    private float iFrameInterval = 1;// 关键帧间隔(秒)，仅 ENGINE_MEDIA_CODEC 有效
+    private int profile;// 编码 profile(MediaCodecInfo.CodecProfileLevel)，0表示默认，仅 ENGINE_MEDIA_CODEC 有效
+    private int level;// 编码 level(MediaCodecInfo.CodecProfileLevel)，0表示默认，仅 ENGINE_MEDIA_CODEC 有效
+    private float scale = 1f;// 缩放比例
+    private boolean isWarmStandby;// 热备模式，录制时预先准备下一个录制引擎
+    private long maxSegmentDurationMs;// 分段最大时长(毫秒)，0表示不限制
+    private long maxSegmentBytes;// 分段最大字节数，0表示不限制
+    private long replayDurationMs;// 回放模式保留时长(毫秒)，0表示不使用回放模式
+    private long replayMaxBytes;// 回放模式内存上限，0表示按码率计算
+
+    /**
+     * 设置 录制引擎
+     *
+     * @param engine {@link #ENGINE_MEDIA_RECORDER}、{@link #ENGINE_MEDIA_CODEC}
+     * @return RecorderConfig
+     */
+    public RecorderConfig setEngine(int engine) {
+        if (engine != ENGINE_MEDIA_RECORDER && engine != ENGINE_MEDIA_CODEC) {
+            throw new IllegalArgumentException("unsupported engine: " + engine);
+        }
+        this.engine = engine;
+        return this;
+    }
+
+    /**
+     * 设置 视频编码类型
+     *
+     * @param videoMimeType {@link MediaFormat#MIMETYPE_VIDEO_AVC}、{@link MediaFormat#MIMETYPE_VIDEO_HEVC}
+     * @return RecorderConfig
+     */
+    public RecorderConfig setVideoMimeType(String videoMimeType) {
+        if (!MediaFormat.MIMETYPE_VIDEO_AVC.equals(videoMimeType) && !MediaFormat.MIMETYPE_VIDEO_HEVC.equals(videoMimeType)) {
+            throw new IllegalArgumentException("unsupported videoMimeType: " + videoMimeType);
+        }
+        this.videoMimeType = videoMimeType;
+        return this;
+    }
+
+    public RecorderConfig setFrameRate(int frameRate) {
+        if (frameRate <= 0) {
+            throw new IllegalArgumentException("frameRate must be > 0: " + frameRate);
+        }
+        this.frameRate = frameRate;
+        return this;
+    }
+
+    /**
+     * 设置 码率
+     *
+     * @param bitRate 码率(bps)，0表示按 5 * width * height 计算
+     * @return RecorderConfig
+     */
+    public RecorderConfig setBitRate(int bitRate) {
+        if (bitRate < 0) {
+            throw new IllegalArgumentException("bitRate must be >= 0: " + bitRate);
+        }
+        this.bitRate = bitRate;
+        return this;
+    }
+
+    /**
+     * 设置 码率模式
+     *
+     * @param bitrateMode MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CBR/VBR/CQ，编码器不支持时使用默认模式
+     * @return RecorderConfig
+     */
+    public RecorderConfig setBitrateMode(int bitrateMode) {
+        this.bitrateMode = bitrateMode;
+        return this;
+    }
+
+    /**
+     * 设置 CQ模式的质量
+     *
+     * @param quality 质量，编码器相关的取值范围
+     * @return RecorderConfig
+     */
+    public RecorderConfig setQuality(int quality) {
+        this.quality = quality;
+        return this;
+    }
+
+    /**
+     * 设置 关键帧间隔
+     *
+     * @param iFrameInterval 关键帧间隔(秒)
+     * @return RecorderConfig
+     */
+    public RecorderConfig setIFrameInterval(float iFrameInterval) {
+        if (iFrameInterval <= 0) {
+            throw new IllegalArgumentException("iFrameInterval must be > 0: " + iFrameInterval);
+        }
+        this.iFrameInterval = iFrameInterval;
+        return this;
+    }
+
+    /**
+     * 设置 编码 profile/level
+     *
+     * @param profile profile，0表示默认
+     * @param level   level，0表示默认
+     * @return RecorderConfig
+     */
+    public RecorderConfig setProfileLevel(int profile, int level) {
+        this.profile = profile;
+        this.level = level;
+        return this;
+    }
+
+    /**
+     * 设置 缩放比例，VirtualDisplay 直接按缩放后的尺寸创建
+     *
+     * @param scale 缩放比例 (0, 1]
+     * @return RecorderConfig
+     */
+    public RecorderConfig setScale(float scale) {
+        if (scale <= 0 || scale > 1) {
+            throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+        }
+        this.scale = scale;
+        return this;
+    }
+
+    /**
+     * 设置 热备模式
+     * <p>
+     * 录制时预先准备下一个录制引擎，切换文件时只需切换 VirtualDisplay 的 Surface，前后文件无缝衔接；
+     * 会同时占用两个编码器实例
+     *
+     * @param isWarmStandby 是否热备
+     * @return RecorderConfig
+     */
+    public RecorderConfig setWarmStandby(boolean isWarmStandby) {
+        this.isWarmStandby = isWarmStandby;
+        return this;
+    }
+
+    /**
+     * 设置 分段最大时长
+     * <p>
+     * ENGINE_MEDIA_CODEC：在关键帧处切换 MediaMuxer，编码器持续运行，不丢帧；
+     * ENGINE_MEDIA_RECORDER：按时长切换录制引擎(建议同时开启热备模式)
+     *
+     * @param maxSegmentDurationMs 分段最大时长(毫秒)，0表示不限制
+     * @return RecorderConfig
+     */
+    public RecorderConfig setMaxSegmentDurationMs(long maxSegmentDurationMs) {
+        if (maxSegmentDurationMs < 0) {
+            throw new IllegalArgumentException("maxSegmentDurationMs must be >= 0: " + maxSegmentDurationMs);
+        }
+        this.maxSegmentDurationMs = maxSegmentDurationMs;
+        return this;
+    }
+
+    /**
+     * 设置 分段最大字节数
+     * <p>
+     * ENGINE_MEDIA_CODEC：在关键帧处切换 MediaMuxer，分段可能略大于该值；
+     * ENGINE_MEDIA_RECORDER：使用 setMaxFileSize/setNextOutputFile，需要 Android 8.0
+     *
+     * @param maxSegmentBytes 分段最大字节数，0表示不限制
+     * @return RecorderConfig
+     */
+    public RecorderConfig setMaxSegmentBytes(long maxSegmentBytes) {
+        if (maxSegmentBytes < 0) {
+            throw new IllegalArgumentException("maxSegmentBytes must be >= 0: " + maxSegmentBytes);
+        }
+        this.maxSegmentBytes = maxSegmentBytes;
+        return this;
+    }
+
+    /**
+     * 设置 回放模式
+     * <p>
+     * 编码数据保存在内存环形缓冲区中，只保留最近一段时长，需要时通过 saveReplay 写入文件；
+     * 回放模式固定使用 MediaCodec 录制，不支持分段、切换及热备
+     *
+     * @param replayDurationMs 保留时长(毫秒)，0表示不使用回放模式
+     * @return RecorderConfig
+     */
+    public RecorderConfig setReplayDurationMs(long replayDurationMs) {
+        if (replayDurationMs < 0) {
+            throw new IllegalArgumentException("replayDurationMs must be >= 0: " + replayDurationMs);
+        }
+        this.replayDurationMs = replayDurationMs;
+        return this;
+    }
+
+    /**
+     * 设置 回放模式内存上限(堆外内存)，超出时按关键帧淘汰最旧的数据，保留时长可能小于设置值
+     *
+     * @param replayMaxBytes 内存上限(字节)，0表示按 码率 * 保留时长 * 1.5 计算
+     * @return RecorderConfig
+     */
+    public RecorderConfig setReplayMaxBytes(long replayMaxBytes) {
+        if (replayMaxBytes < 0 || replayMaxBytes > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("replayMaxBytes must be in [0, " + Integer.MAX_VALUE + "]: " + replayMaxBytes);
+        }
+        this.replayMaxBytes = replayMaxBytes;
+        return this;
+    }
+
+    /**
+     * 是否回放模式
+     *
+     * @return boolean
+     */
+    public boolean isReplay() {
+        return replayDurationMs > 0;
+    }
+
+    /**
+     * 计算 回放模式内存上限
+     *
+     * @param width  录制宽度
+     * @param height 录制高度
+     * @return long
+     */
+    public long getReplayMaxBytes(int width, int height) {
+        if (replayMaxBytes > 0) {
+            return replayMaxBytes;
+        }
+        // VBR/CQ 模式下实际码率会有波动，预留50%
+        long bytes = (long) getBitRate(width, height) / 8 * replayDurationMs / 1000 * 3 / 2;
+        return Math.min(Integer.MAX_VALUE, bytes);
+    }
+
+    /**
+     * 是否分段录制
+     *
+     * @return boolean
+     */
+    public boolean isSegmented() {
+        return !isReplay() && (maxSegmentDurationMs > 0 || maxSegmentBytes > 0);
+    }
+
+    /**
+     * 计算 录制尺寸
+     *
+     * @param width      屏幕宽度
+     * @param height     屏幕高度
+     * @param densityDpi 屏幕densityDpi
+     * @return FrameSize
+     */
+    public FrameSize getRecordSize(int width, int height, int densityDpi) {
+        return SizeUtils.scale(width, height, densityDpi, scale, SizeUtils.DEFAULT_ALIGNMENT);
+    }
+
+    /**
+     * 计算 码率
+     *
+     * @param width  录制宽度
+     * @param height 录制高度
+     * @return int
+     */
+    public int getBitRate(int width, int height) {
+        return bitRate > 0 ? bitRate : 5 * width * height;
+    }
+
+    public int getEngine() {
+        return engine;
+    }
+
+    public String getVideoMimeType() {
+        return videoMimeType;
+    }
+
+    public int getFrameRate() {
+        return frameRate;
+    }
+
+    public int getBitRate() {
+        return bitRate;
+    }
+
+    public int getBitrateMode() {
+        return bitrateMode;
+    }
+
+    public int getQuality() {
+        return quality;
+    }
+
+    public float getIFrameInterval() {
+        return iFrameInterval;
+    }
+
+    public int getProfile() {
+        return profile;
+    }
+
+    public int getLevel() {
+        return level;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+
+    public boolean isWarmStandby() {
+        return isWarmStandby;
+    }
+
+    public long getMaxSegmentDurationMs() {
+        return maxSegmentDurationMs;
+    }
+
+    public long getMaxSegmentBytes() {
+        return maxSegmentBytes;
+    }
+
+    public long getReplayDurationMs() {
+        return replayDurationMs;
+    }
+
+    public long getReplayMaxBytes() {
+        return replayMaxBytes;
+    }
+
+}
@@ -0,0 +1,188 @@
+package com.mask.mediaprojection.entity;
+
+import com.mask.mediaprojection.utils.PixelUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 屏幕帧(按行跨度访问的像素数据视图，不复制数据)
+ * <p>
+ * 数据直接引用 Image.Plane 的 Buffer，仅在回调期间有效，回调结束后 Image 会被关闭；
+ * 需要保留数据时请调用 {@link #copyTo(ByteBuffer)} 复制到自己的Buffer中；
+ * 带有遮挡区域时 {@link #getBuffer()} 仍为原始数据，复制时才会遮挡
+ * Created by agent on 2026/10/18
+ */
+public class ScreenFrame {
+
+    private final ByteBuffer buffer;
+    private final int pixelFormat;
+    private final int width;
+    private final int height;
+    private final int pixelStride;
+    private final int rowStride;
+    private final long timestamp;
+    private final TileRect[] masks;// 遮挡区域(帧内坐标，按 left 升序)
+
+    public ScreenFrame(ByteBuffer buffer, int pixelFormat, int width, int height, int pixelStride, int rowStride, long timestamp) {
+        this(buffer, pixelFormat, width, height, pixelStride, rowStride, timestamp, null);
+    }
+
+    /**
+     * @param masks 遮挡区域(帧内坐标，按 left 升序)，复制时写入不透明黑色，可为null
+     */
+    public ScreenFrame(ByteBuffer buffer, int pixelFormat, int width, int height, int pixelStride, int rowStride, long timestamp, TileRect[] masks) {
+        this.buffer = buffer;
+        this.pixelFormat = pixelFormat;
+        this.width = width;
+        this.height = height;
+        this.pixelStride = pixelStride;
+        this.rowStride = rowStride;
+        this.timestamp = timestamp;
+        this.masks = masks != null && masks.length > 0 ? masks : null;
+    }
+
+    /**
+     * 获取 只读数据(包含行填充)
+     *
+     * @return ByteBuffer
+     */
+    public ByteBuffer getBuffer() {
+        return buffer.asReadOnlyBuffer();
+    }
+
+    /**
+     * 获取 像素格式(PixelFormat)
+     *
+     * @return int
+     */
+    public int getPixelFormat() {
+        return pixelFormat;
+    }
+
+    public int getWidth() {
+        return width;
+    }
+
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * 获取 每个像素的字节数
+     *
+     * @return int
+     */
+    public int getPixelStride() {
+        return pixelStride;
+    }
+
+    /**
+     * 获取 每行的字节数(包含行填充)
+     *
+     * @return int
+     */
+    public int getRowStride() {
+        return rowStride;
+    }
+
+    /**
+     * 获取 时间戳(纳秒)
+     *
+     * @return long
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    /**
+     * 是否有遮挡区域(有遮挡时不能直接使用 {@link #getBuffer()} 的数据对外输出)
+     *
+     * @return boolean
+     */
+    public boolean hasMasks() {
+        return masks != null;
+    }
+
+    /**
+     * 获取 遮挡区域
+     *
+     * @return TileRect[]，没有时返回null
+     */
+    public TileRect[] getMasks() {
+        return masks;
+    }
+
+    /**
+     * 获取 紧凑排列时整帧的字节数
+     *
+     * @return int
+     */
+    public int getFrameBytes() {
+        return PixelUtils.getFrameBytes(width, height, pixelStride);
+    }
+
+    /**
+     * 获取 指定像素的偏移量
+     *
+     * @param x x
+     * @param y y
+     * @return int
+     */
+    public int getOffset(int x, int y) {
+        return buffer.position() + y * rowStride + x * pixelStride;
+    }
+
+    /**
+     * 裁剪(返回区域视图，不复制数据)
+     *
+     * @param left   区域左边
+     * @param top    区域上边
+     * @param width  区域宽度
+     * @param height 区域高度
+     * @return ScreenFrame
+     */
+    public ScreenFrame crop(int left, int top, int width, int height) {
+        if (left < 0 || top < 0 || width <= 0 || height <= 0
+                || left + width > this.width || top + height > this.height) {
+            throw new IllegalArgumentException("region [" + left + "," + top + " " + width + "x" + height
+                    + "] out of frame " + this.width + "x" + this.height);
+        }
+        ByteBuffer region = buffer.duplicate();
+        region.position(buffer.position() + PixelUtils.getRegionOffset(left, top, pixelStride, rowStride));
+        return new ScreenFrame(region, pixelFormat, width, height, pixelStride, rowStride, timestamp,
+                cropMasks(left, top, width, height));
+    }
+
+    /**
+     * 将遮挡区域转换到裁剪区域的坐标(与裁剪区域相交的部分)
+     */
+    private TileRect[] cropMasks(int left, int top, int width, int height) {
+        if (masks == null) {
+            return null;
+        }
+        List<TileRect> cropped = new ArrayList<>(masks.length);
+        for (TileRect mask : masks) {
+            int maskLeft = Math.max(mask.getLeft() - left, 0);
+            int maskTop = Math.max(mask.getTop() - top, 0);
+            int maskRight = Math.min(mask.getRight() - left, width);
+            int maskBottom = Math.min(mask.getBottom() - top, height);
+            if (maskLeft < maskRight && maskTop < maskBottom) {
+                // 平移不改变 left 的顺序
+                cropped.add(new TileRect(maskLeft, maskTop, maskRight, maskBottom));
+            }
+        }
+        return cropped.toArray(new TileRect[0]);
+    }
+
+    /**
+     * 去除行填充，复制到目标Buffer(遮挡区域写入不透明黑色)
+     *
+     * @param dst 目标Buffer，剩余空间不小于 {@link #getFrameBytes()}
+     */
+    public void copyTo(ByteBuffer dst) {
+        PixelUtils.compact(buffer, width, height, pixelStride, rowStride, masks, dst);
+    }
+
+}
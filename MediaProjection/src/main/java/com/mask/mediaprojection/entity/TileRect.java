@@ -0,0 +1,71 @@
+package com.mask.mediaprojection.entity;
+
+/**
+ * 矩形区域(像素坐标，不依赖Android)
+ * Created by agent on 2026/10/18
+ */
+public class TileRect {
+
+    private final int left;
+    private final int top;
+    private final int right;
+    private final int bottom;
+
+    public TileRect(int left, int top, int right, int bottom) {
+        this.left = left;
+        this.top = top;
+        this.right = right;
+        this.bottom = bottom;
+    }
+
+    public int getLeft() {
+        return left;
+    }
+
+    public int getTop() {
+        return top;
+    }
+
+    public int getRight() {
+        return right;
+    }
+
+    public int getBottom() {
+        return bottom;
+    }
+
+    public int getWidth() {
+        return right - left;
+    }
+
+    public int getHeight() {
+        return bottom - top;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (o == null || getClass() != o.getClass()) {
+            return false;
+        }
+        TileRect tileRect = (TileRect) o;
+        return left == tileRect.left && top == tileRect.top && right == tileRect.right && bottom == tileRect.bottom;
+    }
+
+    @Override
+    public int hashCode() {
+        int result = left;
+        result = 31 * result + top;
+        result = 31 * result + right;
+        result = 31 * result + bottom;
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        return "TileRect[" + left + "," + top + "][" + right + "," + bottom + "]";
+    }
+
+}
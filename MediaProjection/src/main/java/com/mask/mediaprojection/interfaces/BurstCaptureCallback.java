@@ -0,0 +1,38 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.BurstResult;
+import com.mask.mediaprojection.entity.FailReason;
+
+/**
+ * 连拍回调
+ * Created by agent on 2026/10/18
+ */
+public abstract class BurstCaptureCallback {
+
+    /**
+     * 成功
+     *
+     * @param result 连拍结果(帧、时间戳、间隙)，超时结束时帧数可能少于请求的帧数
+     */
+    public void onSuccess(BurstResult result) {
+
+    }
+
+    /**
+     * 失败
+     */
+    public void onFail() {
+
+    }
+
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
+}
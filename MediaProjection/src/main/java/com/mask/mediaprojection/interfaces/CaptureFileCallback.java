@@ -0,0 +1,38 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.CaptureFileResult;
+import com.mask.mediaprojection.entity.FailReason;
+
+/**
+ * 截图保存到文件回调
+ * Created by agent on 2026/10/18
+ */
+public abstract class CaptureFileCallback {
+
+    /**
+     * 成功
+     *
+     * @param result 保存结果(文件及编码/写入耗时)
+     */
+    public void onSuccess(CaptureFileResult result) {
+
+    }
+
+    /**
+     * 失败
+     */
+    public void onFail() {
+
+    }
+
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
+}
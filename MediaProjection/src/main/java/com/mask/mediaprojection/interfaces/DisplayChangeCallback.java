@@ -0,0 +1,23 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.FrameSize;
+
+/**
+ * 屏幕尺寸变化回调(旋转、折叠屏展开/折叠等)
+ * Created by agent on 2026/10/18
+ */
+public abstract class DisplayChangeCallback {
+
+    /**
+     * 屏幕尺寸变化，截图/录制已按新尺寸调整
+     *
+     * @param displaySize 屏幕尺寸
+     * @param captureSize 截图尺寸，不可以屏幕截图时为null
+     * @param recordSize  录制尺寸，未在录制时为null
+     * @param rotation    屏幕方向，如 Surface.ROTATION_0
+     */
+    public void onDisplayChanged(FrameSize displaySize, FrameSize captureSize, FrameSize recordSize, int rotation) {
+
+    }
+
+}
@@ -0,0 +1,40 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+
+/**
+ * 帧流 监听
+ * Created by agent on 2026/10/18
+ */
+public abstract class FrameListener {
+
+    /**
+     * 新的一帧(在帧流的后台线程回调)
+     *
+     * @param frame 屏幕帧(已去除行填充)，仅在回调期间有效，回调结束后Buffer会被复用
+     */
+    public void onFrame(ScreenFrame frame) {
+
+    }
+
+    /**
+     * 新的一帧(在帧流的后台线程回调，默认调用 {@link #onFrame(ScreenFrame)})
+     *
+     * @param frame 屏幕帧(已去除行填充)，仅在回调期间有效，回调结束后Buffer会被复用
+     * @param diff  与前一个分发的帧的差异(包含被丢弃的帧的变化)，未开启差异检测时为null
+     */
+    public void onFrame(ScreenFrame frame, FrameDiff diff) {
+        onFrame(frame);
+    }
+
+    /**
+     * 回调抛出异常，帧流已停止/处理链已移除(帧流在帧流的后台线程回调，处理链在回调线程回调)
+     *
+     * @param throwable onFrame 抛出的异常
+     */
+    public void onError(Throwable throwable) {
+
+    }
+
+}
@@ -0,0 +1,21 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+
+/**
+ * 帧处理阶段(由 {@link com.mask.mediaprojection.utils.FrameProcessorChain} 按顺序执行)
+ * Created by agent on 2026/10/18
+ */
+public interface FrameProcessor {
+
+    /**
+     * 处理一帧
+     *
+     * @param frame 屏幕帧(已去除行填充)，所有阶段和输出共享同一份数据，仅在调用期间有效
+     * @param diff  与前一帧的差异，未开启差异检测时为null
+     * @return 是否继续执行后续阶段，返回false时跳过后续阶段和输出(如帧未变化)
+     */
+    boolean process(ScreenFrame frame, FrameDiff diff);
+
+}
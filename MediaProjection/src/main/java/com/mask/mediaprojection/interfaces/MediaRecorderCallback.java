@@ -1,5 +1,7 @@
 package com.mask.mediaprojection.interfaces;
 
+import com.mask.mediaprojection.entity.FailReason;
+
 import java.io.File;
 
 /**
@@ -17,6 +19,29 @@ public abstract class MediaRecorderCallback {
 
     }
 
+    /**
+     * 切换文件(前一个文件已完成，录制继续写入新文件)
+     * <p>
+     * 在新文件写入第一帧后回调(画面不变化时可能延后)；在此之前停止或再次切换录制时立即回调
+     *
+     * @param file      已完成的File
+     * @param gapMicros 前一个文件最后一帧到新文件第一帧的时间间隔(微秒，按编码时间戳计算)；
+     *                  使用 MediaRecorder 引擎(不提供时间戳)或新文件还没有帧时为-1
+     */
+    public void onSwitch(File file, long gapMicros) {
+
+    }
+
+    /**
+     * 分段完成(分段录制时，每个分段完成后回调，最后一个分段通过 onSuccess 返回)
+     *
+     * @param file  已完成的分段File
+     * @param index 分段序号，从0开始
+     */
+    public void onSegment(File file, int index) {
+
+    }
+
     /**
      * 失败
      */
@@ -24,4 +49,14 @@ public abstract class MediaRecorderCallback {
 
     }
 
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
 }
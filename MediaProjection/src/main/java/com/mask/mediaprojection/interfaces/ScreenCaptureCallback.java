@@ -2,6 +2,8 @@ package com.mask.mediaprojection.interfaces;
 
 import android.graphics.Bitmap;
 
+import com.mask.mediaprojection.entity.FailReason;
+
 /**
  * 屏幕截图回调
  * Created by lishilin on 2020/03/18
@@ -24,4 +26,14 @@ public abstract class ScreenCaptureCallback {
 
     }
 
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
 }
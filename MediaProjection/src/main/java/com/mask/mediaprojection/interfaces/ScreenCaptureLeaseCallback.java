@@ -0,0 +1,38 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.BitmapLease;
+import com.mask.mediaprojection.entity.FailReason;
+
+/**
+ * 屏幕截图回调(Bitmap来自复用池)
+ * Created by agent on 2026/10/18
+ */
+public abstract class ScreenCaptureLeaseCallback {
+
+    /**
+     * 成功
+     *
+     * @param lease 截图后的Bitmap租约，使用完毕后需调用 {@link BitmapLease#release()}
+     */
+    public void onSuccess(BitmapLease lease) {
+
+    }
+
+    /**
+     * 失败
+     */
+    public void onFail() {
+
+    }
+
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
+}
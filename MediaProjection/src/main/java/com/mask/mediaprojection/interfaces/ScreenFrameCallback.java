@@ -0,0 +1,38 @@
+package com.mask.mediaprojection.interfaces;
+
+import com.mask.mediaprojection.entity.FailReason;
+import com.mask.mediaprojection.entity.ScreenFrame;
+
+/**
+ * 屏幕帧回调(不创建Bitmap)
+ * Created by agent on 2026/10/18
+ */
+public abstract class ScreenFrameCallback {
+
+    /**
+     * 成功
+     *
+     * @param frame 屏幕帧，仅在回调期间有效
+     */
+    public void onSuccess(ScreenFrame frame) {
+
+    }
+
+    /**
+     * 失败
+     */
+    public void onFail() {
+
+    }
+
+    /**
+     * 失败(默认调用 {@link #onFail()})
+     *
+     * @param reason    失败原因，{@link FailReason#isTransient()} 为true时可稍后重试
+     * @param throwable 异常，可为null
+     */
+    public void onFail(FailReason reason, Throwable throwable) {
+        onFail();
+    }
+
+}
@@ -0,0 +1,442 @@
+package com.mask.mediaprojection.recorder;
+
+import android.media.MediaCodec;
+import android.media.MediaCodecInfo;
+import android.media.MediaCodecList;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+import android.os.Build;
+import android.os.Bundle;
+import android.view.Surface;
+
+import com.mask.mediaprojection.entity.FrameSize;
+import com.mask.mediaprojection.entity.RecorderConfig;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+
+/**
+ * 录制引擎 MediaCodec + MediaMuxer
+ * <p>
+ * 支持码率模式(CBR/VBR/CQ)、关键帧间隔、profile/level 及 HEVC(不支持时自动回退到AVC)；
+ * 分段录制时在关键帧处切换 MediaMuxer，编码器持续运行
+ * Created by agent on 2026/10/18
+ */
+public class MediaCodecEngine implements RecorderEngine {
+
+    private static final long TIMEOUT_US = 10000;
+    private static final long STOP_TIMEOUT_MS = 3000;
+
+    protected final RecorderConfig config;
+
+    private MediaCodec mediaCodec;
+    private Surface surface;
+    private MediaMuxer mediaMuxer;
+    private MediaFormat outputFormat;
+    private int trackIndex = -1;
+    private boolean isMuxerStarted;
+    private long sampleCount;
+    private volatile long frameCount;// 编码输出的帧数(包含回放模式)
+    private volatile long firstPtsUs = -1;// 第一帧/最后一帧的编码时间戳(切换引擎时计算间隔)
+    private volatile long lastPtsUs = -1;
+
+    // 分段录制
+    private File segmentFile;
+    private long segmentStartPtsUs = -1;
+    private long segmentBytes;
+    private boolean isSyncFrameRequested;
+    private OnSegmentListener onSegmentListener;
+
+    private Thread drainThread;
+    private volatile boolean isForceStop;
+    private volatile boolean isStopping;// 停止时剩余数据写入当前分段，不再切换文件
+    private volatile Exception drainException;
+    private OnErrorListener onErrorListener;
+
+    public MediaCodecEngine(RecorderConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void prepare(File file, FrameSize size) throws IOException {
+        MediaFormat format = createFormat(config.getVideoMimeType(), size);
+        String codecName = findEncoder(format);
+        if (codecName == null && !MediaFormat.MIMETYPE_VIDEO_AVC.equals(config.getVideoMimeType())) {
+            // 不支持时回退到AVC
+            format = createFormat(MediaFormat.MIMETYPE_VIDEO_AVC, size);
+            codecName = findEncoder(format);
+        }
+
+        if (codecName != null) {
+            mediaCodec = MediaCodec.createByCodecName(codecName);
+        } else {
+            mediaCodec = MediaCodec.createEncoderByType(format.getString(MediaFormat.KEY_MIME));
+        }
+        applyCapabilities(format);
+        mediaCodec.configure(format, null, null, MediaCodec.CONFIGURE_FLAG_ENCODE);
+        surface = mediaCodec.createInputSurface();
+
+        prepareOutput(file, size);
+    }
+
+    /**
+     * 准备 编码数据的输出
+     *
+     * @param file 保存文件
+     * @param size 录制尺寸
+     * @throws IOException IOException
+     */
+    protected void prepareOutput(File file, FrameSize size) throws IOException {
+        segmentFile = file;
+        mediaMuxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+    }
+
+    /**
+     * 创建 编码格式
+     *
+     * @param mimeType mimeType
+     * @param size     size
+     * @return MediaFormat
+     */
+    private MediaFormat createFormat(String mimeType, FrameSize size) {
+        int width = size.getWidth();
+        int height = size.getHeight();
+        MediaFormat format = MediaFormat.createVideoFormat(mimeType, width, height);
+        format.setInteger(MediaFormat.KEY_COLOR_FORMAT, MediaCodecInfo.CodecCapabilities.COLOR_FormatSurface);
+        format.setInteger(MediaFormat.KEY_BIT_RATE, config.getBitRate(width, height));
+        format.setInteger(MediaFormat.KEY_FRAME_RATE, config.getFrameRate());
+        if (Build.VERSION.SDK_INT >= Build.VERSION_CODES.N_MR1) {
+            format.setFloat(MediaFormat.KEY_I_FRAME_INTERVAL, config.getIFrameInterval());
+        } else {
+            format.setInteger(MediaFormat.KEY_I_FRAME_INTERVAL, Math.max(1, Math.round(config.getIFrameInterval())));
+        }
+        // 屏幕静止时 VirtualDisplay 不产生新帧，重复上一帧保证时间轴连续
+        format.setLong(MediaFormat.KEY_REPEAT_PREVIOUS_FRAME_AFTER, 1000000L / config.getFrameRate());
+        if (config.getProfile() > 0 && mimeType.equals(config.getVideoMimeType())) {
+            format.setInteger(MediaFormat.KEY_PROFILE, config.getProfile());
+            if (config.getLevel() > 0 && Build.VERSION.SDK_INT >= Build.VERSION_CODES.M) {
+                format.setInteger(MediaFormat.KEY_LEVEL, config.getLevel());
+            }
+        }
+        return format;
+    }
+
+    /**
+     * 查找 支持该格式的编码器
+     *
+     * @param format format
+     * @return 编码器名称，不支持时返回null
+     */
+    private static String findEncoder(MediaFormat format) {
+        MediaCodecList codecList = new MediaCodecList(MediaCodecList.REGULAR_CODECS);
+        // findEncoderForFormat 在 Android 5.0 上不能包含帧率
+        if (Build.VERSION.SDK_INT == Build.VERSION_CODES.LOLLIPOP) {
+            return findEncoderByType(codecList, format.getString(MediaFormat.KEY_MIME));
+        }
+        String name = codecList.findEncoderForFormat(format);
+        if (name == null && format.containsKey(MediaFormat.KEY_PROFILE)) {
+            return findEncoderByType(codecList, format.getString(MediaFormat.KEY_MIME));
+        }
+        return name;
+    }
+
+    private static String findEncoderByType(MediaCodecList codecList, String mimeType) {
+        for (MediaCodecInfo info : codecList.getCodecInfos()) {
+            if (!info.isEncoder()) {
+                continue;
+            }
+            for (String type : info.getSupportedTypes()) {
+                if (type.equalsIgnoreCase(mimeType)) {
+                    return info.getName();
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * 按编码器能力设置码率模式，不支持时使用默认模式
+     *
+     * @param format format
+     */
+    private void applyCapabilities(MediaFormat format) {
+        int bitrateMode = config.getBitrateMode();
+        if (bitrateMode == RecorderConfig.BITRATE_MODE_DEFAULT) {
+            return;
+        }
+        String mimeType = format.getString(MediaFormat.KEY_MIME);
+        MediaCodecInfo.EncoderCapabilities capabilities = mediaCodec.getCodecInfo()
+                .getCapabilitiesForType(mimeType).getEncoderCapabilities();
+        if (capabilities == null || !capabilities.isBitrateModeSupported(bitrateMode)) {
+            return;
+        }
+        format.setInteger(MediaFormat.KEY_BITRATE_MODE, bitrateMode);
+        if (bitrateMode == MediaCodecInfo.EncoderCapabilities.BITRATE_MODE_CQ && config.getQuality() >= 0
+                && Build.VERSION.SDK_INT >= Build.VERSION_CODES.P) {
+            format.setInteger(MediaFormat.KEY_QUALITY, config.getQuality());
+        }
+    }
+
+    @Override
+    public Surface getSurface() {
+        return surface;
+    }
+
+    @Override
+    public void start() {
+        mediaCodec.start();
+        drainThread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    drain();
+                } catch (Exception e) {
+                    drainException = e;
+                    if (onErrorListener != null) {
+                        onErrorListener.onError(MediaCodecEngine.this, e);
+                    }
+                }
+            }
+        }, "MediaProjection-Encoder");
+        drainThread.start();
+    }
+
+    /**
+     * 读取编码数据并写入文件，直到结束
+     *
+     * @throws IOException 创建分段文件失败
+     */
+    private void drain() throws IOException {
+        MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+        while (!isForceStop) {
+            int index = mediaCodec.dequeueOutputBuffer(bufferInfo, TIMEOUT_US);
+            if (index == MediaCodec.INFO_OUTPUT_FORMAT_CHANGED) {
+                onOutputFormatChanged(mediaCodec.getOutputFormat());
+            } else if (index >= 0) {
+                ByteBuffer data = mediaCodec.getOutputBuffer(index);
+                // 编码配置数据已包含在 OutputFormat 中
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_CODEC_CONFIG) != 0) {
+                    bufferInfo.size = 0;
+                }
+                if (bufferInfo.size > 0 && data != null) {
+                    frameCount++;
+                    if (firstPtsUs < 0) {
+                        firstPtsUs = bufferInfo.presentationTimeUs;
+                    }
+                    lastPtsUs = bufferInfo.presentationTimeUs;
+                    data.position(bufferInfo.offset);
+                    data.limit(bufferInfo.offset + bufferInfo.size);
+                    onEncodedSample(data, bufferInfo);
+                }
+                mediaCodec.releaseOutputBuffer(index, false);
+                if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_END_OF_STREAM) != 0) {
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * 编码输出格式确定(在编码线程回调，早于所有编码数据)
+     *
+     * @param format 输出格式(包含编码配置数据)
+     */
+    protected void onOutputFormatChanged(MediaFormat format) {
+        outputFormat = format;
+        startMuxer();
+    }
+
+    /**
+     * 编码数据输出(在编码线程回调)
+     *
+     * @param data       编码数据(position 到 limit)
+     * @param bufferInfo bufferInfo
+     * @throws IOException IOException
+     */
+    protected void onEncodedSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo) throws IOException {
+        if (isMuxerStarted) {
+            writeSample(data, bufferInfo);
+        }
+    }
+
+    private void startMuxer() {
+        trackIndex = mediaMuxer.addTrack(outputFormat);
+        mediaMuxer.start();
+        isMuxerStarted = true;
+    }
+
+    /**
+     * 写入编码数据，达到分段限制后在下一个关键帧切换文件
+     *
+     * @param data       data
+     * @param bufferInfo bufferInfo
+     * @throws IOException 创建分段文件失败
+     */
+    private void writeSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo) throws IOException {
+        long ptsUs = bufferInfo.presentationTimeUs;
+        if (isSegmentFull(ptsUs)) {
+            if ((bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0) {
+                rotateSegment();
+            } else if (!isSyncFrameRequested) {
+                // 请求尽快输出关键帧，编码器不会停止
+                Bundle params = new Bundle();
+                params.putInt(MediaCodec.PARAMETER_KEY_REQUEST_SYNC_FRAME, 0);
+                mediaCodec.setParameters(params);
+                isSyncFrameRequested = true;
+            }
+        }
+
+        if (segmentStartPtsUs < 0) {
+            segmentStartPtsUs = ptsUs;
+        }
+        // 每个分段的时间戳从0开始
+        bufferInfo.presentationTimeUs = ptsUs - segmentStartPtsUs;
+        mediaMuxer.writeSampleData(trackIndex, data, bufferInfo);
+        bufferInfo.presentationTimeUs = ptsUs;
+
+        segmentBytes += bufferInfo.size;
+        sampleCount++;
+    }
+
+    /**
+     * 当前分段是否已达到限制
+     *
+     * @param ptsUs 当前帧时间戳
+     * @return boolean
+     */
+    private boolean isSegmentFull(long ptsUs) {
+        if (onSegmentListener == null || segmentStartPtsUs < 0 || isStopping) {
+            return false;
+        }
+        long maxDurationMs = config.getMaxSegmentDurationMs();
+        if (maxDurationMs > 0 && ptsUs - segmentStartPtsUs >= maxDurationMs * 1000) {
+            return true;
+        }
+        long maxBytes = config.getMaxSegmentBytes();
+        return maxBytes > 0 && segmentBytes >= maxBytes;
+    }
+
+    /**
+     * 完成当前分段，切换到新文件(编码器持续运行，不丢帧)
+     *
+     * @throws IOException 创建分段文件失败
+     */
+    private void rotateSegment() throws IOException {
+        File completedFile = segmentFile;
+        mediaMuxer.stop();
+        mediaMuxer.release();
+        isMuxerStarted = false;
+
+        segmentFile = onSegmentListener.getNextFile(this);
+        mediaMuxer = new MediaMuxer(segmentFile.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        startMuxer();
+        segmentStartPtsUs = -1;
+        segmentBytes = 0;
+        isSyncFrameRequested = false;
+
+        onSegmentListener.onSegment(this, completedFile);
+    }
+
+    @Override
+    public boolean stop() {
+        if (drainThread == null) {
+            return false;
+        }
+        isStopping = true;
+        try {
+            mediaCodec.signalEndOfInputStream();
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            isForceStop = true;
+        }
+        try {
+            // 等待剩余数据写入，超时强制结束
+            drainThread.join(STOP_TIMEOUT_MS);
+            if (drainThread.isAlive()) {
+                isForceStop = true;
+                drainThread.join();
+            }
+        } catch (InterruptedException e) {
+            isForceStop = true;
+            Thread.currentThread().interrupt();
+        }
+        drainThread = null;
+
+        try {
+            mediaCodec.stop();
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+        }
+
+        return finishOutput() && drainException == null;
+    }
+
+    /**
+     * 完成 编码数据的输出(编码器已停止)
+     *
+     * @return 是否成功
+     */
+    protected boolean finishOutput() {
+        if (!isMuxerStarted) {
+            return false;
+        }
+        try {
+            mediaMuxer.stop();
+        } catch (IllegalStateException e) {
+            // 未写入任何数据时 stop 会抛出异常
+            e.printStackTrace();
+            return false;
+        } finally {
+            isMuxerStarted = false;
+        }
+        return sampleCount > 0;
+    }
+
+    @Override
+    public void release() {
+        if (mediaCodec != null) {
+            mediaCodec.release();
+            mediaCodec = null;
+        }
+        if (surface != null) {
+            surface.release();
+            surface = null;
+        }
+        if (mediaMuxer != null) {
+            mediaMuxer.release();
+            mediaMuxer = null;
+        }
+    }
+
+    @Override
+    public void setOnErrorListener(OnErrorListener listener) {
+        this.onErrorListener = listener;
+    }
+
+    @Override
+    public void setOnSegmentListener(OnSegmentListener listener) {
+        this.onSegmentListener = listener;
+    }
+
+    @Override
+    public boolean isSegmentDurationSupported() {
+        return true;
+    }
+
+    @Override
+    public long getFrameCount() {
+        return frameCount;
+    }
+
+    @Override
+    public long getFirstPresentationTimeUs() {
+        return firstPtsUs;
+    }
+
+    @Override
+    public long getLastPresentationTimeUs() {
+        return lastPtsUs;
+    }
+
+}
@@ -0,0 +1,187 @@
+package com.mask.mediaprojection.recorder;
+
+import android.media.MediaFormat;
+import android.media.MediaRecorder;
+import android.os.Build;
+import android.view.Surface;
+
+import com.mask.mediaprojection.entity.FrameSize;
+import com.mask.mediaprojection.entity.RecorderConfig;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 录制引擎 MediaRecorder
+ * Created by agent on 2026/10/18
+ */
+public class MediaRecorderEngine implements RecorderEngine {
+
+    private final RecorderConfig config;
+
+    private MediaRecorder mediaRecorder;
+    private OnErrorListener onErrorListener;
+    private OnSegmentListener onSegmentListener;
+
+    private File currentFile;
+    private File nextFile;
+
+    public MediaRecorderEngine(RecorderConfig config) {
+        this.config = config;
+    }
+
+    @Override
+    public void prepare(File file, FrameSize size) throws IOException {
+        int width = size.getWidth();
+        int height = size.getHeight();
+
+        // 调用顺序不能乱
+        mediaRecorder = new MediaRecorder();
+        mediaRecorder.setVideoSource(MediaRecorder.VideoSource.SURFACE);
+        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
+        mediaRecorder.setOutputFile(file.getAbsolutePath());
+        mediaRecorder.setVideoEncoder(getVideoEncoder());
+        mediaRecorder.setVideoSize(width, height);
+        mediaRecorder.setVideoFrameRate(config.getFrameRate());
+        mediaRecorder.setVideoEncodingBitRate(config.getBitRate(width, height));
+
+        mediaRecorder.setOnErrorListener(new MediaRecorder.OnErrorListener() {
+            @Override
+            public void onError(MediaRecorder mr, int what, int extra) {
+                if (onErrorListener != null) {
+                    onErrorListener.onError(MediaRecorderEngine.this, null);
+                }
+            }
+        });
+
+        currentFile = file;
+        setupSegment();
+
+        mediaRecorder.prepare();
+    }
+
+    /**
+     * 按文件大小分段(需要 Android 8.0，达到上限前设置下一个文件，MediaRecorder 内部无缝切换)
+     */
+    private void setupSegment() {
+        long maxBytes = config.getMaxSegmentBytes();
+        if (onSegmentListener == null || maxBytes <= 0 || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        mediaRecorder.setMaxFileSize(maxBytes);
+        mediaRecorder.setOnInfoListener(new MediaRecorder.OnInfoListener() {
+            @Override
+            public void onInfo(MediaRecorder mr, int what, int extra) {
+                switch (what) {
+                    case MediaRecorder.MEDIA_RECORDER_INFO_MAX_FILESIZE_APPROACHING:
+                        setNextOutputFile();
+                        break;
+                    case MediaRecorder.MEDIA_RECORDER_INFO_NEXT_OUTPUT_FILE_STARTED:
+                        File completedFile = currentFile;
+                        currentFile = nextFile;
+                        nextFile = null;
+                        onSegmentListener.onSegment(MediaRecorderEngine.this, completedFile);
+                        break;
+                    default:
+                        break;
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置 下一个分段文件(需要 Android 8.0)
+     */
+    private void setNextOutputFile() {
+        if (nextFile != null || Build.VERSION.SDK_INT < Build.VERSION_CODES.O) {
+            return;
+        }
+        nextFile = onSegmentListener.getNextFile(this);
+        try {
+            mediaRecorder.setNextOutputFile(nextFile);
+        } catch (IOException e) {
+            nextFile = null;
+            if (onErrorListener != null) {
+                onErrorListener.onError(this, e);
+            }
+        }
+    }
+
+    /**
+     * 获取 视频编码器，HEVC 需要 Android 7.0
+     *
+     * @return int
+     */
+    private int getVideoEncoder() {
+        if (MediaFormat.MIMETYPE_VIDEO_HEVC.equals(config.getVideoMimeType()) && Build.VERSION.SDK_INT >= Build.VERSION_CODES.N) {
+            return MediaRecorder.VideoEncoder.HEVC;
+        }
+        return MediaRecorder.VideoEncoder.H264;
+    }
+
+    @Override
+    public Surface getSurface() {
+        return mediaRecorder.getSurface();
+    }
+
+    @Override
+    public void start() {
+        mediaRecorder.start();
+    }
+
+    @Override
+    public boolean stop() {
+        try {
+            mediaRecorder.stop();
+            return true;
+        } catch (RuntimeException e) {
+            // 未收到任何数据时 stop 会抛出异常
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    @Override
+    public void release() {
+        if (mediaRecorder == null) {
+            return;
+        }
+        mediaRecorder.reset();
+        mediaRecorder.release();
+        mediaRecorder = null;
+    }
+
+    @Override
+    public void setOnErrorListener(OnErrorListener listener) {
+        this.onErrorListener = listener;
+    }
+
+    @Override
+    public void setOnSegmentListener(OnSegmentListener listener) {
+        this.onSegmentListener = listener;
+    }
+
+    @Override
+    public boolean isSegmentDurationSupported() {
+        // 达到 maxDuration 时 MediaRecorder 会直接停止，无法切换到下一个文件
+        return false;
+    }
+
+    @Override
+    public long getFrameCount() {
+        // MediaRecorder 不提供帧数
+        return -1;
+    }
+
+    @Override
+    public long getFirstPresentationTimeUs() {
+        // MediaRecorder 不提供时间戳
+        return -1;
+    }
+
+    @Override
+    public long getLastPresentationTimeUs() {
+        return -1;
+    }
+
+}
@@ -0,0 +1,131 @@
+package com.mask.mediaprojection.recorder;
+
+import android.view.Surface;
+
+import com.mask.mediaprojection.entity.FrameSize;
+
+import java.io.File;
+import java.io.IOException;
+
+/**
+ * 录制引擎
+ * <p>
+ * 调用顺序：prepare -> getSurface(设置给 VirtualDisplay) -> start -> stop -> release
+ * Created by agent on 2026/10/18
+ */
+public interface RecorderEngine {
+
+    /**
+     * 准备
+     *
+     * @param file 保存文件
+     * @param size 录制尺寸
+     * @throws IOException IOException
+     */
+    void prepare(File file, FrameSize size) throws IOException;
+
+    /**
+     * 获取 输入Surface(prepare之后有效)
+     *
+     * @return Surface
+     */
+    Surface getSurface();
+
+    /**
+     * 开始
+     */
+    void start();
+
+    /**
+     * 停止(写入文件)
+     *
+     * @return 是否成功
+     */
+    boolean stop();
+
+    /**
+     * 释放资源
+     */
+    void release();
+
+    /**
+     * 设置 错误监听
+     *
+     * @param listener listener
+     */
+    void setOnErrorListener(OnErrorListener listener);
+
+    /**
+     * 设置 分段监听(配置了分段限制时由引擎切换文件)
+     *
+     * @param listener listener
+     */
+    void setOnSegmentListener(OnSegmentListener listener);
+
+    /**
+     * 是否由引擎自身支持按时长分段(不支持时由调用方切换引擎实现)
+     *
+     * @return boolean
+     */
+    boolean isSegmentDurationSupported();
+
+    /**
+     * 获取 已编码的帧数(stop之后读取)
+     *
+     * @return 帧数，不支持统计时返回-1
+     */
+    long getFrameCount();
+
+    /**
+     * 获取 第一帧编码数据的时间戳(与 VirtualDisplay 帧时间戳同一时钟，可跨引擎比较)
+     *
+     * @return 时间戳(微秒)，还没有编码数据或不支持时返回-1
+     */
+    long getFirstPresentationTimeUs();
+
+    /**
+     * 获取 最后一帧编码数据的时间戳(stop之后读取)
+     *
+     * @return 时间戳(微秒)，没有编码数据或不支持时返回-1
+     */
+    long getLastPresentationTimeUs();
+
+    /**
+     * 错误监听
+     */
+    interface OnErrorListener {
+
+        /**
+         * 录制出错
+         *
+         * @param engine    engine
+         * @param exception exception，可为null
+         */
+        void onError(RecorderEngine engine, Exception exception);
+
+    }
+
+    /**
+     * 分段监听(在引擎内部线程回调)
+     */
+    interface OnSegmentListener {
+
+        /**
+         * 获取 下一个分段文件
+         *
+         * @param engine 切换文件的引擎
+         * @return File
+         */
+        File getNextFile(RecorderEngine engine);
+
+        /**
+         * 分段完成
+         *
+         * @param engine engine
+         * @param file   已完成的分段文件
+         */
+        void onSegment(RecorderEngine engine, File file);
+
+    }
+
+}
@@ -0,0 +1,132 @@
+package com.mask.mediaprojection.recorder;
+
+import android.media.MediaCodec;
+import android.media.MediaFormat;
+import android.media.MediaMuxer;
+
+import com.mask.mediaprojection.entity.FrameSize;
+import com.mask.mediaprojection.entity.RecorderConfig;
+import com.mask.mediaprojection.utils.EncodedRingBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+
+/**
+ * 回放录制引擎(MediaCodec)
+ * <p>
+ * 编码数据不直接写入文件，而是保存在内存环形缓冲区中，只保留最近一段时长；
+ * 调用 {@link #saveReplay(File)} 时将当前缓冲区写入mp4，停止时写入 prepare 的文件
+ * Created by agent on 2026/10/18
+ */
+public class ReplayEngine extends MediaCodecEngine {
+
+    private File file;
+    private EncodedRingBuffer ringBuffer;
+    private volatile MediaFormat outputFormat;
+
+    public ReplayEngine(RecorderConfig config) {
+        super(config);
+    }
+
+    @Override
+    protected void prepareOutput(File file, FrameSize size) {
+        this.file = file;
+        long maxBytes = config.getReplayMaxBytes(size.getWidth(), size.getHeight());
+        ringBuffer = new EncodedRingBuffer((int) Math.min(Integer.MAX_VALUE, maxBytes), config.getReplayDurationMs() * 1000);
+    }
+
+    @Override
+    protected void onOutputFormatChanged(MediaFormat format) {
+        outputFormat = format;
+    }
+
+    @Override
+    protected void onEncodedSample(ByteBuffer data, MediaCodec.BufferInfo bufferInfo) {
+        boolean isKeyFrame = (bufferInfo.flags & MediaCodec.BUFFER_FLAG_KEY_FRAME) != 0;
+        ringBuffer.add(data, bufferInfo.presentationTimeUs, bufferInfo.flags, isKeyFrame);
+    }
+
+    @Override
+    protected boolean finishOutput() {
+        try {
+            return saveReplay(file);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return false;
+        }
+    }
+
+    /**
+     * 保存 当前缓冲的内容到mp4(可在任意线程调用，不影响录制)
+     * <p>
+     * 逐帧从环形缓冲区读取后写入，只额外占用一帧的内存；写入期间被淘汰的GOP会跳过
+     *
+     * @param file 保存文件
+     * @return 是否成功(缓冲区为空时返回false)
+     * @throws IOException IOException
+     */
+    public boolean saveReplay(File file) throws IOException {
+        MediaFormat format = outputFormat;
+        if (format == null || ringBuffer == null) {
+            return false;
+        }
+        List<EncodedRingBuffer.Sample> samples = ringBuffer.getSamples();
+        if (samples.isEmpty()) {
+            return false;
+        }
+        int maxSampleSize = 0;
+        for (EncodedRingBuffer.Sample sample : samples) {
+            maxSampleSize = Math.max(maxSampleSize, sample.getSize());
+        }
+
+        MediaMuxer mediaMuxer = new MediaMuxer(file.getAbsolutePath(), MediaMuxer.OutputFormat.MUXER_OUTPUT_MPEG_4);
+        try {
+            int trackIndex = mediaMuxer.addTrack(format);
+            mediaMuxer.start();
+            ByteBuffer data = ByteBuffer.allocateDirect(Math.max(1, maxSampleSize));
+            MediaCodec.BufferInfo bufferInfo = new MediaCodec.BufferInfo();
+            long startPtsUs = -1;
+            for (EncodedRingBuffer.Sample sample : samples) {
+                data.clear();
+                if (!ringBuffer.read(sample, data)) {
+                    // 已被淘汰(整个GOP一起淘汰，下一个能读取的帧是关键帧)
+                    continue;
+                }
+                if (startPtsUs < 0) {
+                    startPtsUs = sample.getPresentationTimeUs();
+                }
+                data.flip();
+                // 时间戳从0开始
+                bufferInfo.set(0, sample.getSize(), sample.getPresentationTimeUs() - startPtsUs, sample.getFlags());
+                mediaMuxer.writeSampleData(trackIndex, data, bufferInfo);
+            }
+            if (startPtsUs < 0) {
+                return false;
+            }
+            mediaMuxer.stop();
+            return true;
+        } catch (IllegalStateException e) {
+            e.printStackTrace();
+            return false;
+        } finally {
+            mediaMuxer.release();
+        }
+    }
+
+    /**
+     * 获取 环形缓冲区(prepare之后有效)
+     *
+     * @return EncodedRingBuffer
+     */
+    public EncodedRingBuffer getRingBuffer() {
+        return ringBuffer;
+    }
+
+    @Override
+    public void setOnSegmentListener(OnSegmentListener listener) {
+        // 回放模式不分段
+    }
+
+}
@@ -0,0 +1,120 @@
+package com.mask.mediaprojection.service;
+
+import android.media.ImageReader;
+
+import com.mask.mediaprojection.entity.BurstResult;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.interfaces.BurstCaptureCallback;
+import com.mask.mediaprojection.utils.PixelUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 连拍
+ * <p>
+ * 收到第一帧时一次性分配全部帧的Buffer，之后每帧只做复制，不再分配；
+ * 只在采集线程使用
+ * Created by agent on 2026/10/18
+ */
+class BurstCapture {
+
+    private final int frameCount;
+    private final ImageReader imageReader;// 连拍期间使用的 ImageReader(缓冲更多帧)
+    private final BurstCaptureCallback callback;
+    private final Runnable timeoutRunnable;
+
+    private ByteBuffer[] slots;
+    private final List<ScreenFrame> frames;
+
+    BurstCapture(int frameCount, ImageReader imageReader, BurstCaptureCallback callback, Runnable timeoutRunnable) {
+        this.frameCount = frameCount;
+        this.imageReader = imageReader;
+        this.callback = callback;
+        this.timeoutRunnable = timeoutRunnable;
+        this.frames = new ArrayList<>(frameCount);
+    }
+
+    /**
+     * 复制一帧
+     *
+     * @param source 源帧
+     * @return 是否已完成
+     */
+    boolean offer(ScreenFrame source) {
+        if (isComplete()) {
+            return true;
+        }
+        if (slots == null) {
+            allocate(source.getFrameBytes());
+        }
+        ByteBuffer slot = slots[frames.size()];
+        if (slot.capacity() < source.getFrameBytes()) {
+            // 尺寸变化，不再接收
+            return true;
+        }
+        slot.clear();
+        source.copyTo(slot);
+        slot.flip();
+        frames.add(new ScreenFrame(slot, source.getPixelFormat(), source.getWidth(), source.getHeight(),
+                source.getPixelStride(), PixelUtils.getRowBytes(source.getWidth(), source.getPixelStride()),
+                source.getTimestamp()));
+        return isComplete();
+    }
+
+    /**
+     * 分配 全部帧的Buffer(一块连续内存，按帧切分)
+     *
+     * @param frameBytes 每帧字节数
+     */
+    private void allocate(int frameBytes) {
+        ByteBuffer buffer = ByteBuffer.allocateDirect(frameBytes * frameCount);
+        slots = new ByteBuffer[frameCount];
+        for (int i = 0; i < frameCount; i++) {
+            buffer.limit((i + 1) * frameBytes);
+            buffer.position(i * frameBytes);
+            slots[i] = buffer.slice();
+        }
+    }
+
+    boolean isComplete() {
+        return frames.size() >= frameCount;
+    }
+
+    int getFrameCount() {
+        return frameCount;
+    }
+
+    /**
+     * 获取 已接收的帧数
+     *
+     * @return int
+     */
+    int getCapturedCount() {
+        return frames.size();
+    }
+
+    ImageReader getImageReader() {
+        return imageReader;
+    }
+
+    BurstCaptureCallback getCallback() {
+        return callback;
+    }
+
+    Runnable getTimeoutRunnable() {
+        return timeoutRunnable;
+    }
+
+    /**
+     * 创建 结果
+     *
+     * @param expectedIntervalNanos 预期帧间隔(纳秒)
+     * @return BurstResult
+     */
+    BurstResult createResult(long expectedIntervalNanos) {
+        return new BurstResult(frameCount, frames, expectedIntervalNanos);
+    }
+
+}
@@ -0,0 +1,280 @@
+package com.mask.mediaprojection.service;
+
+import android.os.Handler;
+import android.os.HandlerThread;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.FrameStreamConfig;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.interfaces.FrameListener;
+import com.mask.mediaprojection.utils.FrameDiffDetector;
+import com.mask.mediaprojection.utils.FrameQueue;
+import com.mask.mediaprojection.utils.MediaProjectionMetrics;
+import com.mask.mediaprojection.utils.PixelUtils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帧流
+ * <p>
+ * 按配置的帧率/帧间隔接收帧，复制到复用的Buffer后入队，在独立的后台线程分发给 FrameListener；
+ * 消费过慢时丢弃最旧的帧；开启差异检测时，与前一帧相同的帧直接跳过，
+ * 被丢弃的帧的差异合并到下一个分发的帧，消费方按差异更新时不会遗漏变化；
+ * FrameListener 抛出异常时停止帧流，通过 {@link FrameListener#onError(Throwable)} 返回
+ * Created by agent on 2026/10/18
+ */
+public class FrameStream {
+
+    private static final float FPS_TOLERANCE = 0.1f;// 帧时间戳抖动容差
+
+    private final FrameStreamConfig config;
+    private final FrameListener listener;
+    private final MediaProjectionMetrics metrics;
+
+    private final HandlerThread handlerThread;
+    private final Handler handler;
+    private final FrameQueue<PendingFrame> queue;
+    private final ArrayDeque<ByteBuffer> freeBuffers = new ArrayDeque<>();// 可复用的Buffer
+    private final FrameDiffDetector diffDetector;// 差异检测，只在采集线程使用
+    private FrameDiff droppedDiff;// 被丢弃的帧的差异(合并后)，分发下一帧时合并，访问时锁 queue
+
+    private final long minIntervalNanos;
+    private long frameIndex;
+    private long lastTimestamp = -1;
+
+    private final AtomicLong receivedCount = new AtomicLong();
+    private final AtomicLong skippedCount = new AtomicLong();
+    private final AtomicLong unchangedCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    private volatile boolean isStopped;
+
+    private final Runnable drainRunnable = new Runnable() {
+        @Override
+        public void run() {
+            drain();
+        }
+    };
+
+    FrameStream(FrameStreamConfig config, FrameListener listener, MediaProjectionMetrics metrics) {
+        this.config = config;
+        this.listener = listener;
+        this.metrics = metrics;
+        this.queue = new FrameQueue<>(config.getQueueCapacity());
+        int maxFps = config.getMaxFps();
+        this.minIntervalNanos = maxFps > 0 ? (long) (1000000000L / maxFps * (1 - FPS_TOLERANCE)) : 0;
+        this.diffDetector = config.isChangeDetectionEnabled()
+                ? new FrameDiffDetector(config.getDiffTileSize(), config.getDiffSampleStride()) : null;
+
+        handlerThread = new HandlerThread("MediaProjection-FrameStream");
+        handlerThread.start();
+        handler = new Handler(handlerThread.getLooper());
+    }
+
+    /**
+     * 是否接收该帧(帧间隔/帧率限制)
+     *
+     * @param timestamp 帧时间戳(纳秒)
+     * @return boolean
+     */
+    boolean accept(long timestamp) {
+        if (isStopped) {
+            return false;
+        }
+        receivedCount.incrementAndGet();
+        if (frameIndex++ % config.getFrameInterval() != 0) {
+            skippedCount.incrementAndGet();
+            return false;
+        }
+        if (minIntervalNanos > 0 && lastTimestamp >= 0 && timestamp - lastTimestamp < minIntervalNanos) {
+            skippedCount.incrementAndGet();
+            return false;
+        }
+        lastTimestamp = timestamp;
+        return true;
+    }
+
+    /**
+     * 复制帧并入队(在采集线程调用)
+     *
+     * @param source 源帧
+     */
+    void offer(ScreenFrame source) {
+        if (isStopped) {
+            return;
+        }
+        FrameDiff diff = null;
+        if (diffDetector != null) {
+            // 直接在源数据上检测(遮挡区域按遮挡后的内容比较)，未变化时不复制
+            diff = diffDetector.detect(source);
+            if (!diff.isChanged()) {
+                unchangedCount.incrementAndGet();
+                return;
+            }
+        }
+        int rowBytes = PixelUtils.getRowBytes(source.getWidth(), source.getPixelStride());
+        ByteBuffer buffer = obtainBuffer(source.getFrameBytes());
+        source.copyTo(buffer);
+        buffer.flip();
+
+        ScreenFrame frame = new ScreenFrame(buffer, source.getPixelFormat(), source.getWidth(), source.getHeight(),
+                source.getPixelStride(), rowBytes, source.getTimestamp());
+        PendingFrame dropped;
+        synchronized (queue) {
+            dropped = queue.offer(new PendingFrame(frame, diff, buffer));
+            if (dropped != null && dropped.diff != null) {
+                droppedDiff = droppedDiff == null ? dropped.diff : FrameDiffDetector.merge(droppedDiff, dropped.diff,
+                        dropped.frame.getWidth(), dropped.frame.getHeight());
+            }
+        }
+        if (dropped != null) {
+            recycleBuffer(dropped.buffer);
+        }
+        handler.post(drainRunnable);
+    }
+
+    /**
+     * 分发队列中的帧(在帧流线程调用)
+     */
+    private void drain() {
+        PendingFrame pending;
+        while (!isStopped) {
+            FrameDiff diff;
+            synchronized (queue) {
+                pending = queue.poll();
+                if (pending == null) {
+                    break;
+                }
+                diff = pending.diff;
+                if (droppedDiff != null && diff != null) {
+                    // 被丢弃的帧都早于该帧
+                    diff = FrameDiffDetector.merge(droppedDiff, diff, pending.frame.getWidth(), pending.frame.getHeight());
+                }
+                droppedDiff = null;
+            }
+            try {
+                listener.onFrame(pending.frame, diff);
+                deliveredCount.incrementAndGet();
+                metrics.recordFrameDelivered();
+            } catch (RuntimeException e) {
+                // 不能让异常结束帧流线程，否则采集线程会继续向已退出的线程入队
+                stop();
+                listener.onError(e);
+                return;
+            } finally {
+                recycleBuffer(pending.buffer);
+            }
+        }
+    }
+
+    private ByteBuffer obtainBuffer(int capacity) {
+        ByteBuffer buffer;
+        synchronized (freeBuffers) {
+            buffer = freeBuffers.pollFirst();
+        }
+        if (buffer == null || buffer.capacity() < capacity) {
+            // 尺寸变化时旧Buffer直接丢弃
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
+    }
+
+    private void recycleBuffer(ByteBuffer buffer) {
+        synchronized (freeBuffers) {
+            if (freeBuffers.size() <= config.getQueueCapacity()) {
+                freeBuffers.offerLast(buffer);
+            }
+        }
+    }
+
+    /**
+     * 停止帧流
+     */
+    public void stop() {
+        if (isStopped) {
+            return;
+        }
+        isStopped = true;
+        handler.removeCallbacksAndMessages(null);
+        handlerThread.quitSafely();
+        queue.clear();
+        synchronized (freeBuffers) {
+            freeBuffers.clear();
+        }
+    }
+
+    public boolean isStopped() {
+        return isStopped;
+    }
+
+    public FrameStreamConfig getConfig() {
+        return config;
+    }
+
+    /**
+     * 获取 接收的帧数(包含被跳过的帧)
+     *
+     * @return long
+     */
+    public long getReceivedCount() {
+        return receivedCount.get();
+    }
+
+    /**
+     * 获取 因帧间隔/帧率限制跳过的帧数
+     *
+     * @return long
+     */
+    public long getSkippedCount() {
+        return skippedCount.get();
+    }
+
+    /**
+     * 获取 因与前一帧相同跳过的帧数(开启差异检测时)
+     *
+     * @return long
+     */
+    public long getUnchangedCount() {
+        return unchangedCount.get();
+    }
+
+    /**
+     * 获取 因消费过慢丢弃的帧数
+     *
+     * @return long
+     */
+    public long getDroppedCount() {
+        return queue.getDroppedCount();
+    }
+
+    /**
+     * 获取 已分发的帧数
+     *
+     * @return long
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * 待分发的帧
+     */
+    private static class PendingFrame {
+
+        private final ScreenFrame frame;
+        private final FrameDiff diff;
+        private final ByteBuffer buffer;
+
+        private PendingFrame(ScreenFrame frame, FrameDiff diff, ByteBuffer buffer) {
+            this.frame = frame;
+            this.diff = diff;
+            this.buffer = buffer;
+        }
+
+    }
+
+}
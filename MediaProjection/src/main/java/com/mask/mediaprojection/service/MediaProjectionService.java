@@ -7,25 +7,73 @@ import android.content.Intent;
 import android.content.ServiceConnection;
 import android.graphics.Bitmap;
 import android.graphics.PixelFormat;
+import android.graphics.Rect;
 import android.hardware.display.DisplayManager;
 import android.hardware.display.VirtualDisplay;
 import android.media.Image;
 import android.media.ImageReader;
-import android.media.MediaRecorder;
 import android.media.projection.MediaProjection;
 import android.media.projection.MediaProjectionManager;
 import android.os.Binder;
+import android.os.Handler;
+import android.os.HandlerThread;
 import android.os.IBinder;
+import android.os.Looper;
+import android.os.Process;
+import android.os.SystemClock;
 import android.util.DisplayMetrics;
-
+import android.view.Display;
+
+import com.mask.mediaprojection.entity.BitmapLease;
+import com.mask.mediaprojection.entity.BurstResult;
+import com.mask.mediaprojection.entity.CaptureConfig;
+import com.mask.mediaprojection.entity.CaptureFileConfig;
+import com.mask.mediaprojection.entity.CaptureFileResult;
+import com.mask.mediaprojection.entity.FailReason;
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.FrameSize;
+import com.mask.mediaprojection.entity.FrameStreamConfig;
+import com.mask.mediaprojection.entity.RecorderConfig;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+import com.mask.mediaprojection.interfaces.BurstCaptureCallback;
+import com.mask.mediaprojection.interfaces.CaptureFileCallback;
+import com.mask.mediaprojection.interfaces.DisplayChangeCallback;
+import com.mask.mediaprojection.interfaces.FrameListener;
 import com.mask.mediaprojection.interfaces.MediaProjectionNotificationEngine;
 import com.mask.mediaprojection.interfaces.MediaRecorderCallback;
 import com.mask.mediaprojection.interfaces.ScreenCaptureCallback;
+import com.mask.mediaprojection.interfaces.ScreenCaptureLeaseCallback;
+import com.mask.mediaprojection.interfaces.ScreenFrameCallback;
+import com.mask.mediaprojection.recorder.MediaCodecEngine;
+import com.mask.mediaprojection.recorder.MediaRecorderEngine;
+import com.mask.mediaprojection.recorder.RecorderEngine;
+import com.mask.mediaprojection.recorder.ReplayEngine;
+import com.mask.mediaprojection.utils.BitmapFileWriter;
+import com.mask.mediaprojection.utils.BitmapPool;
 import com.mask.mediaprojection.utils.FileUtils;
+import com.mask.mediaprojection.utils.FrameDiffDetector;
+import com.mask.mediaprojection.utils.FrameProcessorChain;
+import com.mask.mediaprojection.utils.MaskUtils;
 import com.mask.mediaprojection.utils.MediaProjectionHelper;
+import com.mask.mediaprojection.utils.MediaProjectionMetrics;
+import com.mask.mediaprojection.utils.PixelUtils;
 
 import java.io.File;
 import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * 媒体投影 Service
@@ -35,24 +83,71 @@ public class MediaProjectionService extends Service {
 
     private static final int ID_MEDIA_PROJECTION = MediaProjectionHelper.REQUEST_CODE;
 
+    public static final int MAX_BURST_FRAMES = 120;// 连拍最大帧数
+    private static final int BURST_MAX_IMAGES = 8;// 连拍时 ImageReader 的最大缓冲帧数
+    private static final int MAX_FRAME_BUFFERS = 2;// 复用的遮挡帧Buffer数(ScreenFrameCallback 回调期间占用)
+    private static final long SWITCH_POLL_MS = 10;// 切换录制引擎后检查新引擎第一帧的间隔
+
     private DisplayMetrics displayMetrics;
+    private CaptureConfig captureConfig = new CaptureConfig();
     private boolean isScreenCaptureEnable;// 是否可以屏幕截图
     private boolean isMediaRecorderEnable;// 是否可以媒体录制
 
     private MediaProjectionManager mediaProjectionManager;
     private MediaProjection mediaProjection;
+    private DisplayManager displayManager;// 监听屏幕尺寸变化
+    private volatile DisplayChangeCallback displayChangeCallback;
 
     private VirtualDisplay virtualDisplayImageReader;
     private ImageReader imageReader;
     private boolean isImageAvailable;
+    private boolean isCaptureOutputLost;// 单 VirtualDisplay 模式下截图输出出错已移除，下次截图时重新添加
+    private boolean isCaptureOutputFailed;// 截图输出重新添加失败，重新创建 VirtualDisplay 之前不能截图
+    private Image latestImage;// 帧流/处理链分发后保留的最新帧，供 capture() 取走
+    private int leasedImageCount;// 交给回调线程、尚未关闭的 Image 数(在采集线程更新)
+    private final List<ImageReader> retiredReaders = new ArrayList<>();// 尺寸变化后替换下的 ImageReader，交出的 Image 全部关闭后再关闭
+    private boolean isProjectionStopped;// VirtualDisplay 已被系统停止
+    private FailReason acquireFailReason;// 最近一次获取 Image 失败的原因
+    private ByteBuffer compactBuffer;// 复用的紧凑Buffer(去除行填充)
+    private final Queue<ByteBuffer> frameBuffers = new ConcurrentLinkedQueue<>();// 复用的遮挡帧Buffer，回调结束后在回调线程归还
+    private final BitmapPool bitmapPool = new BitmapPool();
+    private final BitmapFileWriter bitmapFileWriter = new BitmapFileWriter();
+    private final List<FrameStream> frameStreams = new CopyOnWriteArrayList<>();
+    private final Map<FrameProcessorChain, FrameDiffDetector> processorChains = new LinkedHashMap<>();// 在采集线程执行的帧处理链及其差异检测(未开启时为null)
+    private final List<PendingCapture> pendingCaptures = new ArrayList<>();// 等待下一帧的截图请求
+    private BurstCapture burstCapture;// 进行中的连拍
+    private volatile TileRect[] redactionRects;// 遮挡区域(屏幕坐标)，整体替换，不加锁
+    private TileRect[] maskSourceRects;// 以下为采集线程缓存的 Image 坐标遮挡区域
+    private int maskImageWidth;
+    private int maskImageHeight;
+    private TileRect[] masks;
 
     private VirtualDisplay virtualDisplayMediaRecorder;
-    private MediaRecorder mediaRecorder;
-    private File mediaFile;
+    private VirtualDisplay virtualDisplayShared;// 单 VirtualDisplay 模式下截图和录制共用
+    private SurfaceFanOut surfaceFanOut;// 单 VirtualDisplay 模式下分发到截图/录制的Surface
+    private boolean isRecordOnlyFanOut;// 只为遮挡录制创建的共用 VirtualDisplay(截图仍使用自己的 VirtualDisplay)，录制结束后释放
+    private RecorderConfig recorderConfig;
+    private FrameSize recordSize;
+    private volatile RecorderEngine recorderEngine;
+    private RecorderEngine standbyEngine;// 热备模式下预先准备好的录制引擎
+    private File standbyFile;
+    private final AtomicInteger segmentIndex = new AtomicInteger();// 分段序号
+    private File mediaFile;// 当前录制引擎写入的文件，引擎内部分段切换后在采集线程更新
     private boolean isMediaRecording;
-    private MediaRecorderCallback mediaRecorderCallback;
+    private long recordingStartNanos;// 当前录制引擎开始录制的时间
+    private Exception recorderException;// 最近一次准备录制引擎失败的异常
+    private PendingSwitch pendingSwitch;// 等待新引擎第一帧后回调 onSwitch
+    private volatile MediaRecorderCallback mediaRecorderCallback;
+
+    private volatile MediaProjectionNotificationEngine notificationEngine;
+
+    private volatile int captureThreadPriority = Process.THREAD_PRIORITY_DISPLAY;
+    private HandlerThread captureThread;// 采集线程，ImageReader/VirtualDisplay/MediaRecorder 的回调均在此线程
+    private Handler captureHandler;
+    private volatile Executor callbackExecutor = new MainThreadExecutor();
+    private ExecutorService replayExecutor;// 回放写入线程，多次保存按顺序执行
 
-    private MediaProjectionNotificationEngine notificationEngine;
+    private final MediaProjectionMetrics metrics = new MediaProjectionMetrics();
 
     public class MediaProjectionBinder extends Binder {
 
@@ -62,6 +157,212 @@ public class MediaProjectionService extends Service {
 
     }
 
+    /**
+     * 新的帧(截图 ImageReader 及连拍 ImageReader，在采集线程回调)
+     */
+    private final ImageReader.OnImageAvailableListener imageAvailableListener = new ImageReader.OnImageAvailableListener() {
+        @Override
+        public void onImageAvailable(ImageReader reader) {
+            metrics.recordFrameReceived();
+            if (virtualDisplayImageReader != null) {
+                // 单 VirtualDisplay 模式下由 SurfaceFanOut 统计
+                metrics.recordComposition(1, reader.getWidth(), reader.getHeight());
+            }
+            if (burstCapture != null && reader == burstCapture.getImageReader()) {
+                dispatchBurst(reader);
+            } else if (frameStreams.isEmpty() && pendingCaptures.isEmpty() && processorChains.isEmpty()) {
+                // 保留的帧已不是最新的
+                closeLatestImage();
+                isImageAvailable = true;
+            } else {
+                dispatchFrame(reader);
+            }
+        }
+    };
+
+    /**
+     * 交给回调线程的 Image 已关闭(在采集线程执行)
+     */
+    private final Runnable imageReleasedRunnable = new Runnable() {
+        @Override
+        public void run() {
+            leasedImageCount--;
+            if (leasedImageCount == 0) {
+                closeRetiredReaders();
+            }
+        }
+    };
+
+    /**
+     * 单 VirtualDisplay 模式下输出出错(在采集线程回调，该输出已移除)
+     */
+    private final SurfaceFanOut.OnOutputErrorListener outputErrorListener = new SurfaceFanOut.OnOutputErrorListener() {
+        @Override
+        public void onOutputError(int index, RuntimeException exception) {
+            if (index == SurfaceFanOut.OUTPUT_RECORD) {
+                // 与录制引擎出错相同，由调用方停止录制
+                if (isMediaRecording) {
+                    notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, exception);
+                }
+            } else {
+                // 不再有新的帧，等待中的请求不能完成；下次截图/连拍时重新添加输出
+                isCaptureOutputLost = true;
+                failPendingCaptures(FailReason.UNKNOWN);
+                finishBurst(FailReason.UNKNOWN);
+            }
+        }
+    };
+
+    /**
+     * 分段监听(录制引擎内部切换文件)
+     */
+    private final RecorderEngine.OnSegmentListener segmentListener = new RecorderEngine.OnSegmentListener() {
+        @Override
+        public File getNextFile(final RecorderEngine engine) {
+            final File file = createMediaFile();
+            // 在引擎内部线程回调：只更新当前引擎的文件(切换/停止时旧引擎的回调不能覆盖)，在采集线程更新
+            runOnCaptureThread(new Runnable() {
+                @Override
+                public void run() {
+                    if (engine == recorderEngine) {
+                        mediaFile = file;
+                    }
+                }
+            });
+            return file;
+        }
+
+        @Override
+        public void onSegment(RecorderEngine engine, File file) {
+            if (engine == recorderEngine) {
+                notifyRecorderSegment(mediaRecorderCallback, file, segmentIndex.getAndIncrement());
+            }
+        }
+    };
+
+    /**
+     * 按时长分段(录制引擎自身不支持时，定时切换录制引擎)
+     */
+    private final Runnable segmentRunnable = new Runnable() {
+        @Override
+        public void run() {
+            if (!isMediaRecording) {
+                return;
+            }
+            doSwitchRecording(true, false);
+            captureHandler.postDelayed(this, recorderConfig.getMaxSegmentDurationMs());
+        }
+    };
+
+    /**
+     * 截图的 VirtualDisplay 被系统停止(在采集线程回调)
+     */
+    private final VirtualDisplay.Callback virtualDisplayCallback = new VirtualDisplay.Callback() {
+        @Override
+        public void onStopped() {
+            isImageAvailable = false;
+            closeLatestImage();
+            isProjectionStopped = true;
+            failPendingCaptures(FailReason.PROJECTION_STOPPED);
+            finishBurst(FailReason.PROJECTION_STOPPED);
+        }
+    };
+
+    /**
+     * 屏幕尺寸变化监听(在采集线程回调)
+     */
+    private final DisplayManager.DisplayListener displayListener = new DisplayManager.DisplayListener() {
+        @Override
+        public void onDisplayAdded(int displayId) {
+
+        }
+
+        @Override
+        public void onDisplayRemoved(int displayId) {
+
+        }
+
+        @Override
+        public void onDisplayChanged(int displayId) {
+            if (displayId == Display.DEFAULT_DISPLAY) {
+                onDefaultDisplayChanged();
+            }
+        }
+    };
+
+    /**
+     * 等待下一帧的截图请求(超时后失败)
+     */
+    private class PendingCapture implements Runnable {
+
+        private final ScreenCaptureCallback callback;
+
+        private PendingCapture(ScreenCaptureCallback callback) {
+            this.callback = callback;
+        }
+
+        @Override
+        public void run() {
+            // 超时
+            if (pendingCaptures.remove(this)) {
+                notifyFail(callback, FailReason.TIMEOUT);
+            }
+        }
+
+    }
+
+    /**
+     * 切换录制引擎后等待新引擎的第一帧，按编码时间戳计算前后两个文件的帧间隔后回调 onSwitch
+     */
+    private class PendingSwitch implements Runnable {
+
+        private final MediaRecorderCallback callback;
+        private final File file;
+        private final RecorderEngine engine;// 新引擎
+        private final long lastPtsUs;// 前一个引擎最后一帧的时间戳
+
+        private PendingSwitch(MediaRecorderCallback callback, File file, RecorderEngine engine, long lastPtsUs) {
+            this.callback = callback;
+            this.file = file;
+            this.engine = engine;
+            this.lastPtsUs = lastPtsUs;
+        }
+
+        @Override
+        public void run() {
+            if (engine.getFirstPresentationTimeUs() < 0) {
+                captureHandler.postDelayed(this, SWITCH_POLL_MS);
+                return;
+            }
+            finish();
+        }
+
+        /**
+         * 回调 onSwitch(新引擎还没有帧时间隔为-1)
+         */
+        private void finish() {
+            captureHandler.removeCallbacks(this);
+            pendingSwitch = null;
+            long firstPtsUs = engine.getFirstPresentationTimeUs();
+            notifyRecorderSwitch(callback, file, firstPtsUs >= 0 ? firstPtsUs - lastPtsUs : -1);
+        }
+
+    }
+
+    /**
+     * 主线程 Executor
+     */
+    private static class MainThreadExecutor implements Executor {
+
+        private final Handler handler = new Handler(Looper.getMainLooper());
+
+        @Override
+        public void execute(Runnable command) {
+            handler.post(command);
+        }
+
+    }
+
     /**
      * 绑定Service
      *
@@ -88,9 +389,32 @@ public class MediaProjectionService extends Service {
         return new MediaProjectionBinder();
     }
 
+    @Override
+    public void onCreate() {
+        super.onCreate();
+        captureThread = new HandlerThread("MediaProjection-Capture", captureThreadPriority);
+        captureThread.start();
+        captureHandler = new Handler(captureThread.getLooper());
+        replayExecutor = Executors.newSingleThreadExecutor(new ThreadFactory() {
+            @Override
+            public Thread newThread(Runnable runnable) {
+                return new Thread(runnable, "MediaProjection-Replay");
+            }
+        });
+    }
+
     @Override
     public void onDestroy() {
-        destroy();
+        // 在采集线程释放资源，处理完剩余任务后退出
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                destroy();
+                // 已提交的回放继续写入完成
+                replayExecutor.shutdown();
+            }
+        });
+        captureThread.quitSafely();
         super.onDestroy();
     }
 
@@ -98,10 +422,14 @@ public class MediaProjectionService extends Service {
      * 销毁
      */
     private void destroy() {
+        stopDisplayListener();
+
         stopImageReader();
 
         stopMediaRecorder();
 
+        stopSharedVirtualDisplay();
+
         if (mediaProjection != null) {
             mediaProjection.stop();
             mediaProjection = null;
@@ -111,6 +439,8 @@ public class MediaProjectionService extends Service {
             mediaProjectionManager = null;
         }
 
+        bitmapFileWriter.shutdown();
+
         stopForeground(true);
     }
 
@@ -118,12 +448,28 @@ public class MediaProjectionService extends Service {
      * 结束 屏幕截图
      */
     private void stopImageReader() {
+        stopFrameStreams();
+        processorChains.clear();
+        failPendingCaptures(FailReason.NOT_READY);
+        finishBurst(FailReason.NOT_READY);
+
         isImageAvailable = false;
+        isCaptureOutputLost = false;
+        isCaptureOutputFailed = false;
+        closeLatestImage();
+        compactBuffer = null;
+        frameBuffers.clear();
+        bitmapPool.clear();
+
+        if (surfaceFanOut != null) {
+            surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_CAPTURE, null, 0, 0);
+        }
 
         if (imageReader != null) {
             imageReader.close();
             imageReader = null;
         }
+        closeRetiredReaders();
 
         if (virtualDisplayImageReader != null) {
             virtualDisplayImageReader.release();
@@ -135,7 +481,9 @@ public class MediaProjectionService extends Service {
      * 结束 媒体录制
      */
     private void stopMediaRecorder() {
-        stopRecording();
+        if (isMediaRecording) {
+            doStopRecording();
+        }
 
         if (virtualDisplayMediaRecorder != null) {
             virtualDisplayMediaRecorder.release();
@@ -160,234 +508,2055 @@ public class MediaProjectionService extends Service {
      * 创建 屏幕截图
      */
     private void createImageReader() {
-        int width = displayMetrics.widthPixels;
-        int height = displayMetrics.heightPixels;
-        int densityDpi = displayMetrics.densityDpi;
-
-        imageReader = ImageReader.newInstance(width, height, PixelFormat.RGBA_8888, 2);
-        imageReader.setOnImageAvailableListener(new ImageReader.OnImageAvailableListener() {
-            @Override
-            public void onImageAvailable(ImageReader reader) {
-                isImageAvailable = true;
+        // 按配置缩放，由系统合成时完成缩放
+        FrameSize captureSize = captureConfig.getCaptureSize(displayMetrics.widthPixels, displayMetrics.heightPixels, displayMetrics.densityDpi);
+        int width = captureSize.getWidth();
+        int height = captureSize.getHeight();
+        int densityDpi = captureSize.getDensityDpi();
+
+        imageReader = ImageReader.newInstance(width, height, captureConfig.getPixelFormat(), captureConfig.getMaxImages());
+        imageReader.setOnImageAvailableListener(imageAvailableListener, captureHandler);
+
+        if (surfaceFanOut != null) {
+            // 单 VirtualDisplay 模式，由GPU缩放到截图尺寸
+            try {
+                surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_CAPTURE, imageReader.getSurface(), width, height);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                isCaptureOutputLost = true;
             }
-        }, null);
+            return;
+        }
 
         virtualDisplayImageReader = mediaProjection.createVirtualDisplay("ScreenCapture",
                 width, height, densityDpi, DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                imageReader.getSurface(), null, null);
+                imageReader.getSurface(), virtualDisplayCallback, captureHandler);
     }
 
     /**
-     * 创建 媒体录制
+     * 创建 截图和录制共用的 VirtualDisplay(按屏幕尺寸，系统每帧只合成一次)
+     * <p>
+     * GPU输出为 RGBA，RGB_565 的 ImageReader 不支持(由调用方判断)；创建失败时仍使用两个 VirtualDisplay
+     *
+     * @return 是否成功
      */
-    private void createMediaRecorder() {
+    private boolean createSharedVirtualDisplay() {
         int width = displayMetrics.widthPixels;
         int height = displayMetrics.heightPixels;
-        int densityDpi = displayMetrics.densityDpi;
-
-        // 创建保存路径
-        final File dirFile = FileUtils.getCacheMovieDir(this);
-        boolean mkdirs = dirFile.mkdirs();
-        // 创建保存文件
-        mediaFile = new File(dirFile, FileUtils.getDateName("MediaRecorder") + ".mp4");
-
-        // 调用顺序不能乱
-        mediaRecorder = new MediaRecorder();
-        mediaRecorder.setVideoSource(MediaRecorder.VideoSource.SURFACE);
-        mediaRecorder.setOutputFormat(MediaRecorder.OutputFormat.MPEG_4);
-        mediaRecorder.setOutputFile(mediaFile.getAbsolutePath());
-        mediaRecorder.setVideoEncoder(MediaRecorder.VideoEncoder.H264);
-        mediaRecorder.setVideoSize(width, height);
-        mediaRecorder.setVideoFrameRate(30);
-        mediaRecorder.setVideoEncodingBitRate(5 * width * height);
-
-        mediaRecorder.setOnErrorListener(new MediaRecorder.OnErrorListener() {
-            @Override
-            public void onError(MediaRecorder mr, int what, int extra) {
-                if (mediaRecorderCallback != null) {
-                    mediaRecorderCallback.onFail();
-                }
-            }
-        });
-
         try {
-            mediaRecorder.prepare();
-        } catch (Exception e) {
+            surfaceFanOut = new SurfaceFanOut(width, height, captureHandler, metrics);
+        } catch (RuntimeException e) {
             e.printStackTrace();
+            surfaceFanOut = null;
+            return false;
         }
-
-        if (virtualDisplayMediaRecorder == null) {
-            virtualDisplayMediaRecorder = mediaProjection.createVirtualDisplay("MediaRecorder",
-                    width, height, densityDpi, DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
-                    mediaRecorder.getSurface(), null, null);
-        } else {
-            virtualDisplayMediaRecorder.setSurface(mediaRecorder.getSurface());
-        }
+        surfaceFanOut.setOnOutputErrorListener(outputErrorListener);
+        virtualDisplayShared = mediaProjection.createVirtualDisplay("ScreenShared",
+                width, height, displayMetrics.densityDpi, DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                surfaceFanOut.getInputSurface(), virtualDisplayCallback, captureHandler);
+        return true;
     }
 
     /**
-     * 设置 通知引擎
+     * 录制改为经过共用 VirtualDisplay(有遮挡区域时调用，录制中时把录制引擎的Surface移到 SurfaceFanOut)
+     * <p>
+     * 各自创建 VirtualDisplay 时系统直接输出到编码器，不能遮挡；截图仍使用自己的 VirtualDisplay
      *
-     * @param notificationEngine notificationEngine
+     * @return 录制是否经过 SurfaceFanOut
      */
-    public void setNotificationEngine(MediaProjectionNotificationEngine notificationEngine) {
-        this.notificationEngine = notificationEngine;
+    private boolean routeRecordingThroughFanOut() {
+        if (surfaceFanOut != null) {
+            return true;
+        }
+        if (!createSharedVirtualDisplay()) {
+            return false;
+        }
+        isRecordOnlyFanOut = true;
+        if (virtualDisplayMediaRecorder != null) {
+            // 同一Surface不能同时连接 VirtualDisplay 和 EGL
+            virtualDisplayMediaRecorder.release();
+            virtualDisplayMediaRecorder = null;
+        }
+        if (recorderEngine != null) {
+            try {
+                surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_RECORD, recorderEngine.getSurface(), recordSize.getWidth(), recordSize.getHeight());
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                return false;
+            }
+        }
+        updateRecordMasks();
+        return true;
     }
 
     /**
-     * 创建VirtualDisplay
-     *
-     * @param resultCode            resultCode
-     * @param data                  data
-     * @param displayMetrics        displayMetrics
-     * @param isScreenCaptureEnable 是否可以屏幕截图
-     * @param isMediaRecorderEnable 是否可以媒体录制
+     * 释放 只为遮挡录制创建的共用 VirtualDisplay(录制结束后调用)
      */
-    public void createVirtualDisplay(int resultCode, Intent data, DisplayMetrics displayMetrics, boolean isScreenCaptureEnable, boolean isMediaRecorderEnable) {
-        this.displayMetrics = displayMetrics;
-        this.isScreenCaptureEnable = isScreenCaptureEnable;
-        this.isMediaRecorderEnable = isMediaRecorderEnable;
-
-        if (data == null) {
-            stopSelf();
-            return;
+    private void releaseRecordOnlyFanOut() {
+        if (isRecordOnlyFanOut) {
+            stopSharedVirtualDisplay();
         }
+    }
 
-        showNotification();
-
-        mediaProjectionManager = (MediaProjectionManager) getSystemService(Context.MEDIA_PROJECTION_SERVICE);
-        if (mediaProjectionManager == null) {
-            stopSelf();
-            return;
+    /**
+     * 释放 共用的 VirtualDisplay(截图和录制的输出已移除之后调用)
+     */
+    private void stopSharedVirtualDisplay() {
+        isRecordOnlyFanOut = false;
+        if (virtualDisplayShared != null) {
+            virtualDisplayShared.release();
+            virtualDisplayShared = null;
         }
-
-        mediaProjection = mediaProjectionManager.getMediaProjection(resultCode, data);
-        if (mediaProjection == null) {
-            stopSelf();
-            return;
+        if (surfaceFanOut != null) {
+            surfaceFanOut.release();
+            surfaceFanOut = null;
         }
+    }
 
-        if (isScreenCaptureEnable) {
-            createImageReader();
-        }
+    /**
+     * 是否可以截图(ImageReader 已连接到 VirtualDisplay)
+     *
+     * @return boolean
+     */
+    private boolean isCaptureReady() {
+        return imageReader != null && (virtualDisplayImageReader != null || surfaceFanOut != null);
     }
 
     /**
-     * 屏幕截图
+     * 重新添加 出错移除的截图输出(单 VirtualDisplay 模式，在截图/连拍请求时调用)
+     * <p>
+     * 重新添加时创建输出也可能失败，失败后不再重试
      *
-     * @param callback callback
+     * @return 截图输出是否可用
      */
-    public void capture(ScreenCaptureCallback callback) {
-        if (!isScreenCaptureEnable) {
-            callback.onFail();
-            return;
-        }
-        if (imageReader == null) {
-            callback.onFail();
-            return;
+    private boolean restoreCaptureOutput() {
+        if (isCaptureOutputFailed) {
+            return false;
         }
-        if (!isImageAvailable) {
-            callback.onFail();
-            return;
+        if (!isCaptureOutputLost) {
+            return true;
         }
-        Image image = imageReader.acquireLatestImage();
-        if (image == null) {
-            callback.onFail();
-            return;
+        try {
+            setCaptureSurface(imageReader);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            isCaptureOutputFailed = true;
+            return false;
         }
+        isCaptureOutputLost = false;
+        return true;
+    }
 
-        // 获取数据
-        int width = image.getWidth();
-        int height = image.getHeight();
-        final Image.Plane plane = image.getPlanes()[0];
-        final ByteBuffer buffer = plane.getBuffer();
-
-        // 重新计算Bitmap宽度，防止Bitmap显示错位
-        int pixelStride = plane.getPixelStride();
-        int rowStride = plane.getRowStride();
-        int rowPadding = rowStride - pixelStride * width;
-        int bitmapWidth = width + rowPadding / pixelStride;
-
-        // 创建Bitmap
-        Bitmap bitmap = Bitmap.createBitmap(bitmapWidth, height, Bitmap.Config.ARGB_8888);
-        bitmap.copyPixelsFromBuffer(buffer);
-
-        // 释放资源
-        image.close();
-
-        // 裁剪Bitmap，因为重新计算宽度原因，会导致Bitmap宽度偏大
-        Bitmap result = Bitmap.createBitmap(bitmap, 0, 0, width, height);
-        bitmap.recycle();
-
-        isImageAvailable = false;
+    /**
+     * 设置 截图输出到的 ImageReader(连拍时临时替换)
+     * <p>
+     * 单 VirtualDisplay 模式下创建输出失败时抛出 IllegalStateException，此时旧输出已移除
+     *
+     * @param reader reader
+     */
+    private void setCaptureSurface(ImageReader reader) {
+        if (virtualDisplayImageReader != null) {
+            virtualDisplayImageReader.setSurface(reader.getSurface());
+        } else {
+            surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_CAPTURE, reader.getSurface(), reader.getWidth(), reader.getHeight());
+        }
+    }
 
-        callback.onSuccess(result);
+    /**
+     * 创建 录制文件
+     *
+     * @return File
+     */
+    private File createMediaFile() {
+        // 创建保存路径
+        final File dirFile = FileUtils.getCacheMovieDir(this);
+        boolean mkdirs = dirFile.mkdirs();
+        // 创建保存文件
+        return new File(dirFile, FileUtils.getDateName("MediaRecorder") + ".mp4");
     }
 
     /**
-     * 开始 媒体录制
+     * 创建并准备 录制引擎
      *
-     * @param callback callback
+     * @param config     config
+     * @param file       保存文件
+     * @param recordSize 录制尺寸
+     * @return RecorderEngine，失败时返回null
      */
-    public void startRecording(MediaRecorderCallback callback) {
-        this.mediaRecorderCallback = callback;
-        if (!isMediaRecorderEnable) {
-            if (mediaRecorderCallback != null) {
-                mediaRecorderCallback.onFail();
-            }
-            return;
+    private RecorderEngine prepareRecorderEngine(RecorderConfig config, File file, FrameSize recordSize) {
+        RecorderEngine engine;
+        if (config.isReplay()) {
+            engine = new ReplayEngine(config);
+        } else if (config.getEngine() == RecorderConfig.ENGINE_MEDIA_CODEC) {
+            engine = new MediaCodecEngine(config);
+        } else {
+            engine = new MediaRecorderEngine(config);
         }
-        if (isMediaRecording) {
-            if (mediaRecorderCallback != null) {
-                mediaRecorderCallback.onFail();
+        engine.setOnErrorListener(new RecorderEngine.OnErrorListener() {
+            @Override
+            public void onError(RecorderEngine engine, Exception exception) {
+                if (engine == recorderEngine) {
+                    notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, exception);
+                }
             }
-            return;
+        });
+        if (config.isSegmented()) {
+            engine.setOnSegmentListener(segmentListener);
         }
 
-        createMediaRecorder();
-
-        mediaRecorder.start();
-
-        isMediaRecording = true;
+        recorderException = null;
+        try {
+            engine.prepare(file, recordSize);
+        } catch (Exception e) {
+            e.printStackTrace();
+            engine.release();
+            recorderException = e;
+            return null;
+        }
+        return engine;
     }
 
     /**
-     * 停止 媒体录制
+     * 创建 录制引擎，并设置给 VirtualDisplay
+     *
+     * @param config config
+     * @return 是否成功
      */
-    public void stopRecording() {
-        if (!isMediaRecorderEnable) {
-            if (mediaRecorderCallback != null) {
-                mediaRecorderCallback.onFail();
-            }
+    private boolean createRecorderEngine(RecorderConfig config) {
+        recordSize = config.getRecordSize(displayMetrics.widthPixels, displayMetrics.heightPixels, displayMetrics.densityDpi);
+        mediaFile = createMediaFile();
+        recorderEngine = prepareRecorderEngine(config, mediaFile, recordSize);
+        if (recorderEngine == null) {
+            return false;
         }
 
-        if (mediaRecorder == null) {
-            if (mediaRecorderCallback != null) {
-                mediaRecorderCallback.onFail();
+        int width = recordSize.getWidth();
+        int height = recordSize.getHeight();
+        int densityDpi = recordSize.getDensityDpi();
+        if (surfaceFanOut != null) {
+            // 单 VirtualDisplay 模式，由GPU缩放到录制尺寸
+            try {
+                surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_RECORD, recorderEngine.getSurface(), width, height);
+            } catch (RuntimeException e) {
+                e.printStackTrace();
+                recorderEngine.release();
+                recorderEngine = null;
+                recorderException = e;
+                return false;
             }
-            return;
+            updateRecordMasks();
+        } else if (virtualDisplayMediaRecorder == null) {
+            virtualDisplayMediaRecorder = mediaProjection.createVirtualDisplay("MediaRecorder",
+                    width, height, densityDpi, DisplayManager.VIRTUAL_DISPLAY_FLAG_AUTO_MIRROR,
+                    recorderEngine.getSurface(), null, captureHandler);
+        } else {
+            // 录制尺寸可能变化
+            virtualDisplayMediaRecorder.resize(width, height, densityDpi);
+            virtualDisplayMediaRecorder.setSurface(recorderEngine.getSurface());
         }
-        if (!isMediaRecording) {
-            if (mediaRecorderCallback != null) {
-                mediaRecorderCallback.onFail();
-            }
-            return;
+        return true;
+    }
+
+    /**
+     * 立即回调 等待中的 onSwitch
+     */
+    private void finishPendingSwitch() {
+        if (pendingSwitch != null) {
+            pendingSwitch.finish();
         }
+    }
 
-        mediaRecorder.stop();
-        mediaRecorder.reset();
-        mediaRecorder.release();
+    /**
+     * 移除 录制引擎的Surface(释放录制引擎之前调用)
+     */
+    private void detachRecorderSurface() {
+        if (surfaceFanOut != null) {
+            surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_RECORD, null, 0, 0);
+        } else if (virtualDisplayMediaRecorder != null) {
+            virtualDisplayMediaRecorder.setSurface(null);
+        }
+    }
 
-        mediaRecorder = null;
+    /**
+     * 预先准备 备用录制引擎(热备模式，在采集线程空闲时执行，不阻塞当前录制)
+     */
+    private void prepareStandbyEngineLater() {
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!isMediaRecording || standbyEngine != null) {
+                    return;
+                }
+                File file = createMediaFile();
+                standbyEngine = prepareRecorderEngine(recorderConfig, file, recordSize);
+                standbyFile = standbyEngine != null ? file : null;
+            }
+        });
+    }
 
-        if (mediaRecorderCallback != null) {
-            mediaRecorderCallback.onSuccess(mediaFile);
+    /**
+     * 释放 备用录制引擎
+     */
+    private void releaseStandbyEngine() {
+        if (standbyEngine == null) {
+            return;
         }
-        mediaFile = null;
-
-        isMediaRecording = false;
+        standbyEngine.release();
+        standbyEngine = null;
+        // 未使用的文件
+        boolean delete = standbyFile.delete();
+        standbyFile = null;
+    }
 
-        mediaRecorderCallback = null;
+    /**
+     * 设置 通知引擎
+     *
+     * @param notificationEngine notificationEngine
+     */
+    public void setNotificationEngine(MediaProjectionNotificationEngine notificationEngine) {
+        this.notificationEngine = notificationEngine;
+    }
+
+    /**
+     * 设置 采集线程优先级
+     *
+     * @param priority 线程优先级，如 {@link Process#THREAD_PRIORITY_DISPLAY}
+     */
+    public void setCaptureThreadPriority(final int priority) {
+        this.captureThreadPriority = priority;
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                Process.setThreadPriority(priority);
+            }
+        });
+    }
+
+    /**
+     * 设置 屏幕尺寸变化回调
+     *
+     * @param callback callback，可为null
+     */
+    public void setDisplayChangeCallback(DisplayChangeCallback callback) {
+        this.displayChangeCallback = callback;
+    }
+
+    /**
+     * 设置 遮挡区域(可在任意线程调用，下一帧生效)
+     * <p>
+     * 截图/帧流/连拍/处理链在去除行填充的复制过程中直接写入不透明黑色，不需要额外遍历整帧；
+     * 媒体录制经过共用 VirtualDisplay 遮挡(GPU绘制到编码器Surface后清除遮挡区域)，未共用时改为共用(截图不受影响)；
+     * 录制中不能改为共用时停止录制，回调 onFail({@link FailReason#REDACTION_UNSUPPORTED}) 后通过 onSuccess 返回设置之前录制的文件
+     *
+     * @param rects 遮挡区域(屏幕坐标)，为null或空时取消遮挡
+     */
+    public void setRedactionRects(List<Rect> rects) {
+        if (rects == null || rects.isEmpty()) {
+            redactionRects = null;
+            runOnCaptureThread(new Runnable() {
+                @Override
+                public void run() {
+                    updateRecordMasks();
+                }
+            });
+            return;
+        }
+        TileRect[] array = new TileRect[rects.size()];
+        for (int i = 0; i < array.length; i++) {
+            Rect rect = rects.get(i);
+            array[i] = new TileRect(rect.left, rect.top, rect.right, rect.bottom);
+        }
+        redactionRects = array;
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!isMediaRecording) {
+                    return;
+                }
+                if (routeRecordingThroughFanOut()) {
+                    updateRecordMasks();
+                } else {
+                    // 不能遮挡时不能继续录制
+                    notifyRecorderFail(mediaRecorderCallback, FailReason.REDACTION_UNSUPPORTED, null);
+                    doStopRecording();
+                }
+            }
+        });
+    }
+
+    /**
+     * 设置 回调线程(ScreenCaptureCallback/MediaRecorderCallback 等的回调线程)
+     *
+     * @param executor executor，为null时在主线程回调
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor != null ? executor : new MainThreadExecutor();
+    }
+
+    /**
+     * 创建VirtualDisplay
+     *
+     * @param resultCode            resultCode
+     * @param data                  data
+     * @param displayMetrics        displayMetrics
+     * @param isScreenCaptureEnable 是否可以屏幕截图
+     * @param isMediaRecorderEnable 是否可以媒体录制
+     */
+    public void createVirtualDisplay(int resultCode, Intent data, DisplayMetrics displayMetrics, boolean isScreenCaptureEnable, boolean isMediaRecorderEnable) {
+        createVirtualDisplay(resultCode, data, displayMetrics, isScreenCaptureEnable, isMediaRecorderEnable, null);
+    }
+
+    /**
+     * 创建VirtualDisplay
+     *
+     * @param resultCode            resultCode
+     * @param data                  data
+     * @param displayMetrics        displayMetrics
+     * @param isScreenCaptureEnable 是否可以屏幕截图
+     * @param isMediaRecorderEnable 是否可以媒体录制
+     * @param captureConfig         屏幕截图配置，为null时使用默认配置
+     */
+    public void createVirtualDisplay(final int resultCode, final Intent data, final DisplayMetrics displayMetrics, final boolean isScreenCaptureEnable, final boolean isMediaRecorderEnable, final CaptureConfig captureConfig) {
+        if (data == null) {
+            stopSelf();
+            return;
+        }
+
+        // 获取 MediaProjection 前需要先成为前台服务
+        showNotification();
+
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCreateVirtualDisplay(resultCode, data, displayMetrics, isScreenCaptureEnable, isMediaRecorderEnable, captureConfig);
+            }
+        });
+    }
+
+    /**
+     * 创建VirtualDisplay(采集线程)
+     *
+     * @param resultCode            resultCode
+     * @param data                  data
+     * @param displayMetrics        displayMetrics
+     * @param isScreenCaptureEnable 是否可以屏幕截图
+     * @param isMediaRecorderEnable 是否可以媒体录制
+     * @param captureConfig         屏幕截图配置，为null时使用默认配置
+     */
+    private void doCreateVirtualDisplay(int resultCode, Intent data, DisplayMetrics displayMetrics, boolean isScreenCaptureEnable, boolean isMediaRecorderEnable, CaptureConfig captureConfig) {
+        // 重复创建时释放之前的资源
+        stopDisplayListener();
+        stopImageReader();
+        stopMediaRecorder();
+        stopSharedVirtualDisplay();
+        if (mediaProjection != null) {
+            mediaProjection.stop();
+            mediaProjection = null;
+        }
+
+        this.displayMetrics = displayMetrics;
+        this.captureConfig = captureConfig != null ? captureConfig : new CaptureConfig();
+        this.isScreenCaptureEnable = isScreenCaptureEnable;
+        this.isMediaRecorderEnable = isMediaRecorderEnable;
+
+        mediaProjectionManager = (MediaProjectionManager) getSystemService(Context.MEDIA_PROJECTION_SERVICE);
+        if (mediaProjectionManager == null) {
+            stopSelf();
+            return;
+        }
+
+        mediaProjection = mediaProjectionManager.getMediaProjection(resultCode, data);
+        if (mediaProjection == null) {
+            stopSelf();
+            return;
+        }
+
+        isProjectionStopped = false;
+        if (isScreenCaptureEnable && isMediaRecorderEnable && this.captureConfig.isSingleVirtualDisplay()
+                && this.captureConfig.getPixelFormat() != PixelFormat.RGB_565) {
+            createSharedVirtualDisplay();
+        }
+        if (isScreenCaptureEnable) {
+            createImageReader();
+        }
+
+        displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+        if (displayManager != null) {
+            displayManager.registerDisplayListener(displayListener, captureHandler);
+        }
+    }
+
+    /**
+     * 停止 监听屏幕尺寸变化
+     */
+    private void stopDisplayListener() {
+        if (displayManager != null) {
+            displayManager.unregisterDisplayListener(displayListener);
+            displayManager = null;
+        }
+    }
+
+    /**
+     * 屏幕尺寸变化(旋转、折叠屏展开/折叠)，不重新申请 MediaProjection，
+     * 直接调整 VirtualDisplay 尺寸并替换 ImageReader；录制中时切换到新尺寸的录制引擎
+     */
+    private void onDefaultDisplayChanged() {
+        if (mediaProjection == null || isProjectionStopped) {
+            return;
+        }
+        Display display = displayManager.getDisplay(Display.DEFAULT_DISPLAY);
+        if (display == null) {
+            return;
+        }
+        DisplayMetrics metrics = new DisplayMetrics();
+        display.getRealMetrics(metrics);
+        if (displayMetrics != null && metrics.widthPixels == displayMetrics.widthPixels
+                && metrics.heightPixels == displayMetrics.heightPixels && metrics.densityDpi == displayMetrics.densityDpi) {
+            // 刷新率等其他变化
+            return;
+        }
+        displayMetrics = metrics;
+
+        if (virtualDisplayShared != null) {
+            virtualDisplayShared.resize(metrics.widthPixels, metrics.heightPixels, metrics.densityDpi);
+            surfaceFanOut.setInputSize(metrics.widthPixels, metrics.heightPixels);
+        }
+
+        FrameSize captureSize = null;
+        if (isCaptureReady()) {
+            captureSize = captureConfig.getCaptureSize(metrics.widthPixels, metrics.heightPixels, metrics.densityDpi);
+            resizeImageReader(captureSize);
+        }
+
+        FrameSize newRecordSize = null;
+        if (isMediaRecording) {
+            newRecordSize = recorderConfig.getRecordSize(metrics.widthPixels, metrics.heightPixels, metrics.densityDpi);
+            if (newRecordSize.equals(recordSize)) {
+                // 尺寸不变(如按固定尺寸录制)
+            } else if (recorderConfig.isReplay()) {
+                // 回放缓冲中的数据尺寸固定，保持原尺寸，由系统缩放
+                newRecordSize = recordSize;
+            } else {
+                // 编码器尺寸固定，切换到新尺寸的录制引擎(前一个文件通过 onSwitch 返回)
+                releaseStandbyEngine();
+                recordSize = newRecordSize;
+                doSwitchRecording(false, true);
+            }
+            // 屏幕坐标到录制尺寸的映射已变化
+            updateRecordMasks();
+        }
+
+        notifyDisplayChanged(new FrameSize(metrics.widthPixels, metrics.heightPixels, metrics.densityDpi),
+                captureSize, newRecordSize, display.getRotation());
+    }
+
+    /**
+     * 按新尺寸替换 ImageReader(VirtualDisplay 保持不变，只调整尺寸和Surface)
+     *
+     * @param captureSize 截图尺寸
+     */
+    private void resizeImageReader(FrameSize captureSize) {
+        int width = captureSize.getWidth();
+        int height = captureSize.getHeight();
+        if (width == imageReader.getWidth() && height == imageReader.getHeight()) {
+            if (virtualDisplayImageReader != null) {
+                virtualDisplayImageReader.resize(width, height, captureSize.getDensityDpi());
+            }
+            return;
+        }
+        // 连拍的帧尺寸需要一致
+        finishBurst(FailReason.NOT_READY);
+
+        closeLatestImage();
+        ImageReader previousReader = imageReader;
+        imageReader = ImageReader.newInstance(width, height, captureConfig.getPixelFormat(), captureConfig.getMaxImages());
+        imageReader.setOnImageAvailableListener(imageAvailableListener, captureHandler);
+        if (virtualDisplayImageReader != null) {
+            virtualDisplayImageReader.resize(width, height, captureSize.getDensityDpi());
+        }
+        // 先切换输出，旧 ImageReader 不再有新帧写入
+        try {
+            setCaptureSurface(imageReader);
+        } catch (RuntimeException e) {
+            e.printStackTrace();
+            isCaptureOutputLost = true;
+        }
+        retireImageReader(previousReader);
+
+        // 旧尺寸的帧已失效，等待的截图请求由新的 ImageReader 完成；
+        // 紧凑Buffer容量足够时继续复用(旋转前后字节数相同)，BitmapPool 按尺寸复用
+        isImageAvailable = false;
+    }
+
+    /**
+     * 替换下的 ImageReader：回调线程仍持有其 Image(ScreenFrameCallback 回调中)时，延迟到全部关闭后再关闭，
+     * 否则关闭 ImageReader 会使回调中的屏幕帧失效
+     *
+     * @param reader reader
+     */
+    private void retireImageReader(ImageReader reader) {
+        reader.setOnImageAvailableListener(null, null);
+        if (leasedImageCount == 0) {
+            reader.close();
+        } else {
+            retiredReaders.add(reader);
+        }
+    }
+
+    /**
+     * 关闭 替换下的 ImageReader
+     */
+    private void closeRetiredReaders() {
+        for (ImageReader reader : retiredReaders) {
+            reader.close();
+        }
+        retiredReaders.clear();
+    }
+
+    /**
+     * 获取最新的 Image
+     *
+     * @return Image，不可用时返回null
+     */
+    private Image acquireLatestImage() {
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        Image image = null;
+        if (!isScreenCaptureEnable) {
+            acquireFailReason = FailReason.NOT_ENABLED;
+        } else if (imageReader == null) {
+            acquireFailReason = FailReason.NOT_READY;
+        } else if (isProjectionStopped) {
+            acquireFailReason = FailReason.PROJECTION_STOPPED;
+        } else if (!restoreCaptureOutput()) {
+            acquireFailReason = FailReason.OUTPUT_ERROR;
+        } else if (latestImage != null) {
+            // 帧流/处理链已分发的最新帧，由调用方关闭
+            image = latestImage;
+            latestImage = null;
+            acquireFailReason = null;
+        } else if (!isImageAvailable) {
+            acquireFailReason = FailReason.NO_NEW_FRAME;
+        } else {
+            image = acquireImage(imageReader, true);
+        }
+        metrics.recordLatency(MediaProjectionMetrics.Stage.ACQUIRE, SystemClock.elapsedRealtimeNanos() - startNanos);
+        return image;
+    }
+
+    /**
+     * 从 ImageReader 获取 Image
+     * <p>
+     * 部分设备 VirtualDisplay 输出的格式与 ImageReader 配置的格式(如 RGB_565)不一致时抛出异常，
+     * 转换为失败原因，不能让异常结束采集线程
+     *
+     * @param reader   reader
+     * @param isLatest 是否只取最新的(丢弃之前的帧)，否则按顺序取下一帧
+     * @return Image，失败时返回null，失败原因记录在 acquireFailReason
+     */
+    private Image acquireImage(ImageReader reader, boolean isLatest) {
+        try {
+            Image image = isLatest ? reader.acquireLatestImage() : reader.acquireNextImage();
+            acquireFailReason = image != null ? null : FailReason.NO_NEW_FRAME;
+            return image;
+        } catch (UnsupportedOperationException e) {
+            acquireFailReason = FailReason.UNSUPPORTED_FORMAT;
+        } catch (IllegalStateException e) {
+            // RGBA_8888 以外的格式为输出格式不匹配；RGBA_8888 为已获取的 Image 达到 maxImages(回调尚未返回)
+            acquireFailReason = reader.getImageFormat() != PixelFormat.RGBA_8888 ? FailReason.UNSUPPORTED_FORMAT : FailReason.BUSY;
+        }
+        return null;
+    }
+
+    /**
+     * 关闭 保留的最新帧
+     */
+    private void closeLatestImage() {
+        if (latestImage != null) {
+            latestImage.close();
+            latestImage = null;
+        }
+    }
+
+    /**
+     * 创建 屏幕帧(引用 Image 的数据，不复制)
+     *
+     * @param image image
+     * @return ScreenFrame
+     */
+    private ScreenFrame createScreenFrame(Image image) {
+        final Image.Plane plane = image.getPlanes()[0];
+        return new ScreenFrame(plane.getBuffer(), image.getFormat(), image.getWidth(), image.getHeight(),
+                plane.getPixelStride(), plane.getRowStride(), image.getTimestamp(),
+                getMasks(image.getWidth(), image.getHeight()));
+    }
+
+    /**
+     * 获取 Image 坐标的遮挡区域(遮挡区域或 Image 尺寸变化时重新计算)
+     *
+     * @param imageWidth  Image 宽度
+     * @param imageHeight Image 高度
+     * @return TileRect[]，按 left 升序，没有遮挡时返回null
+     */
+    private TileRect[] getMasks(int imageWidth, int imageHeight) {
+        TileRect[] rects = redactionRects;
+        if (rects == null) {
+            return null;
+        }
+        if (rects != maskSourceRects || imageWidth != maskImageWidth || imageHeight != maskImageHeight) {
+            maskSourceRects = rects;
+            maskImageWidth = imageWidth;
+            maskImageHeight = imageHeight;
+            masks = MaskUtils.createMasks(rects, displayMetrics.widthPixels, displayMetrics.heightPixels, imageWidth, imageHeight);
+        }
+        return masks;
+    }
+
+    /**
+     * 更新 录制输出的遮挡区域(共用 VirtualDisplay 时由GPU遮挡；遮挡区域或录制尺寸变化时调用)
+     */
+    private void updateRecordMasks() {
+        if (surfaceFanOut == null) {
+            return;
+        }
+        TileRect[] rects = redactionRects;
+        TileRect[] recordMasks = null;
+        if (rects != null && recordSize != null && displayMetrics != null) {
+            recordMasks = MaskUtils.createMasks(rects, displayMetrics.widthPixels, displayMetrics.heightPixels,
+                    recordSize.getWidth(), recordSize.getHeight());
+        }
+        surfaceFanOut.setOutputMasks(SurfaceFanOut.OUTPUT_RECORD, recordMasks);
+    }
+
+    /**
+     * 复制屏幕帧到 Bitmap(按需逐行去除行填充/转换格式)
+     *
+     * @param frame  frame
+     * @param bitmap 与屏幕帧同尺寸的 Bitmap(ARGB_8888 或 RGB_565)
+     */
+    private void copyToBitmap(ScreenFrame frame, Bitmap bitmap) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int pixelStride = frame.getPixelStride();
+        int rowStride = frame.getRowStride();
+        Bitmap.Config config = bitmap.getConfig();
+        int bitmapPixelBytes = config == Bitmap.Config.RGB_565 ? 2 : 4;
+
+        if (pixelStride == bitmapPixelBytes) {
+            if (!PixelUtils.hasRowPadding(width, pixelStride, rowStride) && !frame.hasMasks()) {
+                // 无行填充，直接复制
+                bitmap.copyPixelsFromBuffer(frame.getBuffer());
+            } else {
+                // 有行填充/遮挡区域，先逐行紧凑复制到复用的Buffer中(同时遮挡)，防止Bitmap显示错位
+                ByteBuffer buffer = obtainCompactBuffer(frame.getFrameBytes());
+                frame.copyTo(buffer);
+                buffer.flip();
+                bitmap.copyPixelsFromBuffer(buffer);
+            }
+        } else {
+            // 格式不同，逐像素转换(同时去除行填充)
+            ByteBuffer buffer = obtainCompactBuffer(width * height * bitmapPixelBytes);
+            if (config == Bitmap.Config.RGB_565) {
+                PixelUtils.convertRgbaToRgb565(frame.getBuffer(), width, height, pixelStride, rowStride, buffer);
+            } else {
+                PixelUtils.convertRgb565ToRgba(frame.getBuffer(), width, height, pixelStride, rowStride, buffer);
+            }
+            buffer.flip();
+            PixelUtils.fillRects(buffer, width, height, bitmapPixelBytes, width * bitmapPixelBytes, frame.getMasks());
+            bitmap.copyPixelsFromBuffer(buffer);
+        }
+
+        // RGBX_8888 的 X 通道无意义，按不透明处理
+        if (frame.getPixelFormat() == PixelFormat.RGBX_8888 && config == Bitmap.Config.ARGB_8888) {
+            bitmap.setHasAlpha(false);
+        }
+    }
+
+    /**
+     * 获取 复用的紧凑Buffer
+     *
+     * @param capacity 需要的容量
+     * @return ByteBuffer
+     */
+    private ByteBuffer obtainCompactBuffer(int capacity) {
+        if (compactBuffer == null || compactBuffer.capacity() < capacity) {
+            compactBuffer = ByteBuffer.allocateDirect(capacity);
+        }
+        compactBuffer.clear();
+        compactBuffer.limit(capacity);
+        return compactBuffer;
+    }
+
+    /**
+     * 获取 复用的遮挡帧Buffer(交给 ScreenFrameCallback，回调结束后归还)
+     *
+     * @param capacity 需要的容量
+     * @return ByteBuffer
+     */
+    private ByteBuffer obtainFrameBuffer(int capacity) {
+        ByteBuffer buffer = frameBuffers.poll();
+        while (buffer != null && buffer.capacity() < capacity) {
+            // 尺寸变大后旧的Buffer不再使用
+            buffer = frameBuffers.poll();
+        }
+        if (buffer == null) {
+            buffer = ByteBuffer.allocateDirect(capacity);
+        }
+        buffer.clear();
+        buffer.limit(capacity);
+        return buffer;
+    }
+
+    /**
+     * 归还 遮挡帧Buffer(可在任意线程调用)
+     *
+     * @param buffer buffer
+     */
+    private void releaseFrameBuffer(ByteBuffer buffer) {
+        if (frameBuffers.size() < MAX_FRAME_BUFFERS) {
+            frameBuffers.offer(buffer);
+        }
+    }
+
+    /**
+     * 屏幕截图(在采集线程执行，结果在回调线程返回)
+     *
+     * @param callback callback
+     */
+    public void capture(final ScreenCaptureCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCapture(callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 屏幕截图
+     *
+     * @param callback callback
+     */
+    private void doCapture(ScreenCaptureCallback callback) {
+        Image image = acquireLatestImage();
+        if (image == null) {
+            notifyFail(callback, acquireFailReason);
+            return;
+        }
+
+        try {
+            deliverBitmap(createScreenFrame(image), callback);
+        } finally {
+            // 释放资源
+            image.close();
+        }
+
+        isImageAvailable = false;
+    }
+
+    /**
+     * 屏幕截图，没有新的帧时等待下一帧(在采集线程执行，结果在回调线程返回)
+     * <p>
+     * 有未取走的帧时立即返回；否则在下一次 onImageAvailable 时直接完成，
+     * 从请求到返回的延迟约为一个合成帧，不需要轮询；超时回调 {@link FailReason#TIMEOUT}
+     *
+     * @param timeoutMs 等待超时(毫秒)
+     * @param callback  callback
+     */
+    public void capture(final long timeoutMs, final ScreenCaptureCallback callback) {
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs must be > 0: " + timeoutMs);
+        }
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCapture(timeoutMs, callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 屏幕截图，没有新的帧时等待下一帧
+     *
+     * @param timeoutMs 等待超时(毫秒)
+     * @param callback  callback
+     */
+    private void doCapture(long timeoutMs, ScreenCaptureCallback callback) {
+        Image image = acquireLatestImage();
+        if (image != null) {
+            try {
+                deliverBitmap(createScreenFrame(image), callback);
+            } finally {
+                // 释放资源
+                image.close();
+            }
+            isImageAvailable = false;
+            return;
+        }
+        if (acquireFailReason != FailReason.NO_NEW_FRAME) {
+            notifyFail(callback, acquireFailReason);
+            return;
+        }
+
+        PendingCapture pendingCapture = new PendingCapture(callback);
+        pendingCaptures.add(pendingCapture);
+        captureHandler.postDelayed(pendingCapture, timeoutMs);
+    }
+
+    /**
+     * 复制帧到新的Bitmap并回调
+     *
+     * @param frame    frame
+     * @param callback callback
+     */
+    private void deliverBitmap(ScreenFrame frame, ScreenCaptureCallback callback) {
+        Bitmap bitmap = Bitmap.createBitmap(frame.getWidth(), frame.getHeight(), captureConfig.getBitmapConfig());
+        long copyStartNanos = SystemClock.elapsedRealtimeNanos();
+        copyToBitmap(frame, bitmap);
+        metrics.recordLatency(MediaProjectionMetrics.Stage.COPY, SystemClock.elapsedRealtimeNanos() - copyStartNanos);
+
+        notifySuccess(callback, bitmap);
+    }
+
+    /**
+     * 所有等待中的截图请求 失败
+     *
+     * @param reason reason
+     */
+    private void failPendingCaptures(FailReason reason) {
+        for (PendingCapture pendingCapture : pendingCaptures) {
+            captureHandler.removeCallbacks(pendingCapture);
+            notifyFail(pendingCapture.callback, reason);
+        }
+        pendingCaptures.clear();
+    }
+
+    /**
+     * 区域截图(在采集线程执行，结果在回调线程返回)
+     * <p>
+     * 只复制区域内的行/列，直接创建区域大小的Bitmap
+     *
+     * @param roi      区域(屏幕坐标，缩放截图时自动换算)
+     * @param callback callback
+     */
+    public void capture(final Rect roi, final ScreenCaptureCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCapture(roi, callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 区域截图
+     *
+     * @param roi      区域(屏幕坐标)
+     * @param callback callback
+     */
+    private void doCapture(Rect roi, ScreenCaptureCallback callback) {
+        Image image = acquireLatestImage();
+        if (image == null) {
+            notifyFail(callback, acquireFailReason);
+            return;
+        }
+
+        Rect region = mapToImageRegion(roi, image.getWidth(), image.getHeight());
+        if (region == null) {
+            image.close();
+            notifyFail(callback, FailReason.INVALID_ARGUMENT);
+            return;
+        }
+
+        Bitmap bitmap = Bitmap.createBitmap(region.width(), region.height(), captureConfig.getBitmapConfig());
+        long cropStartNanos = SystemClock.elapsedRealtimeNanos();
+        try {
+            ScreenFrame frame = createScreenFrame(image).crop(region.left, region.top, region.width(), region.height());
+            copyToBitmap(frame, bitmap);
+        } finally {
+            // 释放资源
+            image.close();
+        }
+        metrics.recordLatency(MediaProjectionMetrics.Stage.CROP, SystemClock.elapsedRealtimeNanos() - cropStartNanos);
+
+        isImageAvailable = false;
+
+        notifySuccess(callback, bitmap);
+    }
+
+    /**
+     * 屏幕坐标区域 换算为 截图坐标区域(缩放截图时按比例换算，并限制在截图范围内)
+     *
+     * @param roi         区域(屏幕坐标)
+     * @param imageWidth  截图宽度
+     * @param imageHeight 截图高度
+     * @return Rect，区域为空时返回null
+     */
+    private Rect mapToImageRegion(Rect roi, int imageWidth, int imageHeight) {
+        TileRect region = MaskUtils.mapToOutput(new TileRect(roi.left, roi.top, roi.right, roi.bottom),
+                displayMetrics.widthPixels, displayMetrics.heightPixels, imageWidth, imageHeight);
+        if (region == null) {
+            return null;
+        }
+        return new Rect(region.getLeft(), region.getTop(), region.getRight(), region.getBottom());
+    }
+
+    /**
+     * 屏幕截图(Bitmap来自复用池，使用完毕后需归还)
+     *
+     * @param callback callback
+     */
+    public void capture(final ScreenCaptureLeaseCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCapture(callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 屏幕截图(Bitmap来自复用池，使用完毕后需归还)
+     *
+     * @param callback callback
+     */
+    private void doCapture(ScreenCaptureLeaseCallback callback) {
+        Image image = acquireLatestImage();
+        if (image == null) {
+            notifyFail(callback, acquireFailReason);
+            return;
+        }
+
+        Bitmap bitmap = bitmapPool.obtain(image.getWidth(), image.getHeight(), captureConfig.getBitmapConfig());
+        long copyStartNanos = SystemClock.elapsedRealtimeNanos();
+        try {
+            copyToBitmap(createScreenFrame(image), bitmap);
+        } finally {
+            // 释放资源
+            image.close();
+        }
+        metrics.recordLatency(MediaProjectionMetrics.Stage.COPY, SystemClock.elapsedRealtimeNanos() - copyStartNanos);
+
+        isImageAvailable = false;
+
+        notifySuccess(callback, new BitmapLease(bitmap, bitmapPool));
+    }
+
+    /**
+     * 获取 Bitmap复用池
+     *
+     * @return BitmapPool
+     */
+    public BitmapPool getBitmapPool() {
+        return bitmapPool;
+    }
+
+    /**
+     * 截图并保存到文件(在采集线程截图，在后台线程池编码写入，结果在回调线程返回)
+     * <p>
+     * 进行中的任务数达到上限时直接失败
+     *
+     * @param config   config，为null时使用默认配置(PNG)
+     * @param callback callback
+     */
+    public void captureToFile(final CaptureFileConfig config, final CaptureFileCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCaptureToFile(config != null ? config : new CaptureFileConfig(), callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY, null);
+        }
+    }
+
+    /**
+     * 截图并保存到文件
+     *
+     * @param config   config
+     * @param callback callback
+     */
+    private void doCaptureToFile(CaptureFileConfig config, final CaptureFileCallback callback) {
+        // 先占用任务名额，编码积压时不再截图
+        if (!bitmapFileWriter.tryAcquire()) {
+            notifyFail(callback, FailReason.BUSY, null);
+            return;
+        }
+
+        Image image = acquireLatestImage();
+        if (image == null) {
+            bitmapFileWriter.cancel();
+            notifyFail(callback, acquireFailReason, null);
+            return;
+        }
+
+        Bitmap bitmap = bitmapPool.obtain(image.getWidth(), image.getHeight(), captureConfig.getBitmapConfig());
+        long copyStartNanos = SystemClock.elapsedRealtimeNanos();
+        try {
+            copyToBitmap(createScreenFrame(image), bitmap);
+        } finally {
+            // 释放资源
+            image.close();
+        }
+        metrics.recordLatency(MediaProjectionMetrics.Stage.COPY, SystemClock.elapsedRealtimeNanos() - copyStartNanos);
+
+        isImageAvailable = false;
+
+        // 创建保存路径
+        File dirFile = FileUtils.getCachePictureDir(this);
+        boolean mkdirs = dirFile.mkdirs();
+        // 创建保存文件
+        File file = new File(dirFile, FileUtils.getDateName(config.getFilePrefix()) + config.getFileExtension());
+
+        bitmapFileWriter.submit(bitmap, file, config, new BitmapFileWriter.OnWriteListener() {
+            @Override
+            public void onWrite(Bitmap bitmap, CaptureFileResult result, Exception exception) {
+                bitmapPool.release(bitmap);
+                if (result != null) {
+                    notifySuccess(callback, result);
+                } else {
+                    notifyFail(callback, FailReason.IO_ERROR, exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * 获取 Bitmap编码写入器
+     *
+     * @return BitmapFileWriter
+     */
+    public BitmapFileWriter getBitmapFileWriter() {
+        return bitmapFileWriter;
+    }
+
+    /**
+     * 屏幕截图(不创建Bitmap，直接返回按行跨度访问的屏幕帧)
+     *
+     * @param callback callback
+     */
+    public void capture(final ScreenFrameCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCapture(callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 屏幕截图(不创建Bitmap，直接返回按行跨度访问的屏幕帧)
+     *
+     * @param callback callback
+     */
+    private void doCapture(ScreenFrameCallback callback) {
+        Image image = acquireLatestImage();
+        if (image == null) {
+            notifyFail(callback, acquireFailReason);
+            return;
+        }
+
+        isImageAvailable = false;
+
+        ScreenFrame frame = createScreenFrame(image);
+        if (frame.hasMasks()) {
+            // 有遮挡区域时不能直接交出 Image 的数据，复制到复用的Buffer(复制时遮挡)，回调结束后归还
+            ByteBuffer buffer = obtainFrameBuffer(frame.getFrameBytes());
+            frame.copyTo(buffer);
+            buffer.flip();
+            image.close();
+            notifySuccess(callback, new ScreenFrame(buffer, frame.getPixelFormat(), frame.getWidth(), frame.getHeight(),
+                    frame.getPixelStride(), PixelUtils.getRowBytes(frame.getWidth(), frame.getPixelStride()),
+                    frame.getTimestamp()), null, buffer);
+            return;
+        }
+
+        // 回调结束后释放资源，屏幕帧失效
+        notifySuccess(callback, frame, image, null);
+    }
+
+    /**
+     * 分发帧到等待中的截图请求和帧流
+     * <p>
+     * 分发后保留该帧(不复制)，帧流/处理链运行期间 capture() 仍可取到最新帧；下一帧到达时关闭
+     *
+     * @param reader reader
+     */
+    private void dispatchFrame(ImageReader reader) {
+        // 先关闭保留的帧，ImageReader 才有空闲的缓冲
+        closeLatestImage();
+        Image image = acquireImage(reader, true);
+        if (image == null) {
+            if (acquireFailReason == FailReason.UNSUPPORTED_FORMAT) {
+                failPendingCaptures(acquireFailReason);
+            }
+            return;
+        }
+        isImageAvailable = false;
+        boolean isRetained = false;
+        try {
+            dispatchFrame(createScreenFrame(image));
+            isRetained = reader == imageReader;
+        } finally {
+            if (isRetained) {
+                latestImage = image;
+            } else {
+                image.close();
+            }
+        }
+    }
+
+    /**
+     * 分发帧到等待中的截图请求和帧流
+     *
+     * @param frame frame
+     */
+    private void dispatchFrame(ScreenFrame frame) {
+        for (PendingCapture pendingCapture : pendingCaptures) {
+            captureHandler.removeCallbacks(pendingCapture);
+            deliverBitmap(frame, pendingCapture.callback);
+        }
+        pendingCaptures.clear();
+        for (FrameStream frameStream : frameStreams) {
+            if (frameStream.isStopped()) {
+                frameStreams.remove(frameStream);
+                continue;
+            }
+            if (frameStream.accept(frame.getTimestamp())) {
+                frameStream.offer(frame);
+            }
+        }
+        if (!processorChains.isEmpty()) {
+            // 只去除一次行填充，所有处理链共享
+            ByteBuffer buffer = obtainCompactBuffer(frame.getFrameBytes());
+            frame.copyTo(buffer);
+            buffer.flip();
+            ScreenFrame compactFrame = new ScreenFrame(buffer, frame.getPixelFormat(), frame.getWidth(), frame.getHeight(),
+                    frame.getPixelStride(), PixelUtils.getRowBytes(frame.getWidth(), frame.getPixelStride()), frame.getTimestamp());
+            Iterator<Map.Entry<FrameProcessorChain, FrameDiffDetector>> iterator = processorChains.entrySet().iterator();
+            while (iterator.hasNext()) {
+                Map.Entry<FrameProcessorChain, FrameDiffDetector> entry = iterator.next();
+                FrameProcessorChain chain = entry.getKey();
+                FrameDiffDetector diffDetector = entry.getValue();
+                try {
+                    FrameDiff diff = diffDetector != null ? diffDetector.detect(compactFrame) : null;
+                    // 被某个阶段拦截时没有分发
+                    if (chain.process(compactFrame, diff)) {
+                        metrics.recordFrameDelivered();
+                    }
+                } catch (RuntimeException e) {
+                    // 不能让异常结束采集线程：移除出错的处理链并通知
+                    iterator.remove();
+                    notifyChainError(chain, e);
+                }
+            }
+        }
+    }
+
+    /**
+     * 连拍(在采集线程执行，结果在回调线程返回)
+     * <p>
+     * 连拍期间 VirtualDisplay 切换到缓冲更多帧的 ImageReader，按顺序取出每一帧(不跳帧)，
+     * 复制到预先分配的Buffer中并记录时间戳，结束后切换回原 ImageReader；
+     * 连拍期间的帧同样分发给等待中的截图请求和帧流；
+     * 屏幕内容不变时 VirtualDisplay 不产生新帧，超时后返回已取到的帧
+     *
+     * @param frameCount 帧数 [1, {@link #MAX_BURST_FRAMES}]
+     * @param timeoutMs  超时(毫秒)
+     * @param callback   callback
+     */
+    public void captureBurst(final int frameCount, final long timeoutMs, final BurstCaptureCallback callback) {
+        if (frameCount <= 0 || frameCount > MAX_BURST_FRAMES) {
+            throw new IllegalArgumentException("frameCount must be in [1, " + MAX_BURST_FRAMES + "]: " + frameCount);
+        }
+        if (timeoutMs <= 0) {
+            throw new IllegalArgumentException("timeoutMs must be > 0: " + timeoutMs);
+        }
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doCaptureBurst(frameCount, timeoutMs, callback);
+            }
+        });
+        if (!isPosted) {
+            notifyFail(callback, FailReason.NOT_READY);
+        }
+    }
+
+    /**
+     * 连拍
+     *
+     * @param frameCount 帧数
+     * @param timeoutMs  超时(毫秒)
+     * @param callback   callback
+     */
+    private void doCaptureBurst(int frameCount, long timeoutMs, BurstCaptureCallback callback) {
+        if (!isScreenCaptureEnable) {
+            notifyFail(callback, FailReason.NOT_ENABLED);
+            return;
+        }
+        if (!isCaptureReady()) {
+            notifyFail(callback, FailReason.NOT_READY);
+            return;
+        }
+        if (isProjectionStopped) {
+            notifyFail(callback, FailReason.PROJECTION_STOPPED);
+            return;
+        }
+        if (burstCapture != null) {
+            notifyFail(callback, FailReason.BUSY);
+            return;
+        }
+        if (!restoreCaptureOutput()) {
+            notifyFail(callback, FailReason.OUTPUT_ERROR);
+            return;
+        }
+        int width = imageReader.getWidth();
+        int height = imageReader.getHeight();
+        int bytesPerPixel = imageReader.getImageFormat() == PixelFormat.RGB_565 ? 2 : 4;
+        if ((long) width * height * bytesPerPixel * frameCount > Integer.MAX_VALUE) {
+            notifyFail(callback, FailReason.INVALID_ARGUMENT);
+            return;
+        }
+
+        // 缓冲更多帧，回调处理不及时也不丢帧
+        int maxImages = Math.max(imageReader.getMaxImages(), Math.min(frameCount + 1, BURST_MAX_IMAGES));
+        ImageReader burstReader = ImageReader.newInstance(width, height, imageReader.getImageFormat(), maxImages);
+        burstReader.setOnImageAvailableListener(imageAvailableListener, captureHandler);
+        Runnable timeoutRunnable = new Runnable() {
+            @Override
+            public void run() {
+                finishBurst(FailReason.TIMEOUT);
+            }
+        };
+        try {
+            setCaptureSurface(burstReader);
+        } catch (RuntimeException e) {
+            // 原输出已移除，下次截图时重新添加
+            e.printStackTrace();
+            isCaptureOutputLost = true;
+            burstReader.close();
+            notifyFail(callback, FailReason.OUTPUT_ERROR);
+            return;
+        }
+        burstCapture = new BurstCapture(frameCount, burstReader, callback, timeoutRunnable);
+        captureHandler.postDelayed(timeoutRunnable, timeoutMs);
+    }
+
+    /**
+     * 分发帧到连拍(按顺序取出所有帧)
+     *
+     * @param reader reader
+     */
+    private void dispatchBurst(ImageReader reader) {
+        while (burstCapture != null) {
+            Image image = acquireImage(reader, false);
+            if (image == null) {
+                if (acquireFailReason == FailReason.UNSUPPORTED_FORMAT) {
+                    finishBurst(acquireFailReason);
+                }
+                return;
+            }
+            boolean isComplete;
+            try {
+                ScreenFrame frame = createScreenFrame(image);
+                isComplete = burstCapture.offer(frame);
+                dispatchFrame(frame);
+            } finally {
+                image.close();
+            }
+            if (isComplete) {
+                finishBurst(null);
+            }
+        }
+    }
+
+    /**
+     * 结束 连拍，切换回原 ImageReader
+     *
+     * @param reason 提前结束的原因，正常完成时为null；超时结束时返回已取到的帧
+     */
+    private void finishBurst(FailReason reason) {
+        BurstCapture burst = burstCapture;
+        if (burst == null) {
+            return;
+        }
+        burstCapture = null;
+        captureHandler.removeCallbacks(burst.getTimeoutRunnable());
+        if (isCaptureReady()) {
+            // 切换回原 ImageReader，失败(如 EGL 输出创建失败)时之后的截图回调 OUTPUT_ERROR，仍返回连拍结果
+            isCaptureOutputLost = true;
+            restoreCaptureOutput();
+        }
+        burst.getImageReader().close();
+
+        boolean isTimeoutWithFrames = reason == FailReason.TIMEOUT && burst.getCapturedCount() > 0;
+        if (reason == null || isTimeoutWithFrames) {
+            notifySuccess(burst.getCallback(), burst.createResult(getFrameIntervalNanos()));
+        } else {
+            notifyFail(burst.getCallback(), reason);
+        }
+    }
+
+    /**
+     * 获取 屏幕刷新间隔(纳秒)
+     *
+     * @return long
+     */
+    private long getFrameIntervalNanos() {
+        DisplayManager displayManager = (DisplayManager) getSystemService(Context.DISPLAY_SERVICE);
+        Display display = displayManager != null ? displayManager.getDisplay(Display.DEFAULT_DISPLAY) : null;
+        float refreshRate = display != null ? display.getRefreshRate() : 0;
+        if (refreshRate <= 0) {
+            refreshRate = 60;
+        }
+        return (long) (1000000000L / refreshRate);
+    }
+
+    /**
+     * 开始 帧流(每帧推送，帧流运行期间 capture() 取到的是最近分发给帧流的帧)
+     *
+     * @param config   config
+     * @param listener listener
+     * @return FrameStream，不可以屏幕截图时帧流直接停止({@link FrameStream#isStopped()} 为true)
+     */
+    public FrameStream startFrameStream(FrameStreamConfig config, FrameListener listener) {
+        final FrameStream frameStream = new FrameStream(config, listener, metrics);
+        // 在采集线程判断状态，与 createVirtualDisplay/destroy 有序
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                if (!isScreenCaptureEnable || frameStream.isStopped()) {
+                    frameStream.stop();
+                    return;
+                }
+                frameStreams.add(frameStream);
+            }
+        });
+        if (!isPosted) {
+            frameStream.stop();
+        }
+        return frameStream;
+    }
+
+    /**
+     * 获取 截图/录制指标
+     *
+     * @return MediaProjectionMetrics
+     */
+    public MediaProjectionMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * 停止 帧流
+     *
+     * @param frameStream frameStream
+     */
+    public void stopFrameStream(FrameStream frameStream) {
+        frameStream.stop();
+        frameStreams.remove(frameStream);
+    }
+
+    /**
+     * 添加 帧处理链(在采集线程对每帧执行，耗时会直接占用采集线程；耗时较长的处理请通过 startFrameStream 在帧流线程执行)
+     * <p>
+     * 注册期间 capture() 取到的是最近分发给处理链的帧；不检测差异，各阶段收到的 diff 为null；
+     * 处理链抛出异常时被移除，通过 {@link FrameListener#onError(Throwable)} 返回
+     *
+     * @param chain chain
+     */
+    public void addFrameProcessorChain(FrameProcessorChain chain) {
+        addFrameProcessorChain(chain, 0, 0);
+    }
+
+    /**
+     * 添加 帧处理链，并按处理链单独检测与前一帧的差异(各阶段可以据此跳过未变化的帧)
+     *
+     * @param chain        chain
+     * @param tileSize     差异检测分块边长(像素)，0表示不检测
+     * @param sampleStride 差异检测采样间隔(像素)，不能大于 tileSize
+     */
+    public void addFrameProcessorChain(final FrameProcessorChain chain, int tileSize, int sampleStride) {
+        if (tileSize < 0) {
+            throw new IllegalArgumentException("tileSize must be >= 0: " + tileSize);
+        }
+        final FrameDiffDetector diffDetector = tileSize > 0 ? new FrameDiffDetector(tileSize, sampleStride) : null;
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                if (isScreenCaptureEnable && !processorChains.containsKey(chain)) {
+                    processorChains.put(chain, diffDetector);
+                }
+            }
+        });
+    }
+
+    /**
+     * 移除 帧处理链
+     *
+     * @param chain chain
+     */
+    public void removeFrameProcessorChain(final FrameProcessorChain chain) {
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                processorChains.remove(chain);
+            }
+        });
+    }
+
+    /**
+     * 停止 所有帧流
+     */
+    private void stopFrameStreams() {
+        for (FrameStream frameStream : frameStreams) {
+            frameStream.stop();
+        }
+        frameStreams.clear();
+    }
+
+    /**
+     * 开始 媒体录制(在采集线程执行，录制引擎的回调也在采集线程)
+     *
+     * @param callback callback
+     */
+    public void startRecording(MediaRecorderCallback callback) {
+        startRecording(null, callback);
+    }
+
+    /**
+     * 开始 媒体录制(在采集线程执行)
+     *
+     * @param config   录制配置(引擎/编码参数)，为null时使用默认配置(MediaRecorder, H264, 30fps)
+     * @param callback callback
+     */
+    public void startRecording(final RecorderConfig config, final MediaRecorderCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doStartRecording(config != null ? config : new RecorderConfig(), callback);
+            }
+        });
+        if (!isPosted) {
+            notifyRecorderFail(callback, FailReason.NOT_READY, null);
+        }
+    }
+
+    /**
+     * 切换 媒体录制文件(在采集线程执行)
+     * <p>
+     * 热备模式下直接切换到预先准备好的录制引擎，前一个文件完成后回调 {@link MediaRecorderCallback#onSwitch(File, long)}
+     */
+    public void switchRecording() {
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doSwitchRecording(false, false);
+            }
+        });
+    }
+
+    /**
+     * 保存 回放(回放模式下将最近一段时长写入新文件，录制继续)
+     * <p>
+     * 写入文件在单独的回放线程按顺序执行，不阻塞采集线程，结果通过 callback.onSuccess/onFail 返回
+     *
+     * @param callback callback
+     */
+    public void saveReplay(final MediaRecorderCallback callback) {
+        boolean isPosted = runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doSaveReplay(callback);
+            }
+        });
+        if (!isPosted) {
+            notifyRecorderFail(callback, FailReason.NOT_READY, null);
+        }
+    }
+
+    /**
+     * 停止 媒体录制(在采集线程执行)
+     */
+    public void stopRecording() {
+        runOnCaptureThread(new Runnable() {
+            @Override
+            public void run() {
+                doStopRecording();
+            }
+        });
+    }
+
+    /**
+     * 开始 媒体录制
+     *
+     * @param config   config
+     * @param callback callback
+     */
+    private void doStartRecording(RecorderConfig config, MediaRecorderCallback callback) {
+        if (!isMediaRecorderEnable) {
+            notifyRecorderFail(callback, FailReason.NOT_ENABLED, null);
+            return;
+        }
+        if (isMediaRecording) {
+            notifyRecorderFail(callback, FailReason.BUSY, null);
+            return;
+        }
+        // 有遮挡区域时录制必须经过 SurfaceFanOut
+        if (redactionRects != null && !routeRecordingThroughFanOut()) {
+            releaseRecordOnlyFanOut();
+            notifyRecorderFail(callback, FailReason.REDACTION_UNSUPPORTED, null);
+            return;
+        }
+        this.mediaRecorderCallback = callback;
+        this.recorderConfig = config;
+
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        if (!createRecorderEngine(config)) {
+            releaseRecordOnlyFanOut();
+            notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, recorderException);
+            mediaRecorderCallback = null;
+            mediaFile = null;
+            return;
+        }
+
+        try {
+            recorderEngine.start();
+        } catch (RuntimeException e) {
+            // MediaRecorder/MediaCodec 运行时出错(如编码器被占用)，不能让异常结束采集线程
+            e.printStackTrace();
+            detachRecorderSurface();
+            recorderEngine.release();
+            recorderEngine = null;
+            releaseRecordOnlyFanOut();
+            boolean delete = mediaFile.delete();
+            notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, e);
+            mediaRecorderCallback = null;
+            mediaFile = null;
+            return;
+        }
+        recordingStartNanos = SystemClock.elapsedRealtimeNanos();
+        metrics.recordLatency(MediaProjectionMetrics.Stage.RECORDER_START, recordingStartNanos - startNanos);
+
+        isMediaRecording = true;
+        segmentIndex.set(0);
+
+        if (config.isSegmented() && config.getMaxSegmentDurationMs() > 0 && !recorderEngine.isSegmentDurationSupported()) {
+            captureHandler.postDelayed(segmentRunnable, config.getMaxSegmentDurationMs());
+        }
+
+        if (config.isWarmStandby() && !config.isReplay()) {
+            prepareStandbyEngineLater();
+        }
+    }
+
+    /**
+     * 切换 媒体录制文件
+     *
+     * @param isSegment 是否为按时长分段切换(回调 onSegment 而不是 onSwitch)
+     * @param isResize  是否按新的录制尺寸调整 VirtualDisplay(屏幕尺寸变化)
+     */
+    private void doSwitchRecording(boolean isSegment, boolean isResize) {
+        if (!isMediaRecording || recorderEngine == null || recorderConfig.isReplay()) {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.NOT_READY, null);
+            return;
+        }
+
+        // 没有备用引擎时现场准备
+        if (standbyEngine == null) {
+            File file = createMediaFile();
+            standbyEngine = prepareRecorderEngine(recorderConfig, file, recordSize);
+            standbyFile = standbyEngine != null ? file : null;
+            if (standbyEngine == null) {
+                notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, recorderException);
+                return;
+            }
+        }
+
+        RecorderEngine previousEngine = recorderEngine;
+        File previousFile = mediaFile;
+
+        finishPendingSwitch();
+
+        // 先启动新引擎，再切换Surface，切换前旧引擎仍在接收帧
+        try {
+            standbyEngine.start();
+        } catch (RuntimeException e) {
+            // 新引擎启动失败，继续使用当前引擎录制
+            e.printStackTrace();
+            releaseStandbyEngine();
+            notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, e);
+            return;
+        }
+        if (surfaceFanOut != null) {
+            surfaceFanOut.setOutput(SurfaceFanOut.OUTPUT_RECORD, standbyEngine.getSurface(), recordSize.getWidth(), recordSize.getHeight());
+            updateRecordMasks();
+        } else {
+            if (isResize) {
+                virtualDisplayMediaRecorder.resize(recordSize.getWidth(), recordSize.getHeight(), recordSize.getDensityDpi());
+            }
+            virtualDisplayMediaRecorder.setSurface(standbyEngine.getSurface());
+        }
+        recorderEngine = standbyEngine;
+        mediaFile = standbyFile;
+        standbyEngine = null;
+        standbyFile = null;
+
+        long previousStartNanos = recordingStartNanos;
+        recordingStartNanos = SystemClock.elapsedRealtimeNanos();
+        boolean isSuccess = previousEngine.stop();
+        previousEngine.release();
+        metrics.recordRecording(previousEngine.getFrameCount(), recordingStartNanos - previousStartNanos);
+        recordRecorderComposition(previousEngine);
+        if (!isSuccess) {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, null);
+        } else if (isSegment) {
+            notifyRecorderSegment(mediaRecorderCallback, previousFile, segmentIndex.getAndIncrement());
+        } else {
+            long lastPtsUs = previousEngine.getLastPresentationTimeUs();
+            if (lastPtsUs < 0) {
+                // 不提供时间戳(MediaRecorder)
+                notifyRecorderSwitch(mediaRecorderCallback, previousFile, -1);
+            } else {
+                // 新引擎的第一帧在画面变化后才产生
+                pendingSwitch = new PendingSwitch(mediaRecorderCallback, previousFile, recorderEngine, lastPtsUs);
+                pendingSwitch.run();
+            }
+        }
+
+        if (recorderConfig.isWarmStandby()) {
+            prepareStandbyEngineLater();
+        }
+    }
+
+    /**
+     * 保存 回放
+     *
+     * @param callback callback
+     */
+    private void doSaveReplay(final MediaRecorderCallback callback) {
+        if (!isMediaRecording || !(recorderEngine instanceof ReplayEngine)) {
+            notifyRecorderFail(callback, FailReason.NOT_READY, null);
+            return;
+        }
+        final ReplayEngine engine = (ReplayEngine) recorderEngine;
+        final File file = createMediaFile();
+        replayExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                boolean isSuccess;
+                Exception exception = null;
+                try {
+                    isSuccess = engine.saveReplay(file);
+                } catch (Exception e) {
+                    e.printStackTrace();
+                    exception = e;
+                    isSuccess = false;
+                }
+                if (isSuccess) {
+                    notifyRecorderSuccess(callback, file);
+                } else {
+                    boolean delete = file.delete();
+                    notifyRecorderFail(callback, FailReason.IO_ERROR, exception);
+                }
+            }
+        });
+    }
+
+    /**
+     * 停止 媒体录制
+     */
+    private void doStopRecording() {
+        if (!isMediaRecorderEnable) {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.NOT_ENABLED, null);
+            return;
+        }
+
+        if (recorderEngine == null) {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.NOT_READY, null);
+            return;
+        }
+        if (!isMediaRecording) {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.NOT_READY, null);
+            return;
+        }
+
+        captureHandler.removeCallbacks(segmentRunnable);
+        releaseStandbyEngine();
+
+        long stopNanos = SystemClock.elapsedRealtimeNanos();
+        boolean isSuccess = recorderEngine.stop();
+        // 前一个文件先于当前文件回调
+        finishPendingSwitch();
+        // 录制引擎的Surface即将释放
+        detachRecorderSurface();
+        recorderEngine.release();
+        metrics.recordLatency(MediaProjectionMetrics.Stage.RECORDER_STOP, SystemClock.elapsedRealtimeNanos() - stopNanos);
+        metrics.recordRecording(recorderEngine.getFrameCount(), stopNanos - recordingStartNanos);
+        recordRecorderComposition(recorderEngine);
+
+        recorderEngine = null;
+        releaseRecordOnlyFanOut();
+
+        if (isSuccess) {
+            notifyRecorderSuccess(mediaRecorderCallback, mediaFile);
+        } else {
+            notifyRecorderFail(mediaRecorderCallback, FailReason.ENCODER_ERROR, null);
+        }
+        mediaFile = null;
+
+        isMediaRecording = false;
+
+        mediaRecorderCallback = null;
+    }
+
+    /**
+     * 记录 录制的 VirtualDisplay 合成的帧(两个 VirtualDisplay 时；录制引擎不支持统计帧数时记为未能统计)
+     *
+     * @param engine 已停止的录制引擎
+     */
+    private void recordRecorderComposition(RecorderEngine engine) {
+        if (surfaceFanOut == null && recordSize != null) {
+            metrics.recordComposition(engine.getFrameCount(), recordSize.getWidth(), recordSize.getHeight());
+        }
+    }
+
+    /**
+     * 在采集线程执行
+     * <p>
+     * 截图/录制的状态只在采集线程读写，各线程的调用按提交顺序串行执行，不需要加锁
+     *
+     * @param runnable runnable
+     * @return 是否已提交，服务销毁后采集线程退出时返回false
+     */
+    private boolean runOnCaptureThread(Runnable runnable) {
+        return captureHandler.post(runnable);
+    }
+
+    /**
+     * 记录 截图成功
+     *
+     * @return 提交回调的时间(纳秒)
+     */
+    private long recordSuccess() {
+        metrics.recordSuccess();
+        return SystemClock.elapsedRealtimeNanos();
+    }
+
+    /**
+     * 记录 回调开始执行
+     *
+     * @param submitNanos 提交回调的时间(纳秒)
+     */
+    private void recordDeliver(long submitNanos) {
+        metrics.recordLatency(MediaProjectionMetrics.Stage.DELIVER, SystemClock.elapsedRealtimeNanos() - submitNanos);
+        metrics.recordFrameDelivered();
+    }
+
+    private void notifyFail(final ScreenCaptureCallback callback, final FailReason reason) {
+        metrics.recordFail(reason);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, null);
+            }
+        });
+    }
+
+    private void notifySuccess(final ScreenCaptureCallback callback, final Bitmap bitmap) {
+        final long submitNanos = recordSuccess();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordDeliver(submitNanos);
+                callback.onSuccess(bitmap);
+            }
+        });
+    }
+
+    private void notifyFail(final ScreenCaptureLeaseCallback callback, final FailReason reason) {
+        metrics.recordFail(reason);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, null);
+            }
+        });
+    }
+
+    private void notifySuccess(final ScreenCaptureLeaseCallback callback, final BitmapLease lease) {
+        final long submitNanos = recordSuccess();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordDeliver(submitNanos);
+                callback.onSuccess(lease);
+            }
+        });
+    }
+
+    private void notifyChainError(final FrameProcessorChain chain, final Throwable throwable) {
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                chain.onError(throwable);
+            }
+        });
+    }
+
+    private void notifyFail(final ScreenFrameCallback callback, final FailReason reason) {
+        metrics.recordFail(reason);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, null);
+            }
+        });
+    }
+
+    private void notifySuccess(final ScreenFrameCallback callback, final ScreenFrame frame, final Image image, final ByteBuffer buffer) {
+        final long submitNanos = recordSuccess();
+        if (image != null) {
+            // 关闭前不能关闭所属的 ImageReader
+            leasedImageCount++;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordDeliver(submitNanos);
+                try {
+                    callback.onSuccess(frame);
+                } finally {
+                    if (image != null) {
+                        image.close();
+                        runOnCaptureThread(imageReleasedRunnable);
+                    }
+                    if (buffer != null) {
+                        releaseFrameBuffer(buffer);
+                    }
+                }
+            }
+        });
+    }
+
+    private void notifyFail(final CaptureFileCallback callback, final FailReason reason, final Throwable throwable) {
+        metrics.recordFail(reason);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, throwable);
+            }
+        });
+    }
+
+    private void notifySuccess(final CaptureFileCallback callback, final CaptureFileResult result) {
+        final long submitNanos = recordSuccess();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordDeliver(submitNanos);
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+    private void notifyFail(final BurstCaptureCallback callback, final FailReason reason) {
+        metrics.recordFail(reason);
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, null);
+            }
+        });
+    }
+
+    private void notifySuccess(final BurstCaptureCallback callback, final BurstResult result) {
+        final long submitNanos = recordSuccess();
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                recordDeliver(submitNanos);
+                callback.onSuccess(result);
+            }
+        });
+    }
+
+    private void notifyDisplayChanged(final FrameSize displaySize, final FrameSize captureSize, final FrameSize recordSize, final int rotation) {
+        final DisplayChangeCallback callback = displayChangeCallback;
+        if (callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onDisplayChanged(displaySize, captureSize, recordSize, rotation);
+            }
+        });
+    }
+
+    private void notifyRecorderFail(final MediaRecorderCallback callback, final FailReason reason, final Throwable throwable) {
+        metrics.recordFail(reason);
+        if (callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(reason, throwable);
+            }
+        });
+    }
+
+    private void notifyRecorderSwitch(final MediaRecorderCallback callback, final File file, final long gapMicros) {
+        if (callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSwitch(file, gapMicros);
+            }
+        });
+    }
+
+    private void notifyRecorderSegment(final MediaRecorderCallback callback, final File file, final int index) {
+        if (callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSegment(file, index);
+            }
+        });
+    }
+
+    private void notifyRecorderSuccess(final MediaRecorderCallback callback, final File file) {
+        if (callback == null) {
+            return;
+        }
+        callbackExecutor.execute(new Runnable() {
+            @Override
+            public void run() {
+                callback.onSuccess(file);
+            }
+        });
     }
 
 }
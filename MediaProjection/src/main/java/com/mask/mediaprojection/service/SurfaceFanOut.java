@@ -0,0 +1,437 @@
+package com.mask.mediaprojection.service;
+
+import android.graphics.SurfaceTexture;
+import android.opengl.EGL14;
+import android.opengl.EGLConfig;
+import android.opengl.EGLContext;
+import android.opengl.EGLDisplay;
+import android.opengl.EGLExt;
+import android.opengl.EGLSurface;
+import android.opengl.GLES11Ext;
+import android.opengl.GLES20;
+import android.os.Handler;
+import android.os.SystemClock;
+import android.view.Surface;
+
+import com.mask.mediaprojection.entity.TileRect;
+import com.mask.mediaprojection.utils.MaskUtils;
+import com.mask.mediaprojection.utils.MediaProjectionMetrics;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.FloatBuffer;
+
+/**
+ * Surface 分发(单个 VirtualDisplay 输出到多个 Surface)
+ * <p>
+ * VirtualDisplay 输出到 SurfaceTexture，每帧由 GPU 绘制到各输出 Surface(截图的 ImageReader、录制引擎的输入Surface)，
+ * 系统只需合成一次；各输出按自己的尺寸缩放，可单独设置遮挡区域(绘制后清除为不透明黑色)。
+ * 某个输出绘制失败(如录制引擎出错后输入Surface失效)时只移除该输出，通过 {@link OnOutputErrorListener} 通知，不影响其他输出。
+ * 只在采集线程使用(创建、设置输出、绘制、释放都在同一线程，EGL上下文始终绑定在采集线程)
+ * Created by agent on 2026/10/18
+ */
+class SurfaceFanOut implements SurfaceTexture.OnFrameAvailableListener {
+
+    static final int OUTPUT_CAPTURE = 0;// 截图
+    static final int OUTPUT_RECORD = 1;// 录制
+    private static final int OUTPUT_COUNT = 2;
+
+    private static final String VERTEX_SHADER = ""
+            + "uniform mat4 uTexMatrix;\n"
+            + "attribute vec4 aPosition;\n"
+            + "attribute vec4 aTexCoord;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "void main() {\n"
+            + "    gl_Position = aPosition;\n"
+            + "    vTexCoord = (uTexMatrix * aTexCoord).xy;\n"
+            + "}\n";
+
+    private static final String FRAGMENT_SHADER = ""
+            + "#extension GL_OES_EGL_image_external : require\n"
+            + "precision mediump float;\n"
+            + "varying vec2 vTexCoord;\n"
+            + "uniform samplerExternalOES sTexture;\n"
+            + "void main() {\n"
+            + "    gl_FragColor = texture2D(sTexture, vTexCoord);\n"
+            + "}\n";
+
+    private static final float[] VERTICES = {-1f, -1f, 1f, -1f, -1f, 1f, 1f, 1f};
+    private static final float[] TEX_COORDS = {0f, 0f, 1f, 0f, 0f, 1f, 1f, 1f};
+
+    /**
+     * 输出出错监听(在采集线程回调)
+     */
+    interface OnOutputErrorListener {
+
+        /**
+         * 输出出错，该输出已移除
+         *
+         * @param index     {@link #OUTPUT_CAPTURE}、{@link #OUTPUT_RECORD}
+         * @param exception exception
+         */
+        void onOutputError(int index, RuntimeException exception);
+
+    }
+
+    private final MediaProjectionMetrics metrics;
+    private OnOutputErrorListener onOutputErrorListener;
+
+    private EGLDisplay eglDisplay = EGL14.EGL_NO_DISPLAY;
+    private EGLContext eglContext = EGL14.EGL_NO_CONTEXT;
+    private EGLConfig eglConfig;
+    private EGLSurface pbufferSurface = EGL14.EGL_NO_SURFACE;// 没有输出时用于绑定上下文
+
+    private int program;
+    private int textureId;
+    private int positionLocation;
+    private int texCoordLocation;
+    private int texMatrixLocation;
+    private final FloatBuffer vertexBuffer = createFloatBuffer(VERTICES);
+    private final FloatBuffer texCoordBuffer = createFloatBuffer(TEX_COORDS);
+    private final float[] texMatrix = new float[16];
+
+    private SurfaceTexture surfaceTexture;
+    private Surface inputSurface;
+    private int inputWidth;
+    private int inputHeight;
+
+    private final EGLSurface[] outputSurfaces = new EGLSurface[OUTPUT_COUNT];
+    private final int[] outputWidths = new int[OUTPUT_COUNT];
+    private final int[] outputHeights = new int[OUTPUT_COUNT];
+    private final TileRect[][] outputMasks = new TileRect[OUTPUT_COUNT][];
+
+    /**
+     * 创建(在采集线程调用，失败时抛出 IllegalStateException 并释放已创建的资源)
+     *
+     * @param width   输入宽度(VirtualDisplay 尺寸)
+     * @param height  输入高度
+     * @param handler 采集线程 Handler
+     * @param metrics metrics
+     */
+    SurfaceFanOut(int width, int height, Handler handler, MediaProjectionMetrics metrics) {
+        this.metrics = metrics;
+        try {
+            createEgl();
+            createProgram();
+        } catch (RuntimeException e) {
+            release();
+            throw e;
+        }
+        surfaceTexture = new SurfaceTexture(textureId);
+        surfaceTexture.setOnFrameAvailableListener(this, handler);
+        inputSurface = new Surface(surfaceTexture);
+        setInputSize(width, height);
+    }
+
+    private void createEgl() {
+        eglDisplay = EGL14.eglGetDisplay(EGL14.EGL_DEFAULT_DISPLAY);
+        if (eglDisplay == EGL14.EGL_NO_DISPLAY) {
+            throw new IllegalStateException("eglGetDisplay failed");
+        }
+        int[] version = new int[2];
+        if (!EGL14.eglInitialize(eglDisplay, version, 0, version, 1)) {
+            eglDisplay = EGL14.EGL_NO_DISPLAY;
+            throw new IllegalStateException("eglInitialize failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        // 编码器输入Surface需要 RECORDABLE
+        int[] configAttributes = {
+                EGL14.EGL_RED_SIZE, 8,
+                EGL14.EGL_GREEN_SIZE, 8,
+                EGL14.EGL_BLUE_SIZE, 8,
+                EGL14.EGL_ALPHA_SIZE, 8,
+                EGL14.EGL_RENDERABLE_TYPE, EGL14.EGL_OPENGL_ES2_BIT,
+                EGL14.EGL_SURFACE_TYPE, EGL14.EGL_WINDOW_BIT | EGL14.EGL_PBUFFER_BIT,
+                EGLExt.EGL_RECORDABLE_ANDROID, 1,
+                EGL14.EGL_NONE
+        };
+        EGLConfig[] configs = new EGLConfig[1];
+        int[] numConfigs = new int[1];
+        if (!EGL14.eglChooseConfig(eglDisplay, configAttributes, 0, configs, 0, 1, numConfigs, 0) || numConfigs[0] <= 0) {
+            throw new IllegalStateException("eglChooseConfig failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        eglConfig = configs[0];
+        int[] contextAttributes = {EGL14.EGL_CONTEXT_CLIENT_VERSION, 2, EGL14.EGL_NONE};
+        eglContext = EGL14.eglCreateContext(eglDisplay, eglConfig, EGL14.EGL_NO_CONTEXT, contextAttributes, 0);
+        if (eglContext == null || eglContext == EGL14.EGL_NO_CONTEXT) {
+            eglContext = EGL14.EGL_NO_CONTEXT;
+            throw new IllegalStateException("eglCreateContext failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        int[] pbufferAttributes = {EGL14.EGL_WIDTH, 1, EGL14.EGL_HEIGHT, 1, EGL14.EGL_NONE};
+        pbufferSurface = EGL14.eglCreatePbufferSurface(eglDisplay, eglConfig, pbufferAttributes, 0);
+        if (pbufferSurface == null || pbufferSurface == EGL14.EGL_NO_SURFACE) {
+            pbufferSurface = EGL14.EGL_NO_SURFACE;
+            throw new IllegalStateException("eglCreatePbufferSurface failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        makeCurrent(pbufferSurface);
+    }
+
+    private void createProgram() {
+        int vertexShader = loadShader(GLES20.GL_VERTEX_SHADER, VERTEX_SHADER);
+        int fragmentShader = loadShader(GLES20.GL_FRAGMENT_SHADER, FRAGMENT_SHADER);
+        program = GLES20.glCreateProgram();
+        GLES20.glAttachShader(program, vertexShader);
+        GLES20.glAttachShader(program, fragmentShader);
+        GLES20.glLinkProgram(program);
+        GLES20.glDeleteShader(vertexShader);
+        GLES20.glDeleteShader(fragmentShader);
+        int[] status = new int[1];
+        GLES20.glGetProgramiv(program, GLES20.GL_LINK_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetProgramInfoLog(program);
+            GLES20.glDeleteProgram(program);
+            program = 0;
+            throw new IllegalStateException("glLinkProgram failed: " + log);
+        }
+        positionLocation = GLES20.glGetAttribLocation(program, "aPosition");
+        texCoordLocation = GLES20.glGetAttribLocation(program, "aTexCoord");
+        texMatrixLocation = GLES20.glGetUniformLocation(program, "uTexMatrix");
+
+        int[] textures = new int[1];
+        GLES20.glGenTextures(1, textures, 0);
+        textureId = textures[0];
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MIN_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_MAG_FILTER, GLES20.GL_LINEAR);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_S, GLES20.GL_CLAMP_TO_EDGE);
+        GLES20.glTexParameteri(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, GLES20.GL_TEXTURE_WRAP_T, GLES20.GL_CLAMP_TO_EDGE);
+    }
+
+    private static int loadShader(int type, String source) {
+        int shader = GLES20.glCreateShader(type);
+        GLES20.glShaderSource(shader, source);
+        GLES20.glCompileShader(shader);
+        int[] status = new int[1];
+        GLES20.glGetShaderiv(shader, GLES20.GL_COMPILE_STATUS, status, 0);
+        if (status[0] == 0) {
+            String log = GLES20.glGetShaderInfoLog(shader);
+            GLES20.glDeleteShader(shader);
+            throw new IllegalStateException("glCompileShader failed: " + log);
+        }
+        return shader;
+    }
+
+    private static FloatBuffer createFloatBuffer(float[] values) {
+        FloatBuffer buffer = ByteBuffer.allocateDirect(values.length * 4).order(ByteOrder.nativeOrder()).asFloatBuffer();
+        buffer.put(values);
+        buffer.position(0);
+        return buffer;
+    }
+
+    private void makeCurrent(EGLSurface surface) {
+        if (!EGL14.eglMakeCurrent(eglDisplay, surface, surface, eglContext)) {
+            throw new IllegalStateException("eglMakeCurrent failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+    }
+
+    /**
+     * 获取 输入Surface(设置给 VirtualDisplay)
+     *
+     * @return Surface
+     */
+    Surface getInputSurface() {
+        return inputSurface;
+    }
+
+    /**
+     * 设置 输入尺寸(VirtualDisplay 尺寸变化时调用)
+     *
+     * @param width  width
+     * @param height height
+     */
+    void setInputSize(int width, int height) {
+        inputWidth = width;
+        inputHeight = height;
+        surfaceTexture.setDefaultBufferSize(width, height);
+    }
+
+    /**
+     * 设置 输出(替换同一位置的旧输出，旧输出的 EGLSurface 立即销毁，返回后调用方可以释放旧的 Surface)
+     *
+     * @param index   {@link #OUTPUT_CAPTURE}、{@link #OUTPUT_RECORD}
+     * @param surface 输出Surface，为null时移除
+     * @param width   输出宽度
+     * @param height  输出高度
+     */
+    void setOutput(int index, Surface surface, int width, int height) {
+        EGLSurface previous = outputSurfaces[index];
+        if (previous != null) {
+            // 先解绑，避免销毁当前绑定的Surface
+            makeCurrent(pbufferSurface);
+            EGL14.eglDestroySurface(eglDisplay, previous);
+            outputSurfaces[index] = null;
+        }
+        if (surface == null) {
+            return;
+        }
+        int[] attributes = {EGL14.EGL_NONE};
+        EGLSurface eglSurface = EGL14.eglCreateWindowSurface(eglDisplay, eglConfig, surface, attributes, 0);
+        if (eglSurface == null || eglSurface == EGL14.EGL_NO_SURFACE) {
+            throw new IllegalStateException("eglCreateWindowSurface failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+        }
+        outputSurfaces[index] = eglSurface;
+        outputWidths[index] = width;
+        outputHeights[index] = height;
+    }
+
+    /**
+     * 设置 输出出错监听
+     *
+     * @param listener listener
+     */
+    void setOnOutputErrorListener(OnOutputErrorListener listener) {
+        this.onOutputErrorListener = listener;
+    }
+
+    /**
+     * 设置 输出的遮挡区域(与输出Surface无关，替换输出后仍然生效)
+     *
+     * @param index {@link #OUTPUT_CAPTURE}、{@link #OUTPUT_RECORD}
+     * @param masks 遮挡区域(输出坐标，原点在左上角)，为null时取消遮挡
+     */
+    void setOutputMasks(int index, TileRect[] masks) {
+        outputMasks[index] = masks;
+    }
+
+    @Override
+    public void onFrameAvailable(SurfaceTexture surfaceTexture) {
+        if (this.surfaceTexture == null) {
+            return;
+        }
+        long startNanos = SystemClock.elapsedRealtimeNanos();
+        try {
+            makeCurrent(pbufferSurface);
+            // 没有输出时也需要取走帧，否则 VirtualDisplay 会停止输出
+            surfaceTexture.updateTexImage();
+        } catch (RuntimeException e) {
+            // 上下文不可用，所有输出都无法绘制
+            for (int i = 0; i < OUTPUT_COUNT; i++) {
+                removeOutput(i, e);
+            }
+            return;
+        }
+        surfaceTexture.getTransformMatrix(texMatrix);
+        long timestamp = surfaceTexture.getTimestamp();
+        for (int i = 0; i < OUTPUT_COUNT; i++) {
+            EGLSurface eglSurface = outputSurfaces[i];
+            if (eglSurface == null) {
+                continue;
+            }
+            try {
+                makeCurrent(eglSurface);
+                draw(outputWidths[i], outputHeights[i]);
+                clearMasks(outputMasks[i], outputHeights[i]);
+                EGLExt.eglPresentationTimeANDROID(eglDisplay, eglSurface, timestamp);
+                if (!EGL14.eglSwapBuffers(eglDisplay, eglSurface)) {
+                    throw new IllegalStateException("eglSwapBuffers failed: 0x" + Integer.toHexString(EGL14.eglGetError()));
+                }
+            } catch (RuntimeException e) {
+                removeOutput(i, e);
+            }
+        }
+        metrics.recordComposition(1, inputWidth, inputHeight);
+        metrics.recordLatency(MediaProjectionMetrics.Stage.FAN_OUT, SystemClock.elapsedRealtimeNanos() - startNanos);
+    }
+
+    /**
+     * 移除 出错的输出并通知(不抛出异常，不能结束采集线程)
+     *
+     * @param index     index
+     * @param exception exception
+     */
+    private void removeOutput(int index, RuntimeException exception) {
+        EGLSurface eglSurface = outputSurfaces[index];
+        if (eglSurface == null) {
+            return;
+        }
+        outputSurfaces[index] = null;
+        // 解绑失败时 EGL 在解绑后才真正销毁
+        EGL14.eglMakeCurrent(eglDisplay, pbufferSurface, pbufferSurface, eglContext);
+        EGL14.eglDestroySurface(eglDisplay, eglSurface);
+        exception.printStackTrace();
+        if (onOutputErrorListener != null) {
+            onOutputErrorListener.onOutputError(index, exception);
+        }
+    }
+
+    private void draw(int width, int height) {
+        GLES20.glViewport(0, 0, width, height);
+        GLES20.glUseProgram(program);
+        GLES20.glActiveTexture(GLES20.GL_TEXTURE0);
+        GLES20.glBindTexture(GLES11Ext.GL_TEXTURE_EXTERNAL_OES, textureId);
+        GLES20.glUniformMatrix4fv(texMatrixLocation, 1, false, texMatrix, 0);
+        GLES20.glEnableVertexAttribArray(positionLocation);
+        GLES20.glVertexAttribPointer(positionLocation, 2, GLES20.GL_FLOAT, false, 8, vertexBuffer);
+        GLES20.glEnableVertexAttribArray(texCoordLocation);
+        GLES20.glVertexAttribPointer(texCoordLocation, 2, GLES20.GL_FLOAT, false, 8, texCoordBuffer);
+        GLES20.glDrawArrays(GLES20.GL_TRIANGLE_STRIP, 0, 4);
+        GLES20.glDisableVertexAttribArray(positionLocation);
+        GLES20.glDisableVertexAttribArray(texCoordLocation);
+    }
+
+    /**
+     * 将遮挡区域清除为不透明黑色(glScissor 限定区域后 glClear，不需要额外绘制)
+     *
+     * @param masks  遮挡区域(输出坐标)
+     * @param height 输出高度
+     */
+    private static void clearMasks(TileRect[] masks, int height) {
+        if (masks == null || masks.length == 0) {
+            return;
+        }
+        GLES20.glEnable(GLES20.GL_SCISSOR_TEST);
+        GLES20.glClearColor(0f, 0f, 0f, 1f);
+        for (TileRect mask : masks) {
+            GLES20.glScissor(mask.getLeft(), MaskUtils.toGlBottom(mask, height), mask.getWidth(), mask.getHeight());
+            GLES20.glClear(GLES20.GL_COLOR_BUFFER_BIT);
+        }
+        GLES20.glDisable(GLES20.GL_SCISSOR_TEST);
+    }
+
+    /**
+     * 释放(VirtualDisplay 释放之后调用)
+     */
+    void release() {
+        if (surfaceTexture != null) {
+            surfaceTexture.setOnFrameAvailableListener(null);
+            surfaceTexture.release();
+            surfaceTexture = null;
+        }
+        if (inputSurface != null) {
+            inputSurface.release();
+            inputSurface = null;
+        }
+        if (eglDisplay == EGL14.EGL_NO_DISPLAY) {
+            return;
+        }
+        if (eglContext != EGL14.EGL_NO_CONTEXT && pbufferSurface != EGL14.EGL_NO_SURFACE) {
+            makeCurrent(pbufferSurface);
+            if (program != 0) {
+                GLES20.glDeleteProgram(program);
+                program = 0;
+            }
+            if (textureId != 0) {
+                GLES20.glDeleteTextures(1, new int[]{textureId}, 0);
+                textureId = 0;
+            }
+        }
+        for (int i = 0; i < OUTPUT_COUNT; i++) {
+            if (outputSurfaces[i] != null) {
+                EGL14.eglDestroySurface(eglDisplay, outputSurfaces[i]);
+                outputSurfaces[i] = null;
+            }
+        }
+        EGL14.eglMakeCurrent(eglDisplay, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_SURFACE, EGL14.EGL_NO_CONTEXT);
+        if (pbufferSurface != EGL14.EGL_NO_SURFACE) {
+            EGL14.eglDestroySurface(eglDisplay, pbufferSurface);
+            pbufferSurface = EGL14.EGL_NO_SURFACE;
+        }
+        if (eglContext != EGL14.EGL_NO_CONTEXT) {
+            EGL14.eglDestroyContext(eglDisplay, eglContext);
+            eglContext = EGL14.EGL_NO_CONTEXT;
+        }
+        EGL14.eglReleaseThread();
+        EGL14.eglTerminate(eglDisplay);
+        eglDisplay = EGL14.EGL_NO_DISPLAY;
+    }
+
+}
@@ -0,0 +1,204 @@
+package com.mask.mediaprojection.utils;
+
+import android.graphics.Bitmap;
+import android.os.SystemClock;
+
+import com.mask.mediaprojection.entity.CaptureFileConfig;
+import com.mask.mediaprojection.entity.CaptureFileResult;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.concurrent.Callable;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Bitmap 编码写入文件(在有界的后台线程池执行)
+ * <p>
+ * 同时进行中的任务数有上限，超出时直接拒绝，避免编码积压占用内存
+ * Created by agent on 2026/10/18
+ */
+public class BitmapFileWriter {
+
+    public static final int DEFAULT_MAX_IN_FLIGHT = 4;
+
+    private final ThreadPoolExecutor executor;
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+
+    // 每个线程复用编码Buffer
+    private final ThreadLocal<ExposedByteArrayOutputStream> outputStreams = new ThreadLocal<ExposedByteArrayOutputStream>() {
+        @Override
+        protected ExposedByteArrayOutputStream initialValue() {
+            return new ExposedByteArrayOutputStream();
+        }
+    };
+
+    public BitmapFileWriter() {
+        this(Math.max(1, Math.min(2, Runtime.getRuntime().availableProcessors() - 1)), DEFAULT_MAX_IN_FLIGHT);
+    }
+
+    /**
+     * @param threadCount 线程数
+     * @param maxInFlight 同时进行中的最大任务数(包含排队中的任务)
+     */
+    public BitmapFileWriter(int threadCount, int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = new ThreadPoolExecutor(threadCount, threadCount, 30, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(maxInFlight), new ThreadFactory() {
+            private final AtomicInteger count = new AtomicInteger();
+
+            @Override
+            public Thread newThread(Runnable r) {
+                Thread thread = new Thread(r, "MediaProjection-Encode-" + count.incrementAndGet());
+                thread.setPriority(Thread.MIN_PRIORITY);
+                return thread;
+            }
+        });
+        this.executor.allowCoreThreadTimeOut(true);
+    }
+
+    /**
+     * 尝试占用一个任务名额，成功后必须调用 {@link #submit} 或 {@link #cancel()}
+     *
+     * @return 是否成功
+     */
+    public boolean tryAcquire() {
+        return inFlight.tryAcquire();
+    }
+
+    /**
+     * 释放 {@link #tryAcquire()} 占用的名额
+     */
+    public void cancel() {
+        inFlight.release();
+    }
+
+    /**
+     * 提交编码写入任务(需先调用 {@link #tryAcquire()})
+     *
+     * @param bitmap   bitmap
+     * @param file     保存文件
+     * @param config   config
+     * @param listener 任务结束监听(在编码线程回调)，可为null
+     * @return Future
+     */
+    public Future<CaptureFileResult> submit(final Bitmap bitmap, final File file, final CaptureFileConfig config, final OnWriteListener listener) {
+        return executor.submit(new Callable<CaptureFileResult>() {
+            @Override
+            public CaptureFileResult call() throws Exception {
+                CaptureFileResult result = null;
+                Exception exception = null;
+                try {
+                    result = write(bitmap, file, config);
+                    return result;
+                } catch (Exception e) {
+                    exception = e;
+                    throw e;
+                } finally {
+                    inFlight.release();
+                    if (listener != null) {
+                        listener.onWrite(bitmap, result, exception);
+                    }
+                }
+            }
+        });
+    }
+
+    /**
+     * 编码并写入文件
+     *
+     * @param bitmap bitmap
+     * @param file   file
+     * @param config config
+     * @return CaptureFileResult
+     * @throws IOException IOException
+     */
+    private CaptureFileResult write(Bitmap bitmap, File file, CaptureFileConfig config) throws IOException {
+        ExposedByteArrayOutputStream outputStream = outputStreams.get();
+        outputStream.reset();
+
+        long encodeStart = SystemClock.elapsedRealtime();
+        if (!bitmap.compress(config.getFormat(), config.getQuality(), outputStream)) {
+            throw new IOException("Bitmap compress failed");
+        }
+        long encodeMillis = SystemClock.elapsedRealtime() - encodeStart;
+
+        long writeStart = SystemClock.elapsedRealtime();
+        FileOutputStream fileOutputStream = new FileOutputStream(file);
+        try {
+            FileChannel channel = fileOutputStream.getChannel();
+            ByteBuffer buffer = ByteBuffer.wrap(outputStream.getBuffer(), 0, outputStream.size());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        } finally {
+            fileOutputStream.close();
+        }
+        long writeMillis = SystemClock.elapsedRealtime() - writeStart;
+
+        return new CaptureFileResult(file, outputStream.size(), encodeMillis, writeMillis);
+    }
+
+    /**
+     * 获取 进行中的任务数
+     *
+     * @return int
+     */
+    public int getInFlightCount() {
+        return maxInFlight - inFlight.availablePermits();
+    }
+
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * 关闭(已提交的任务继续执行)
+     */
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    /**
+     * 任务结束监听
+     */
+    public interface OnWriteListener {
+
+        /**
+         * 任务结束
+         *
+         * @param bitmap    bitmap，可在此回收
+         * @param result    结果，失败时为null
+         * @param exception 异常，成功时为null
+         */
+        void onWrite(Bitmap bitmap, CaptureFileResult result, Exception exception);
+
+    }
+
+    /**
+     * 可直接访问内部数组的 ByteArrayOutputStream，避免 toByteArray() 复制
+     */
+    private static class ExposedByteArrayOutputStream extends ByteArrayOutputStream {
+
+        private ExposedByteArrayOutputStream() {
+            super(256 * 1024);
+        }
+
+        private byte[] getBuffer() {
+            return buf;
+        }
+
+    }
+
+}
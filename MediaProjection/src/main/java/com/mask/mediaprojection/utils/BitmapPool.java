@@ -0,0 +1,210 @@
+package com.mask.mediaprojection.utils;
+
+import android.graphics.Bitmap;
+
+import java.util.ArrayDeque;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bitmap 复用池
+ * <p>
+ * 按 宽/高/Config 分组，总字节数有上限，超出时按最近最少使用(LRU)淘汰
+ * Created by agent on 2026/10/18
+ */
+public class BitmapPool {
+
+    public static final long DEFAULT_MAX_BYTES = 48L * 1024 * 1024;
+
+    private final Map<Key, ArrayDeque<Bitmap>> pool = new LinkedHashMap<>(8, 0.75f, true);// accessOrder，便于LRU淘汰
+    private long maxBytes;
+    private long currentBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public BitmapPool() {
+        this(DEFAULT_MAX_BYTES);
+    }
+
+    public BitmapPool(long maxBytes) {
+        this.maxBytes = maxBytes;
+    }
+
+    /**
+     * 获取 Bitmap，池中没有时创建
+     *
+     * @param width  宽度
+     * @param height 高度
+     * @param config config
+     * @return Bitmap
+     */
+    public Bitmap obtain(int width, int height, Bitmap.Config config) {
+        Bitmap bitmap = null;
+        synchronized (this) {
+            ArrayDeque<Bitmap> bitmaps = pool.get(new Key(width, height, config));
+            if (bitmaps != null) {
+                bitmap = bitmaps.pollLast();
+                if (bitmap != null) {
+                    currentBytes -= getBytes(bitmap);
+                }
+            }
+        }
+        if (bitmap != null) {
+            hitCount.incrementAndGet();
+            return bitmap;
+        }
+        missCount.incrementAndGet();
+        return Bitmap.createBitmap(width, height, config);
+    }
+
+    /**
+     * 归还 Bitmap
+     *
+     * @param bitmap bitmap
+     */
+    public void release(Bitmap bitmap) {
+        if (bitmap == null || bitmap.isRecycled()) {
+            return;
+        }
+        long bytes = getBytes(bitmap);
+        if (!bitmap.isMutable() || bytes > maxBytes) {
+            bitmap.recycle();
+            return;
+        }
+        synchronized (this) {
+            Key key = new Key(bitmap.getWidth(), bitmap.getHeight(), bitmap.getConfig());
+            ArrayDeque<Bitmap> bitmaps = pool.get(key);
+            if (bitmaps == null) {
+                bitmaps = new ArrayDeque<>();
+                pool.put(key, bitmaps);
+            }
+            bitmaps.offerLast(bitmap);
+            currentBytes += bytes;
+            trimToSize(maxBytes);
+        }
+    }
+
+    /**
+     * 设置 最大字节数
+     *
+     * @param maxBytes maxBytes
+     */
+    public synchronized void setMaxBytes(long maxBytes) {
+        this.maxBytes = maxBytes;
+        trimToSize(maxBytes);
+    }
+
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        trimToSize(0);
+    }
+
+    /**
+     * 按LRU淘汰，直到总字节数不超过 size
+     *
+     * @param size size
+     */
+    private void trimToSize(long size) {
+        Iterator<ArrayDeque<Bitmap>> iterator = pool.values().iterator();
+        while (currentBytes > size && iterator.hasNext()) {
+            ArrayDeque<Bitmap> bitmaps = iterator.next();
+            while (currentBytes > size && !bitmaps.isEmpty()) {
+                Bitmap bitmap = bitmaps.pollFirst();
+                currentBytes -= getBytes(bitmap);
+                bitmap.recycle();
+                evictionCount.incrementAndGet();
+            }
+            if (bitmaps.isEmpty()) {
+                iterator.remove();
+            }
+        }
+    }
+
+    private static long getBytes(Bitmap bitmap) {
+        return bitmap.getAllocationByteCount();
+    }
+
+    public synchronized long getMaxBytes() {
+        return maxBytes;
+    }
+
+    /**
+     * 获取 池中Bitmap的总字节数
+     *
+     * @return long
+     */
+    public synchronized long getCurrentBytes() {
+        return currentBytes;
+    }
+
+    /**
+     * 获取 命中次数
+     *
+     * @return long
+     */
+    public long getHitCount() {
+        return hitCount.get();
+    }
+
+    /**
+     * 获取 未命中次数(即新建Bitmap的次数)
+     *
+     * @return long
+     */
+    public long getMissCount() {
+        return missCount.get();
+    }
+
+    /**
+     * 获取 淘汰次数
+     *
+     * @return long
+     */
+    public long getEvictionCount() {
+        return evictionCount.get();
+    }
+
+    /**
+     * 分组Key
+     */
+    private static class Key {
+
+        private final int width;
+        private final int height;
+        private final Bitmap.Config config;
+
+        private Key(int width, int height, Bitmap.Config config) {
+            this.width = width;
+            this.height = height;
+            this.config = config;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return width == key.width && height == key.height && config == key.config;
+        }
+
+        @Override
+        public int hashCode() {
+            int result = width;
+            result = 31 * result + height;
+            result = 31 * result + (config != null ? config.hashCode() : 0);
+            return result;
+        }
+
+    }
+
+}
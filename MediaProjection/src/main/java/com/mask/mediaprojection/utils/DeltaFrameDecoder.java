@@ -0,0 +1,182 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.ScreenFrame;
+
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 差量帧解码(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 解码 {@link DeltaFrameEncoder} 的输出，将变化的区域写入内部画布，得到完整帧；
+ * 非线程安全，同一实例只能在一个线程中使用
+ * Created by agent on 2026/10/18
+ */
+public class DeltaFrameDecoder {
+
+    private ByteBuffer canvas;// 紧凑排列的当前帧
+    private int pixelFormat;
+    private int width;
+    private int height;
+    private int pixelStride;
+    private long timestamp;
+    private boolean hasKeyFrame;
+
+    private int lastRectCount;
+    private boolean isLastKeyFrame;
+
+    /**
+     * 解码
+     *
+     * @param packet 编码数据，从当前 position 开始读取，读取后 position 后移
+     * @return 当前完整帧(紧凑排列)，下一次解码时会被修改
+     * @throws IllegalArgumentException 数据格式错误(不修改当前帧)
+     * @throws IllegalStateException    未收到关键帧，或差量帧与当前画布尺寸不一致
+     */
+    public ScreenFrame decode(ByteBuffer packet) {
+        ByteBuffer src = packet.duplicate().order(ByteOrder.BIG_ENDIAN);
+        try {
+            decodeInternal(src);
+        } catch (BufferUnderflowException e) {
+            throw new IllegalArgumentException("truncated packet", e);
+        }
+        packet.position(src.position());
+        return getFrame();
+    }
+
+    private void decodeInternal(ByteBuffer src) {
+        int magic = src.getInt();
+        if (magic != DeltaFrameEncoder.MAGIC) {
+            throw new IllegalArgumentException("bad magic: 0x" + Integer.toHexString(magic));
+        }
+        byte type = src.get();
+        int pixelStride = src.get();
+        int pixelFormat = src.getInt();
+        int width = src.getInt();
+        int height = src.getInt();
+        long timestamp = src.getLong();
+        int rectCount = src.getInt();
+        if (pixelStride <= 0 || width <= 0 || height <= 0 || rectCount < 0
+                || width > DeltaFrameEncoder.MAX_DIMENSION || height > DeltaFrameEncoder.MAX_DIMENSION
+                || (long) width * height * pixelStride > Integer.MAX_VALUE) {
+            throw new IllegalArgumentException("bad header: " + width + "x" + height
+                    + " pixelStride=" + pixelStride + " rectCount=" + rectCount);
+        }
+        if (type != DeltaFrameEncoder.TYPE_KEY_FRAME && type != DeltaFrameEncoder.TYPE_DELTA_FRAME) {
+            throw new IllegalArgumentException("unknown frame type: " + type);
+        }
+        if (type == DeltaFrameEncoder.TYPE_DELTA_FRAME) {
+            if (!hasKeyFrame) {
+                throw new IllegalStateException("delta frame before key frame");
+            }
+            if (width != this.width || height != this.height || pixelStride != this.pixelStride) {
+                throw new IllegalStateException("delta frame " + width + "x" + height
+                        + " does not match canvas " + this.width + "x" + this.height);
+            }
+        }
+        // 先校验所有区域，数据错误时不修改画布
+        int rectStart = src.position();
+        checkRects(src, width, height, pixelStride, rectCount);
+        src.position(rectStart);
+
+        if (type == DeltaFrameEncoder.TYPE_KEY_FRAME) {
+            if (canvas == null || width != this.width || height != this.height || pixelStride != this.pixelStride) {
+                canvas = ByteBuffer.allocateDirect(PixelUtils.getFrameBytes(width, height, pixelStride));
+            }
+            this.width = width;
+            this.height = height;
+            this.pixelStride = pixelStride;
+            hasKeyFrame = true;
+        }
+        this.pixelFormat = pixelFormat;
+        this.timestamp = timestamp;
+
+        int rowBytes = PixelUtils.getRowBytes(width, pixelStride);
+        for (int i = 0; i < rectCount; i++) {
+            int left = src.getShort() & 0xFFFF;
+            int top = src.getShort() & 0xFFFF;
+            int rectWidth = src.getShort() & 0xFFFF;
+            int rectHeight = src.getShort() & 0xFFFF;
+            int rectRowBytes = rectWidth * pixelStride;
+            int srcLimit = src.limit();
+            for (int y = 0; y < rectHeight; y++) {
+                canvas.position((top + y) * rowBytes + left * pixelStride);
+                src.limit(src.position() + rectRowBytes);
+                canvas.put(src);
+                src.limit(srcLimit);
+            }
+        }
+        canvas.clear();
+        lastRectCount = rectCount;
+        isLastKeyFrame = type == DeltaFrameEncoder.TYPE_KEY_FRAME;
+    }
+
+    /**
+     * 校验 所有区域在帧内且数据完整(读取后 position 位于数据末尾)
+     *
+     * @throws IllegalArgumentException 区域超出帧
+     * @throws BufferUnderflowException 数据不完整
+     */
+    private static void checkRects(ByteBuffer src, int width, int height, int pixelStride, int rectCount) {
+        if ((long) rectCount * DeltaFrameEncoder.RECT_HEADER_BYTES > src.remaining()) {
+            throw new BufferUnderflowException();
+        }
+        for (int i = 0; i < rectCount; i++) {
+            int left = src.getShort() & 0xFFFF;
+            int top = src.getShort() & 0xFFFF;
+            int rectWidth = src.getShort() & 0xFFFF;
+            int rectHeight = src.getShort() & 0xFFFF;
+            if (left + rectWidth > width || top + rectHeight > height) {
+                throw new IllegalArgumentException("rect [" + left + "," + top + " " + rectWidth + "x" + rectHeight
+                        + "] out of frame " + width + "x" + height);
+            }
+            // 已校验在帧内，不会溢出
+            int rectBytes = rectWidth * rectHeight * pixelStride;
+            if (rectBytes > src.remaining()) {
+                throw new BufferUnderflowException();
+            }
+            src.position(src.position() + rectBytes);
+        }
+    }
+
+    /**
+     * 获取 当前完整帧(未收到关键帧时返回null)
+     *
+     * @return ScreenFrame
+     */
+    public ScreenFrame getFrame() {
+        if (!hasKeyFrame) {
+            return null;
+        }
+        return new ScreenFrame(canvas.duplicate(), pixelFormat, width, height, pixelStride,
+                PixelUtils.getRowBytes(width, pixelStride), timestamp);
+    }
+
+    /**
+     * 获取 最近一次解码的区域数
+     *
+     * @return int
+     */
+    public int getLastRectCount() {
+        return lastRectCount;
+    }
+
+    /**
+     * 最近一次解码是否关键帧
+     *
+     * @return boolean
+     */
+    public boolean isLastKeyFrame() {
+        return isLastKeyFrame;
+    }
+
+    /**
+     * 重置(需要重新接收关键帧)
+     */
+    public void reset() {
+        canvas = null;
+        hasKeyFrame = false;
+    }
+
+}
@@ -0,0 +1,167 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.List;
+
+/**
+ * 差量帧编码(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 只输出与前一帧相比有变化的分块，每隔 keyFrameInterval 帧输出一次整帧(关键帧)；
+ * 输出格式(大端)：
+ * <pre>
+ * int   magic(0x44465231)
+ * byte  type(TYPE_KEY_FRAME / TYPE_DELTA_FRAME)
+ * byte  pixelStride
+ * int   pixelFormat
+ * int   width
+ * int   height
+ * long  timestamp
+ * int   rectCount
+ * rectCount 个区域：ushort left, ushort top, ushort width, ushort height, 紧凑排列的像素数据
+ * </pre>
+ * 变化检测使用 {@link FrameDiffDetector}，采样间隔大于1时可能漏检，漏检的区域在下一个关键帧恢复；
+ * 非线程安全，同一实例只能在一个线程中使用
+ * Created by agent on 2026/10/18
+ */
+public class DeltaFrameEncoder {
+
+    public static final int MAGIC = 0x44465231;// "DFR1"
+    public static final byte TYPE_KEY_FRAME = 0;
+    public static final byte TYPE_DELTA_FRAME = 1;
+    public static final int HEADER_BYTES = 30;
+    public static final int RECT_HEADER_BYTES = 8;
+    public static final int MAX_DIMENSION = 0xFFFF;
+
+    public static final int DEFAULT_TILE_SIZE = 32;
+    public static final int DEFAULT_KEY_FRAME_INTERVAL = 60;
+
+    private final FrameDiffDetector diffDetector;
+    private final int keyFrameInterval;
+    private int framesSinceKeyFrame;
+    private boolean isKeyFrameRequested = true;
+
+    public DeltaFrameEncoder() {
+        this(DEFAULT_TILE_SIZE, 1, DEFAULT_KEY_FRAME_INTERVAL);
+    }
+
+    /**
+     * @param tileSize         分块边长(像素)
+     * @param sampleStride     变化检测的采样间隔(像素)，1表示逐像素检测
+     * @param keyFrameInterval 关键帧间隔(帧数)
+     */
+    public DeltaFrameEncoder(int tileSize, int sampleStride, int keyFrameInterval) {
+        if (keyFrameInterval <= 0) {
+            throw new IllegalArgumentException("keyFrameInterval must be > 0: " + keyFrameInterval);
+        }
+        this.diffDetector = new FrameDiffDetector(tileSize, sampleStride);
+        this.keyFrameInterval = keyFrameInterval;
+    }
+
+    /**
+     * 获取 编码后的最大字节数(用于分配输出Buffer)
+     *
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @return int
+     */
+    public int getMaxEncodedBytes(int width, int height, int pixelStride) {
+        int tileSize = diffDetector.getTileSize();
+        int tileCount = ((width + tileSize - 1) / tileSize) * ((height + tileSize - 1) / tileSize);
+        return HEADER_BYTES + tileCount * RECT_HEADER_BYTES + PixelUtils.getFrameBytes(width, height, pixelStride);
+    }
+
+    /**
+     * 请求 下一帧输出关键帧(如新的接收端连接时)
+     */
+    public void requestKeyFrame() {
+        isKeyFrameRequested = true;
+    }
+
+    /**
+     * 编码
+     *
+     * @param frame 帧(可包含行填充，遮挡区域输出为不透明黑色)
+     * @param out   输出Buffer，从当前 position 开始写入，剩余空间不小于 {@link #getMaxEncodedBytes(int, int, int)}
+     * @return 写入的字节数，与前一帧相同时返回0(不写入)
+     */
+    public int encode(ScreenFrame frame, ByteBuffer out) {
+        int width = frame.getWidth();
+        int height = frame.getHeight();
+        int pixelStride = frame.getPixelStride();
+        if (width > MAX_DIMENSION || height > MAX_DIMENSION || pixelStride > Byte.MAX_VALUE) {
+            throw new IllegalArgumentException("unsupported frame: " + width + "x" + height + " pixelStride=" + pixelStride);
+        }
+        int maxBytes = getMaxEncodedBytes(width, height, pixelStride);
+        if (out.remaining() < maxBytes) {
+            throw new IllegalArgumentException("out too small: " + out.remaining() + " < " + maxBytes);
+        }
+
+        // 关键帧也需要检测，以更新前一帧的哈希
+        FrameDiff diff = diffDetector.detect(frame);
+        boolean isKeyFrame = isKeyFrameRequested || diff.isFullFrame() || framesSinceKeyFrame + 1 >= keyFrameInterval;
+        if (!isKeyFrame && !diff.isChanged()) {
+            return 0;
+        }
+
+        ByteBuffer dst = out.duplicate().order(ByteOrder.BIG_ENDIAN);
+        int start = dst.position();
+        dst.putInt(MAGIC);
+        dst.put(isKeyFrame ? TYPE_KEY_FRAME : TYPE_DELTA_FRAME);
+        dst.put((byte) pixelStride);
+        dst.putInt(frame.getPixelFormat());
+        dst.putInt(width);
+        dst.putInt(height);
+        dst.putLong(frame.getTimestamp());
+
+        if (isKeyFrame) {
+            dst.putInt(1);
+            putRect(frame, 0, 0, width, height, dst);
+            framesSinceKeyFrame = 0;
+            isKeyFrameRequested = false;
+        } else {
+            List<TileRect> rects = diff.getDirtyRects();
+            dst.putInt(rects.size());
+            for (TileRect rect : rects) {
+                putRect(frame, rect.getLeft(), rect.getTop(), rect.getWidth(), rect.getHeight(), dst);
+            }
+            framesSinceKeyFrame++;
+        }
+
+        out.position(dst.position());
+        return dst.position() - start;
+    }
+
+    private static void putRect(ScreenFrame frame, int left, int top, int width, int height, ByteBuffer dst) {
+        dst.putShort((short) left);
+        dst.putShort((short) top);
+        dst.putShort((short) width);
+        dst.putShort((short) height);
+        if (frame.hasMasks()) {
+            // 与 ScreenFrame.copyTo 一致，遮挡区域写入不透明黑色，不能输出被遮挡的像素
+            frame.crop(left, top, width, height).copyTo(dst);
+        } else {
+            PixelUtils.copyRegion(frame.getBuffer(), frame.getWidth(), frame.getHeight(), frame.getPixelStride(),
+                    frame.getRowStride(), left, top, width, height, dst);
+        }
+    }
+
+    /**
+     * 重置(下一帧输出关键帧)
+     */
+    public void reset() {
+        diffDetector.reset();
+        framesSinceKeyFrame = 0;
+        isKeyFrameRequested = true;
+    }
+
+    public int getKeyFrameInterval() {
+        return keyFrameInterval;
+    }
+
+}
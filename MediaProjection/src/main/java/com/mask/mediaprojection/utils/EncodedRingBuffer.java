@@ -0,0 +1,297 @@
+package com.mask.mediaprojection.utils;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+/**
+ * 编码数据环形缓冲区(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 数据保存在固定大小的堆外内存中，只保留最近一段时长的编码帧；
+ * 淘汰时按关键帧对齐(整个GOP一起淘汰)，保证缓冲区中第一帧始终是关键帧，可直接写入文件；
+ * 保存时通过 {@link #getSamples()} 和 {@link #read(Sample, ByteBuffer)} 逐帧读取，不复制整个缓冲区
+ * Created by agent on 2026/10/18
+ */
+public class EncodedRingBuffer {
+
+    private final ByteBuffer buffer;// 堆外内存
+    private final long maxDurationUs;
+    private final ArrayDeque<Sample> samples = new ArrayDeque<>();
+    private int writeOffset;// 下一帧写入位置
+    private boolean isWaitingKeyFrame = true;// 丢帧后需要等待下一个关键帧
+    private long nextSequence;// 下一帧的序号
+
+    private long droppedCount;// 因单帧过大或等待关键帧丢弃的帧数
+    private long evictedCount;// 被淘汰的帧数
+
+    /**
+     * @param maxBytes      内存上限(字节)
+     * @param maxDurationUs 保留时长(微秒)
+     */
+    public EncodedRingBuffer(int maxBytes, long maxDurationUs) {
+        if (maxBytes <= 0) {
+            throw new IllegalArgumentException("maxBytes must be > 0: " + maxBytes);
+        }
+        if (maxDurationUs <= 0) {
+            throw new IllegalArgumentException("maxDurationUs must be > 0: " + maxDurationUs);
+        }
+        this.buffer = ByteBuffer.allocateDirect(maxBytes);
+        this.maxDurationUs = maxDurationUs;
+    }
+
+    /**
+     * 添加一帧
+     *
+     * @param data               编码数据(从 position 到 limit)，不会修改其 position
+     * @param presentationTimeUs 时间戳(微秒)，需递增
+     * @param flags              标记(原样保存，写入文件时使用)
+     * @param isKeyFrame         是否关键帧
+     * @return 是否已保存
+     */
+    public synchronized boolean add(ByteBuffer data, long presentationTimeUs, int flags, boolean isKeyFrame) {
+        int size = data.remaining();
+        if (isWaitingKeyFrame && !isKeyFrame) {
+            droppedCount++;
+            return false;
+        }
+        if (size > buffer.capacity()) {
+            // 单帧超过上限，丢弃到下一个关键帧
+            droppedCount++;
+            isWaitingKeyFrame = true;
+            return false;
+        }
+
+        int offset = findSpace(size);
+        while (offset < 0) {
+            if (!evictFirstGop(isKeyFrame)) {
+                // 当前GOP已占满缓冲区，只能丢弃当前帧并等待下一个关键帧
+                droppedCount++;
+                isWaitingKeyFrame = true;
+                return false;
+            }
+            offset = findSpace(size);
+        }
+
+        ByteBuffer target = buffer.duplicate();
+        target.position(offset);
+        target.put(data.duplicate());
+        samples.addLast(new Sample(nextSequence++, offset, size, presentationTimeUs, flags, isKeyFrame));
+        writeOffset = offset + size;
+        isWaitingKeyFrame = false;
+
+        trimToDuration(presentationTimeUs);
+        return true;
+    }
+
+    /**
+     * 查找 可连续写入 size 字节的位置
+     *
+     * @param size size
+     * @return 写入位置，空间不足时返回-1
+     */
+    private int findSpace(int size) {
+        int capacity = buffer.capacity();
+        if (samples.isEmpty()) {
+            return size <= capacity ? 0 : -1;
+        }
+        int headOffset = samples.peekFirst().offset;
+        if (writeOffset > headOffset) {
+            // 未回绕：尾部剩余空间，不足时回到开头
+            if (capacity - writeOffset >= size) {
+                return writeOffset;
+            }
+            return headOffset >= size ? 0 : -1;
+        }
+        // 已回绕：写入位置到最旧帧之间的空间
+        return headOffset - writeOffset >= size ? writeOffset : -1;
+    }
+
+    /**
+     * 淘汰 第一个GOP(从第一个关键帧到下一个关键帧之前)
+     *
+     * @param isKeyFrameIncoming 待写入的帧是否关键帧(是则允许淘汰最后一个GOP)
+     * @return 是否淘汰成功
+     */
+    private boolean evictFirstGop(boolean isKeyFrameIncoming) {
+        int gopSize = getFirstGopSampleCount();
+        if (gopSize == samples.size() && !isKeyFrameIncoming) {
+            // 只剩当前GOP，淘汰后当前帧将无法解码
+            return false;
+        }
+        for (int i = 0; i < gopSize; i++) {
+            samples.pollFirst();
+            evictedCount++;
+        }
+        if (samples.isEmpty()) {
+            writeOffset = 0;
+        }
+        return true;
+    }
+
+    /**
+     * 获取 第一个GOP的帧数
+     *
+     * @return int
+     */
+    private int getFirstGopSampleCount() {
+        int count = 0;
+        Iterator<Sample> iterator = samples.iterator();
+        while (iterator.hasNext()) {
+            Sample sample = iterator.next();
+            if (count > 0 && sample.isKeyFrame) {
+                break;
+            }
+            count++;
+        }
+        return count;
+    }
+
+    /**
+     * 按保留时长淘汰：淘汰后仍能覆盖保留时长时，才淘汰第一个GOP
+     *
+     * @param latestPtsUs 最新帧时间戳
+     */
+    private void trimToDuration(long latestPtsUs) {
+        while (true) {
+            Sample nextKeyFrame = findSecondKeyFrame();
+            if (nextKeyFrame == null || latestPtsUs - nextKeyFrame.presentationTimeUs < maxDurationUs) {
+                return;
+            }
+            evictFirstGop(true);
+        }
+    }
+
+    private Sample findSecondKeyFrame() {
+        boolean isFirst = true;
+        for (Sample sample : samples) {
+            if (!isFirst && sample.isKeyFrame) {
+                return sample;
+            }
+            isFirst = false;
+        }
+        return null;
+    }
+
+    /**
+     * 获取 当前的帧列表(只复制帧信息，第一帧为关键帧)，之后可在其他线程通过 {@link #read(Sample, ByteBuffer)} 逐帧读取数据
+     *
+     * @return 帧列表，缓冲区为空时为空列表
+     */
+    public synchronized List<Sample> getSamples() {
+        return new ArrayList<>(samples);
+    }
+
+    /**
+     * 读取 一帧数据(继续添加时旧帧会被淘汰，读取较早获取的帧列表时可能已不存在)
+     *
+     * @param sample 帧(来自 {@link #getSamples()})
+     * @param dst    从 position 开始写入，剩余空间不小于 sample.getSize()
+     * @return 是否读取成功，已被淘汰时返回false(该帧所在的整个GOP都已淘汰)
+     */
+    public synchronized boolean read(Sample sample, ByteBuffer dst) {
+        if (dst.remaining() < sample.size) {
+            throw new IllegalArgumentException("dst remaining " + dst.remaining() + " < sample size " + sample.size);
+        }
+        if (samples.isEmpty() || sample.sequence < samples.peekFirst().sequence
+                || sample.sequence > samples.peekLast().sequence) {
+            return false;
+        }
+        ByteBuffer source = buffer.duplicate();
+        source.limit(sample.offset + sample.size);
+        source.position(sample.offset);
+        dst.put(source);
+        return true;
+    }
+
+    /**
+     * 清空
+     */
+    public synchronized void clear() {
+        samples.clear();
+        writeOffset = 0;
+        isWaitingKeyFrame = true;
+    }
+
+    public synchronized int getSampleCount() {
+        return samples.size();
+    }
+
+    /**
+     * 获取 缓冲的时长(微秒)
+     *
+     * @return long
+     */
+    public synchronized long getDurationUs() {
+        if (samples.isEmpty()) {
+            return 0;
+        }
+        return samples.peekLast().presentationTimeUs - samples.peekFirst().presentationTimeUs;
+    }
+
+    /**
+     * 获取 已使用的字节数
+     *
+     * @return long
+     */
+    public synchronized long getUsedBytes() {
+        long bytes = 0;
+        for (Sample sample : samples) {
+            bytes += sample.size;
+        }
+        return bytes;
+    }
+
+    public int getMaxBytes() {
+        return buffer.capacity();
+    }
+
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+    public synchronized long getEvictedCount() {
+        return evictedCount;
+    }
+
+    /**
+     * 编码帧
+     */
+    public static class Sample {
+
+        private final long sequence;// 序号，用于判断是否已被淘汰
+        private final int offset;
+        private final int size;
+        private final long presentationTimeUs;
+        private final int flags;
+        private final boolean isKeyFrame;
+
+        private Sample(long sequence, int offset, int size, long presentationTimeUs, int flags, boolean isKeyFrame) {
+            this.sequence = sequence;
+            this.offset = offset;
+            this.size = size;
+            this.presentationTimeUs = presentationTimeUs;
+            this.flags = flags;
+            this.isKeyFrame = isKeyFrame;
+        }
+
+        public int getSize() {
+            return size;
+        }
+
+        public long getPresentationTimeUs() {
+            return presentationTimeUs;
+        }
+
+        public int getFlags() {
+            return flags;
+        }
+
+        public boolean isKeyFrame() {
+            return isKeyFrame;
+        }
+
+    }
+
+}
@@ -34,7 +34,7 @@ public class FileUtils {
      * @param prefix 文件名前缀(会自动拼接 _ )
      * @return String
      */
-    public static String getDateName(String prefix) {
+    public static synchronized String getDateName(String prefix) {
         date.setTime(System.currentTimeMillis());
         String dateStr = dateFormat.format(date);
         if (!TextUtils.isEmpty(prefix)) {
@@ -65,4 +65,15 @@ public class FileUtils {
         return new File(getCacheDir(context), dir);
     }
 
+    /**
+     * 获取Cache目录 Picture
+     *
+     * @param context context
+     * @return File
+     */
+    public static File getCachePictureDir(Context context) {
+        String dir = Environment.DIRECTORY_PICTURES;
+        return new File(getCacheDir(context), dir);
+    }
+
 }
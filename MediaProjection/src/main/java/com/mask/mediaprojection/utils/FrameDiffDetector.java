@@ -0,0 +1,283 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 帧差异检测(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 将帧划分为 tileSize * tileSize 的分块，每个分块按采样间隔取像素计算哈希，与前一帧比较得到有变化的分块；
+ * 采样间隔大于1时，只落在未采样像素上的变化无法检测到；
+ * 非线程安全，同一实例只能在一个线程中使用
+ * Created by agent on 2026/10/18
+ */
+public class FrameDiffDetector {
+
+    public static final int DEFAULT_TILE_SIZE = 64;
+    public static final int DEFAULT_SAMPLE_STRIDE = 4;
+
+    private static final long HASH_SEED = 0xcbf29ce484222325L;
+    private static final long HASH_PRIME = 0x100000001b3L;
+    private static final int MASKED_PIXEL = 0;// 遮挡区域内的像素按固定值计算，区域内的变化不视为变化
+
+    private final int tileSize;
+    private final int sampleStride;
+
+    private int width;
+    private int height;
+    private int columns;
+    private int rows;
+    private long[] previousHashes;
+    private long[] currentHashes;
+
+    public FrameDiffDetector() {
+        this(DEFAULT_TILE_SIZE, DEFAULT_SAMPLE_STRIDE);
+    }
+
+    /**
+     * @param tileSize     分块边长(像素)
+     * @param sampleStride 采样间隔(像素，水平和垂直方向)，1表示每个像素都参与计算，不能大于 tileSize
+     */
+    public FrameDiffDetector(int tileSize, int sampleStride) {
+        if (tileSize <= 0) {
+            throw new IllegalArgumentException("tileSize must be > 0: " + tileSize);
+        }
+        if (sampleStride <= 0 || sampleStride > tileSize) {
+            throw new IllegalArgumentException("sampleStride must be in [1, " + tileSize + "]: " + sampleStride);
+        }
+        this.tileSize = tileSize;
+        this.sampleStride = sampleStride;
+    }
+
+    /**
+     * 检测 与前一帧的差异(按遮挡后的内容比较，遮挡区域内的变化不视为变化)
+     *
+     * @param frame 帧
+     * @return FrameDiff
+     */
+    public FrameDiff detect(ScreenFrame frame) {
+        return detect(frame.getBuffer(), frame.getWidth(), frame.getHeight(), frame.getPixelStride(), frame.getRowStride(),
+                frame.getMasks());
+    }
+
+    /**
+     * 检测 与前一帧的差异(只读取数据，不修改 position)
+     *
+     * @param buffer      数据(从 position 开始)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数(包含行填充)
+     * @return FrameDiff
+     */
+    public FrameDiff detect(ByteBuffer buffer, int width, int height, int pixelStride, int rowStride) {
+        return detect(buffer, width, height, pixelStride, rowStride, null);
+    }
+
+    private FrameDiff detect(ByteBuffer buffer, int width, int height, int pixelStride, int rowStride, TileRect[] masks) {
+        if (width <= 0 || height <= 0 || pixelStride <= 0 || rowStride < width * pixelStride) {
+            throw new IllegalArgumentException("invalid frame: " + width + "x" + height
+                    + " pixelStride=" + pixelStride + " rowStride=" + rowStride);
+        }
+        int lastOffset = buffer.position() + (height - 1) * rowStride + width * pixelStride;
+        if (lastOffset > buffer.limit()) {
+            throw new IllegalArgumentException("buffer too small: " + buffer.remaining() + " < " + (lastOffset - buffer.position()));
+        }
+
+        boolean isFullFrame = width != this.width || height != this.height || previousHashes == null;
+        if (isFullFrame) {
+            resize(width, height);
+        }
+        computeHashes(buffer, pixelStride, rowStride, masks, currentHashes);
+
+        int dirtyTileCount = 0;
+        List<TileRect> dirtyRects = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            int runStart = -1;
+            for (int column = 0; column <= columns; column++) {
+                boolean isDirty = column < columns
+                        && (isFullFrame || currentHashes[row * columns + column] != previousHashes[row * columns + column]);
+                if (isDirty) {
+                    dirtyTileCount++;
+                    if (runStart < 0) {
+                        runStart = column;
+                    }
+                } else if (runStart >= 0) {
+                    // 合并同一行中相邻的分块
+                    dirtyRects.add(createRect(tileSize, width, height, runStart, column, row));
+                    runStart = -1;
+                }
+            }
+        }
+
+        long[] temp = previousHashes;
+        previousHashes = currentHashes;
+        currentHashes = temp;
+        return new FrameDiff(tileSize, columns * rows, dirtyTileCount, isFullFrame, dirtyRects);
+    }
+
+    /**
+     * 合并 连续两帧的差异(较早的帧未分发时，后一帧需要包含其变化)
+     *
+     * @param older  较早的帧与其前一帧的差异
+     * @param newer  后一帧与较早的帧的差异
+     * @param width  后一帧的宽度
+     * @param height 后一帧的高度
+     * @return 后一帧与较早的帧的前一帧的差异
+     */
+    public static FrameDiff merge(FrameDiff older, FrameDiff newer, int width, int height) {
+        int tileSize = newer.getTileSize();
+        int columns = (width + tileSize - 1) / tileSize;
+        int rows = (height + tileSize - 1) / tileSize;
+        boolean isFullFrame = older.isFullFrame() || newer.isFullFrame()
+                || older.getTileSize() != tileSize || older.getTileCount() != columns * rows;
+        boolean[] dirtyTiles = new boolean[columns * rows];
+        if (isFullFrame) {
+            Arrays.fill(dirtyTiles, true);
+        } else {
+            markTiles(older.getDirtyRects(), tileSize, columns, dirtyTiles);
+            markTiles(newer.getDirtyRects(), tileSize, columns, dirtyTiles);
+        }
+
+        int dirtyTileCount = 0;
+        List<TileRect> dirtyRects = new ArrayList<>();
+        for (int row = 0; row < rows; row++) {
+            int runStart = -1;
+            for (int column = 0; column <= columns; column++) {
+                boolean isDirty = column < columns && dirtyTiles[row * columns + column];
+                if (isDirty) {
+                    dirtyTileCount++;
+                    if (runStart < 0) {
+                        runStart = column;
+                    }
+                } else if (runStart >= 0) {
+                    dirtyRects.add(createRect(tileSize, width, height, runStart, column, row));
+                    runStart = -1;
+                }
+            }
+        }
+        return new FrameDiff(tileSize, columns * rows, dirtyTileCount, isFullFrame, dirtyRects);
+    }
+
+    private static void markTiles(List<TileRect> rects, int tileSize, int columns, boolean[] dirtyTiles) {
+        for (TileRect rect : rects) {
+            int row = rect.getTop() / tileSize;
+            int endColumn = (rect.getRight() + tileSize - 1) / tileSize;
+            for (int column = rect.getLeft() / tileSize; column < endColumn; column++) {
+                dirtyTiles[row * columns + column] = true;
+            }
+        }
+    }
+
+    /**
+     * 重置(下一帧视为整帧变化)
+     */
+    public void reset() {
+        previousHashes = null;
+    }
+
+    public int getTileSize() {
+        return tileSize;
+    }
+
+    public int getSampleStride() {
+        return sampleStride;
+    }
+
+    private void resize(int width, int height) {
+        this.width = width;
+        this.height = height;
+        columns = (width + tileSize - 1) / tileSize;
+        rows = (height + tileSize - 1) / tileSize;
+        previousHashes = new long[columns * rows];
+        currentHashes = new long[columns * rows];
+    }
+
+    /**
+     * 计算 每个分块的哈希(按行顺序读取，每个分块从左上角开始采样)
+     *
+     * @param buffer      buffer
+     * @param pixelStride pixelStride
+     * @param rowStride   rowStride
+     * @param masks       遮挡区域，可为null
+     * @param hashes      输出
+     */
+    private void computeHashes(ByteBuffer buffer, int pixelStride, int rowStride, TileRect[] masks, long[] hashes) {
+        Arrays.fill(hashes, HASH_SEED);
+        int base = buffer.position();
+        for (int row = 0; row < rows; row++) {
+            int tileTop = row * tileSize;
+            int tileBottom = Math.min(tileTop + tileSize, height);
+            for (int y = tileTop; y < tileBottom; y += sampleStride) {
+                int rowOffset = base + y * rowStride;
+                boolean hasMaskInRow = hasMaskInRow(masks, y);
+                for (int column = 0; column < columns; column++) {
+                    int tileLeft = column * tileSize;
+                    int tileRight = Math.min(tileLeft + tileSize, width);
+                    long hash = hashes[row * columns + column];
+                    for (int x = tileLeft; x < tileRight; x += sampleStride) {
+                        int pixel = hasMaskInRow && isMasked(masks, x, y)
+                                ? MASKED_PIXEL : readPixel(buffer, rowOffset + x * pixelStride, pixelStride);
+                        hash = (hash ^ pixel) * HASH_PRIME;
+                    }
+                    hashes[row * columns + column] = hash;
+                }
+            }
+        }
+    }
+
+    private static boolean hasMaskInRow(TileRect[] masks, int y) {
+        if (masks == null) {
+            return false;
+        }
+        for (TileRect mask : masks) {
+            if (y >= mask.getTop() && y < mask.getBottom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static boolean isMasked(TileRect[] masks, int x, int y) {
+        for (TileRect mask : masks) {
+            if (mask.getLeft() > x) {
+                // 按 left 升序，之后的区域都在右侧
+                return false;
+            }
+            if (x < mask.getRight() && y >= mask.getTop() && y < mask.getBottom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private static int readPixel(ByteBuffer buffer, int offset, int pixelStride) {
+        switch (pixelStride) {
+            case 4:
+                return buffer.getInt(offset);
+            case 2:
+                return buffer.getShort(offset);
+            default:
+                int value = 0;
+                for (int i = 0; i < pixelStride; i++) {
+                    value = (value << 8) | (buffer.get(offset + i) & 0xFF);
+                }
+                return value;
+        }
+    }
+
+    private static TileRect createRect(int tileSize, int width, int height, int startColumn, int endColumn, int row) {
+        int left = startColumn * tileSize;
+        int top = row * tileSize;
+        int right = Math.min(endColumn * tileSize, width);
+        int bottom = Math.min(top + tileSize, height);
+        return new TileRect(left, top, right, bottom);
+    }
+
+}
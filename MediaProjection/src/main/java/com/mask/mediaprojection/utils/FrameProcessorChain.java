@@ -0,0 +1,210 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.interfaces.FrameListener;
+import com.mask.mediaprojection.interfaces.FrameProcessor;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 帧处理链(纯Java实现，不依赖Android)
+ * <p>
+ * 按添加顺序执行各阶段，全部通过后分发给所有输出；各阶段和输出共享同一份帧数据，不再各自复制/转换；
+ * 记录每个阶段的耗时，任一阶段返回false时跳过后续阶段和输出。
+ * 本身是 FrameListener：传给 startFrameStream 时在帧流线程执行，
+ * 通过 addFrameProcessorChain 注册时在采集线程执行；
+ * 阶段或输出抛出异常时处理链被停止/移除，异常通过 {@link #onError(Throwable)} 转给所有输出
+ * Created by agent on 2026/10/18
+ */
+public class FrameProcessorChain extends FrameListener {
+
+    private final List<Stage> stages = new CopyOnWriteArrayList<>();
+    private final List<FrameListener> sinks = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong frameCount = new AtomicLong();
+    private final AtomicLong deliveredCount = new AtomicLong();
+
+    /**
+     * 添加 处理阶段
+     *
+     * @param name      阶段名称(用于耗时统计)
+     * @param processor processor
+     * @return FrameProcessorChain
+     */
+    public FrameProcessorChain addStage(String name, FrameProcessor processor) {
+        if (name == null || processor == null) {
+            throw new IllegalArgumentException("name and processor must not be null");
+        }
+        stages.add(new Stage(name, processor));
+        return this;
+    }
+
+    /**
+     * 添加 输出
+     *
+     * @param sink sink
+     * @return FrameProcessorChain
+     */
+    public FrameProcessorChain addSink(FrameListener sink) {
+        if (sink == null) {
+            throw new IllegalArgumentException("sink must not be null");
+        }
+        sinks.add(sink);
+        return this;
+    }
+
+    /**
+     * 移除 输出
+     *
+     * @param sink sink
+     */
+    public void removeSink(FrameListener sink) {
+        sinks.remove(sink);
+    }
+
+    @Override
+    public void onFrame(ScreenFrame frame, FrameDiff diff) {
+        process(frame, diff);
+    }
+
+    @Override
+    public void onError(Throwable throwable) {
+        for (FrameListener sink : sinks) {
+            sink.onError(throwable);
+        }
+    }
+
+    /**
+     * 处理一帧(与 onFrame 相同，返回是否分发)
+     *
+     * @param frame frame
+     * @param diff  diff，可为null
+     * @return 是否通过所有阶段并分发给输出，任一阶段返回false时为false
+     */
+    public boolean process(ScreenFrame frame, FrameDiff diff) {
+        frameCount.incrementAndGet();
+        for (Stage stage : stages) {
+            long startNanos = System.nanoTime();
+            boolean isContinue = stage.processor.process(frame, diff);
+            stage.latency.record(System.nanoTime() - startNanos);
+            if (!isContinue) {
+                stage.stoppedCount.incrementAndGet();
+                return false;
+            }
+        }
+        for (FrameListener sink : sinks) {
+            sink.onFrame(frame, diff);
+        }
+        deliveredCount.incrementAndGet();
+        return true;
+    }
+
+    /**
+     * 获取 进入处理链的帧数
+     *
+     * @return long
+     */
+    public long getFrameCount() {
+        return frameCount.get();
+    }
+
+    /**
+     * 获取 通过所有阶段并分发给输出的帧数
+     *
+     * @return long
+     */
+    public long getDeliveredCount() {
+        return deliveredCount.get();
+    }
+
+    /**
+     * 获取 各阶段统计快照(按执行顺序)
+     *
+     * @return List
+     */
+    public List<StageSnapshot> snapshot() {
+        List<StageSnapshot> snapshots = new ArrayList<>(stages.size());
+        for (Stage stage : stages) {
+            snapshots.add(new StageSnapshot(stage.name, stage.latency.snapshot(), stage.stoppedCount.get()));
+        }
+        return snapshots;
+    }
+
+    /**
+     * 重置 统计
+     */
+    public void reset() {
+        frameCount.set(0);
+        deliveredCount.set(0);
+        for (Stage stage : stages) {
+            stage.latency.reset();
+            stage.stoppedCount.set(0);
+        }
+    }
+
+    /**
+     * 处理阶段
+     */
+    private static class Stage {
+
+        private final String name;
+        private final FrameProcessor processor;
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final AtomicLong stoppedCount = new AtomicLong();
+
+        private Stage(String name, FrameProcessor processor) {
+            this.name = name;
+            this.processor = processor;
+        }
+
+    }
+
+    /**
+     * 阶段统计快照
+     */
+    public static class StageSnapshot {
+
+        private final String name;
+        private final LatencyHistogram.Snapshot latency;
+        private final long stoppedCount;
+
+        private StageSnapshot(String name, LatencyHistogram.Snapshot latency, long stoppedCount) {
+            this.name = name;
+            this.latency = latency;
+            this.stoppedCount = stoppedCount;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * 获取 耗时(执行次数即 latency.getCount())
+         *
+         * @return LatencyHistogram.Snapshot
+         */
+        public LatencyHistogram.Snapshot getLatency() {
+            return latency;
+        }
+
+        /**
+         * 获取 在该阶段终止的帧数
+         *
+         * @return long
+         */
+        public long getStoppedCount() {
+            return stoppedCount;
+        }
+
+        @Override
+        public String toString() {
+            return name + ": stopped=" + stoppedCount + " " + latency;
+        }
+
+    }
+
+}
@@ -0,0 +1,97 @@
+package com.mask.mediaprojection.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 有界帧队列(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 队列已满时丢弃最旧的帧(drop-oldest)，并记录丢帧数；被丢弃的帧返回给调用方，便于回收Buffer
+ * Created by agent on 2026/10/18
+ *
+ * @param <T> 帧类型
+ */
+public class FrameQueue<T> {
+
+    private final ArrayDeque<T> queue;
+    private final int capacity;
+
+    private long offeredCount;
+    private long droppedCount;
+
+    public FrameQueue(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("capacity must be > 0: " + capacity);
+        }
+        this.capacity = capacity;
+        this.queue = new ArrayDeque<>(capacity);
+    }
+
+    /**
+     * 入队，队列已满时丢弃最旧的帧
+     *
+     * @param frame frame
+     * @return 被丢弃的帧，没有丢弃时返回null
+     */
+    public synchronized T offer(T frame) {
+        if (frame == null) {
+            throw new NullPointerException("frame == null");
+        }
+        offeredCount++;
+        T dropped = null;
+        if (queue.size() >= capacity) {
+            dropped = queue.pollFirst();
+            droppedCount++;
+        }
+        queue.offerLast(frame);
+        return dropped;
+    }
+
+    /**
+     * 出队
+     *
+     * @return 最旧的帧，队列为空时返回null
+     */
+    public synchronized T poll() {
+        return queue.pollFirst();
+    }
+
+    /**
+     * 清空
+     *
+     * @return 清空的帧，便于回收Buffer
+     */
+    public synchronized List<T> clear() {
+        List<T> frames = new ArrayList<>(queue);
+        queue.clear();
+        return frames;
+    }
+
+    public synchronized int size() {
+        return queue.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * 获取 入队总数
+     *
+     * @return long
+     */
+    public synchronized long getOfferedCount() {
+        return offeredCount;
+    }
+
+    /**
+     * 获取 丢帧数
+     *
+     * @return long
+     */
+    public synchronized long getDroppedCount() {
+        return droppedCount;
+    }
+
+}
@@ -0,0 +1,150 @@
+package com.mask.mediaprojection.utils;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 耗时直方图(纯Java实现，不依赖Android)
+ * <p>
+ * 按2的幂划分区间(第i个区间为 [2^(i-1), 2^i) 纳秒)，记录只有几次原子加法，无锁，可在任意线程调用；
+ * 百分位按区间上限估算，误差在2倍以内
+ * Created by agent on 2026/10/18
+ */
+public class LatencyHistogram {
+
+    private static final int BUCKET_COUNT = 40;// 最大区间约 550 秒
+
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKET_COUNT);
+    private final AtomicLong count = new AtomicLong();
+    private final AtomicLong totalNanos = new AtomicLong();
+    private final AtomicLong maxNanos = new AtomicLong();
+
+    /**
+     * 记录 一次耗时
+     *
+     * @param nanos 耗时(纳秒)，小于0时按0记录
+     */
+    public void record(long nanos) {
+        if (nanos < 0) {
+            nanos = 0;
+        }
+        int index = Math.min(BUCKET_COUNT - 1, 64 - Long.numberOfLeadingZeros(nanos));
+        buckets.incrementAndGet(index);
+        count.incrementAndGet();
+        totalNanos.addAndGet(nanos);
+        long max;
+        while (nanos > (max = maxNanos.get())) {
+            if (maxNanos.compareAndSet(max, nanos)) {
+                break;
+            }
+        }
+    }
+
+    /**
+     * 获取 快照(各计数分别读取，并发记录时可能有微小偏差)
+     *
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        long[] values = new long[BUCKET_COUNT];
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            values[i] = buckets.get(i);
+        }
+        return new Snapshot(values, count.get(), totalNanos.get(), maxNanos.get());
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (int i = 0; i < BUCKET_COUNT; i++) {
+            buckets.set(i, 0);
+        }
+        count.set(0);
+        totalNanos.set(0);
+        maxNanos.set(0);
+    }
+
+    /**
+     * 直方图快照
+     */
+    public static class Snapshot {
+
+        private final long[] buckets;
+        private final long count;
+        private final long totalNanos;
+        private final long maxNanos;
+
+        private Snapshot(long[] buckets, long count, long totalNanos, long maxNanos) {
+            this.buckets = buckets;
+            this.count = count;
+            this.totalNanos = totalNanos;
+            this.maxNanos = maxNanos;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getTotalNanos() {
+            return totalNanos;
+        }
+
+        public long getMaxNanos() {
+            return maxNanos;
+        }
+
+        public long getMeanNanos() {
+            return count > 0 ? totalNanos / count : 0;
+        }
+
+        /**
+         * 获取 百分位耗时(区间上限，不超过最大值)
+         *
+         * @param percentile 百分位 (0, 100]
+         * @return 纳秒，没有记录时返回0
+         */
+        public long getPercentileNanos(double percentile) {
+            if (percentile <= 0 || percentile > 100) {
+                throw new IllegalArgumentException("percentile must be in (0, 100]: " + percentile);
+            }
+            long total = 0;
+            for (long bucket : buckets) {
+                total += bucket;
+            }
+            if (total == 0) {
+                return 0;
+            }
+            long target = (long) Math.ceil(total * percentile / 100);
+            long seen = 0;
+            for (int i = 0; i < buckets.length; i++) {
+                seen += buckets[i];
+                if (seen >= target) {
+                    long upper = i == 0 ? 0 : (1L << i) - 1;
+                    return Math.min(upper, maxNanos);
+                }
+            }
+            return maxNanos;
+        }
+
+        /**
+         * 获取 各区间的计数(第i个区间为 [2^(i-1), 2^i) 纳秒)
+         *
+         * @return long[]
+         */
+        public long[] getBuckets() {
+            return buckets.clone();
+        }
+
+        @Override
+        public String toString() {
+            return "count=" + count
+                    + " mean=" + getMeanNanos() / 1000 + "us"
+                    + " p50=" + getPercentileNanos(50) / 1000 + "us"
+                    + " p99=" + getPercentileNanos(99) / 1000 + "us"
+                    + " max=" + maxNanos / 1000 + "us";
+        }
+
+    }
+
+}
@@ -0,0 +1,82 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.TileRect;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 遮挡区域/截图区域 坐标换算(纯Java实现，不依赖Android，可在JVM上测试)
+ * Created by agent on 2026/10/18
+ */
+public class MaskUtils {
+
+    private MaskUtils() {
+        super();
+    }
+
+    /**
+     * 屏幕坐标区域 换算为 输出坐标区域(按比例缩放，向外取整，并限制在输出范围内)
+     *
+     * @param rect         区域(屏幕坐标)
+     * @param screenWidth  屏幕宽度
+     * @param screenHeight 屏幕高度
+     * @param outputWidth  输出宽度(截图/录制尺寸)
+     * @param outputHeight 输出高度
+     * @return TileRect，区域为空或在输出范围之外时返回null
+     */
+    public static TileRect mapToOutput(TileRect rect, int screenWidth, int screenHeight, int outputWidth, int outputHeight) {
+        float scaleX = (float) outputWidth / screenWidth;
+        float scaleY = (float) outputHeight / screenHeight;
+        int left = Math.max(0, (int) Math.floor(rect.getLeft() * scaleX));
+        int top = Math.max(0, (int) Math.floor(rect.getTop() * scaleY));
+        int right = Math.min(outputWidth, (int) Math.ceil(rect.getRight() * scaleX));
+        int bottom = Math.min(outputHeight, (int) Math.ceil(rect.getBottom() * scaleY));
+        if (left >= right || top >= bottom) {
+            return null;
+        }
+        return new TileRect(left, top, right, bottom);
+    }
+
+    /**
+     * 将遮挡区域从屏幕坐标映射到输出尺寸
+     *
+     * @param rects        遮挡区域(屏幕坐标)
+     * @param screenWidth  屏幕宽度
+     * @param screenHeight 屏幕高度
+     * @param outputWidth  输出宽度
+     * @param outputHeight 输出高度
+     * @return TileRect[]，按 left 升序，不包含输出范围之外的区域
+     */
+    public static TileRect[] createMasks(TileRect[] rects, int screenWidth, int screenHeight, int outputWidth, int outputHeight) {
+        List<TileRect> list = new ArrayList<>(rects.length);
+        for (TileRect rect : rects) {
+            TileRect mask = mapToOutput(rect, screenWidth, screenHeight, outputWidth, outputHeight);
+            if (mask != null) {
+                list.add(mask);
+            }
+        }
+        TileRect[] array = list.toArray(new TileRect[0]);
+        Arrays.sort(array, new Comparator<TileRect>() {
+            @Override
+            public int compare(TileRect o1, TileRect o2) {
+                return Integer.compare(o1.getLeft(), o2.getLeft());
+            }
+        });
+        return array;
+    }
+
+    /**
+     * 获取 遮挡区域在 GL 坐标中的下边界(glScissor 的 y，GL 坐标原点在左下角)
+     *
+     * @param mask         遮挡区域(输出坐标，原点在左上角)
+     * @param outputHeight 输出高度
+     * @return int
+     */
+    public static int toGlBottom(TileRect mask, int outputHeight) {
+        return outputHeight - mask.getBottom();
+    }
+
+}
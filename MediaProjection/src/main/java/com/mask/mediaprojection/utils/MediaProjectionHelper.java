@@ -5,15 +5,33 @@ import android.content.ComponentName;
 import android.content.Context;
 import android.content.Intent;
 import android.content.ServiceConnection;
+import android.graphics.Rect;
 import android.media.projection.MediaProjectionManager;
+import android.os.Handler;
 import android.os.IBinder;
+import android.os.Looper;
 import android.util.DisplayMetrics;
 
+import com.mask.mediaprojection.entity.CaptureConfig;
+import com.mask.mediaprojection.entity.CaptureFileConfig;
+import com.mask.mediaprojection.entity.FailReason;
+import com.mask.mediaprojection.entity.FrameStreamConfig;
+import com.mask.mediaprojection.entity.RecorderConfig;
+import com.mask.mediaprojection.interfaces.BurstCaptureCallback;
+import com.mask.mediaprojection.interfaces.CaptureFileCallback;
+import com.mask.mediaprojection.interfaces.DisplayChangeCallback;
+import com.mask.mediaprojection.interfaces.FrameListener;
 import com.mask.mediaprojection.interfaces.MediaProjectionNotificationEngine;
 import com.mask.mediaprojection.interfaces.MediaRecorderCallback;
 import com.mask.mediaprojection.interfaces.ScreenCaptureCallback;
+import com.mask.mediaprojection.interfaces.ScreenCaptureLeaseCallback;
+import com.mask.mediaprojection.interfaces.ScreenFrameCallback;
+import com.mask.mediaprojection.service.FrameStream;
 import com.mask.mediaprojection.service.MediaProjectionService;
 
+import java.util.List;
+import java.util.concurrent.Executor;
+
 /**
  * 媒体投影 帮助类
  * Created by lishilin on 2020/03/18
@@ -34,13 +52,19 @@ public class MediaProjectionHelper {
         super();
     }
 
-    private MediaProjectionNotificationEngine notificationEngine;
+    // 可在任意线程调用截图/录制，读取时先复制到局部变量
+    private volatile MediaProjectionNotificationEngine notificationEngine;
+    private volatile Integer captureThreadPriority;
+    private volatile Executor callbackExecutor;
+    private volatile List<Rect> redactionRects;
+    private volatile DisplayChangeCallback displayChangeCallback;
+    private final Handler mainHandler = new Handler(Looper.getMainLooper());// 未设置回调线程时在主线程回调
 
-    private MediaProjectionManager mediaProjectionManager;
-    private DisplayMetrics displayMetrics;
+    private volatile MediaProjectionManager mediaProjectionManager;
+    private volatile DisplayMetrics displayMetrics;
 
-    private ServiceConnection serviceConnection;
-    private MediaProjectionService mediaProjectionService;
+    private volatile ServiceConnection serviceConnection;
+    private volatile MediaProjectionService mediaProjectionService;
 
     /**
      * 设置 通知引擎
@@ -51,6 +75,32 @@ public class MediaProjectionHelper {
         this.notificationEngine = notificationEngine;
     }
 
+    /**
+     * 设置 采集线程优先级(ImageReader/VirtualDisplay/MediaRecorder 的回调均在采集线程)
+     *
+     * @param priority 线程优先级，如 Process.THREAD_PRIORITY_DISPLAY
+     */
+    public void setCaptureThreadPriority(int priority) {
+        this.captureThreadPriority = priority;
+        MediaProjectionService service = mediaProjectionService;
+        if (service != null) {
+            service.setCaptureThreadPriority(priority);
+        }
+    }
+
+    /**
+     * 设置 回调线程
+     *
+     * @param executor executor，为null时在主线程回调
+     */
+    public void setCallbackExecutor(Executor executor) {
+        this.callbackExecutor = executor;
+        MediaProjectionService service = mediaProjectionService;
+        if (service != null) {
+            service.setCallbackExecutor(executor);
+        }
+    }
+
     /**
      * 启动媒体投影服务
      *
@@ -62,22 +112,34 @@ public class MediaProjectionHelper {
         }
 
         // 启动媒体投影服务
-        mediaProjectionManager = (MediaProjectionManager) activity.getSystemService(Context.MEDIA_PROJECTION_SERVICE);
-        if (mediaProjectionManager != null) {
-            activity.startActivityForResult(mediaProjectionManager.createScreenCaptureIntent(), REQUEST_CODE);
+        MediaProjectionManager manager = (MediaProjectionManager) activity.getSystemService(Context.MEDIA_PROJECTION_SERVICE);
+        mediaProjectionManager = manager;
+        if (manager != null) {
+            activity.startActivityForResult(manager.createScreenCaptureIntent(), REQUEST_CODE);
         }
 
         // 此处宽高需要获取屏幕完整宽高，否则截屏图片会有白/黑边
-        displayMetrics = new DisplayMetrics();
-        activity.getWindowManager().getDefaultDisplay().getRealMetrics(displayMetrics);
+        DisplayMetrics metrics = new DisplayMetrics();
+        activity.getWindowManager().getDefaultDisplay().getRealMetrics(metrics);
+        // 获取完成后再发布，其他线程不会读到未赋值的宽高
+        displayMetrics = metrics;
 
         // 绑定服务
-        serviceConnection = new ServiceConnection() {
+        ServiceConnection connection = new ServiceConnection() {
             @Override
             public void onServiceConnected(ComponentName name, IBinder service) {
                 if (service instanceof MediaProjectionService.MediaProjectionBinder) {
-                    mediaProjectionService = ((MediaProjectionService.MediaProjectionBinder) service).getService();
+                    MediaProjectionService mediaProjectionService = ((MediaProjectionService.MediaProjectionBinder) service).getService();
                     mediaProjectionService.setNotificationEngine(notificationEngine);
+                    mediaProjectionService.setCallbackExecutor(callbackExecutor);
+                    mediaProjectionService.setRedactionRects(redactionRects);
+                    mediaProjectionService.setDisplayChangeCallback(displayChangeCallback);
+                    Integer priority = captureThreadPriority;
+                    if (priority != null) {
+                        mediaProjectionService.setCaptureThreadPriority(priority);
+                    }
+                    // 配置完成后再发布，其他线程拿到的服务均已配置
+                    MediaProjectionHelper.this.mediaProjectionService = mediaProjectionService;
                 }
             }
 
@@ -86,7 +148,8 @@ public class MediaProjectionHelper {
                 mediaProjectionService = null;
             }
         };
-        MediaProjectionService.bindService(activity, serviceConnection);
+        serviceConnection = connection;
+        MediaProjectionService.bindService(activity, connection);
     }
 
     /**
@@ -97,9 +160,10 @@ public class MediaProjectionHelper {
     public void stopService(Context context) {
         mediaProjectionService = null;
 
-        if (serviceConnection != null) {
-            MediaProjectionService.unbindService(context, serviceConnection);
+        ServiceConnection connection = serviceConnection;
+        if (connection != null) {
             serviceConnection = null;
+            MediaProjectionService.unbindService(context, connection);
         }
 
         displayMetrics = null;
@@ -117,7 +181,22 @@ public class MediaProjectionHelper {
      * @param isMediaRecorderEnable 是否可以媒体录制
      */
     public void createVirtualDisplay(int requestCode, int resultCode, Intent data, boolean isScreenCaptureEnable, boolean isMediaRecorderEnable) {
-        if (mediaProjectionService == null) {
+        createVirtualDisplay(requestCode, resultCode, data, isScreenCaptureEnable, isMediaRecorderEnable, null);
+    }
+
+    /**
+     * 创建VirtualDisplay(onActivityResult中调用)
+     *
+     * @param requestCode           requestCode
+     * @param resultCode            resultCode
+     * @param data                  data
+     * @param isScreenCaptureEnable 是否可以屏幕截图
+     * @param isMediaRecorderEnable 是否可以媒体录制
+     * @param captureConfig         屏幕截图配置(缓冲数/像素格式/Bitmap格式)，为null时使用默认配置
+     */
+    public void createVirtualDisplay(int requestCode, int resultCode, Intent data, boolean isScreenCaptureEnable, boolean isMediaRecorderEnable, CaptureConfig captureConfig) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
             return;
         }
         if (requestCode != REQUEST_CODE) {
@@ -127,7 +206,7 @@ public class MediaProjectionHelper {
             return;
         }
 
-        mediaProjectionService.createVirtualDisplay(resultCode, data, displayMetrics, isScreenCaptureEnable, isMediaRecorderEnable);
+        service.createVirtualDisplay(resultCode, data, displayMetrics, isScreenCaptureEnable, isMediaRecorderEnable, captureConfig);
     }
 
     /**
@@ -136,11 +215,235 @@ public class MediaProjectionHelper {
      * @param callback callback
      */
     public void capture(ScreenCaptureCallback callback) {
-        if (mediaProjectionService == null) {
-            callback.onFail();
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.capture(callback);
+    }
+
+    /**
+     * 屏幕截图，没有新的帧时等待下一帧(不需要轮询，超时回调 FailReason.TIMEOUT)
+     *
+     * @param timeoutMs 等待超时(毫秒)
+     * @param callback  callback
+     */
+    public void capture(long timeoutMs, ScreenCaptureCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.capture(timeoutMs, callback);
+    }
+
+    /**
+     * 连拍(按顺序取连续的N帧及其时间戳，并检测间隙；连拍期间临时增大 ImageReader 的缓冲)
+     *
+     * @param frameCount 帧数 [1, MediaProjectionService.MAX_BURST_FRAMES]
+     * @param timeoutMs  超时(毫秒)，超时后返回已取到的帧
+     * @param callback   callback
+     */
+    public void captureBurst(int frameCount, long timeoutMs, BurstCaptureCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.captureBurst(frameCount, timeoutMs, callback);
+    }
+
+    /**
+     * 区域截图(只复制区域内的像素，直接创建区域大小的Bitmap)
+     *
+     * @param roi      区域(屏幕坐标，如 View.getLocationOnScreen 计算的区域)
+     * @param callback callback
+     */
+    public void capture(Rect roi, ScreenCaptureCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.capture(roi, callback);
+    }
+
+    /**
+     * 屏幕截图(Bitmap来自复用池，使用完毕后需调用 BitmapLease.release() 归还)
+     *
+     * @param callback callback
+     */
+    public void capture(ScreenCaptureLeaseCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.capture(callback);
+    }
+
+    /**
+     * 获取 Bitmap复用池(可查看命中/未命中次数)
+     *
+     * @return BitmapPool，服务未绑定时返回null
+     */
+    public BitmapPool getBitmapPool() {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            return null;
+        }
+        return service.getBitmapPool();
+    }
+
+    /**
+     * 获取 截图/录制指标快照(各阶段耗时直方图、按原因统计的失败次数、收到/分发的帧数、实际录制帧率)
+     * <p>
+     * 计数均为无锁原子操作，可定期轮询上报
+     *
+     * @return MediaProjectionMetrics.Snapshot，服务未绑定时返回null
+     */
+    public MediaProjectionMetrics.Snapshot getMetricsSnapshot() {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            return null;
+        }
+        return service.getMetrics().snapshot();
+    }
+
+    /**
+     * 重置 截图/录制指标
+     */
+    public void resetMetrics() {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            return;
+        }
+        service.getMetrics().reset();
+    }
+
+    /**
+     * 截图并保存到文件(在后台线程池编码写入，保存到 FileUtils.getCachePictureDir)
+     *
+     * @param config   编码格式/质量/文件名前缀，为null时使用默认配置(PNG)
+     * @param callback callback
+     */
+    public void captureToFile(CaptureFileConfig config, CaptureFileCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.captureToFile(config, callback);
+    }
+
+    /**
+     * 屏幕截图(不创建Bitmap，直接返回按行跨度访问的屏幕帧)
+     *
+     * @param callback callback
+     */
+    public void capture(ScreenFrameCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.capture(callback);
+    }
+
+    /**
+     * 开始 帧流(在后台线程推送每帧)
+     *
+     * @param config   config
+     * @param listener listener
+     * @return FrameStream，服务未绑定时返回null，不可以屏幕截图时帧流直接停止
+     */
+    public FrameStream startFrameStream(FrameStreamConfig config, FrameListener listener) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            return null;
+        }
+        return service.startFrameStream(config, listener);
+    }
+
+    /**
+     * 停止 帧流
+     *
+     * @param frameStream frameStream
+     */
+    public void stopFrameStream(FrameStream frameStream) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            frameStream.stop();
+            return;
+        }
+        service.stopFrameStream(frameStream);
+    }
+
+    /**
+     * 设置 屏幕尺寸变化回调(旋转/折叠屏变化时自动调整截图和录制尺寸，不需要重新申请权限)
+     *
+     * @param callback callback，可为null
+     */
+    public void setDisplayChangeCallback(DisplayChangeCallback callback) {
+        this.displayChangeCallback = callback;
+        MediaProjectionService service = mediaProjectionService;
+        if (service != null) {
+            service.setDisplayChangeCallback(callback);
+        }
+    }
+
+    /**
+     * 设置 遮挡区域(如密码输入框、通知栏，截图/帧流输出前遮挡为黑色)
+     * <p>
+     * 有遮挡区域时媒体录制总是经过共用 VirtualDisplay 由GPU遮挡(未开启 {@link CaptureConfig#setSingleVirtualDisplay(boolean)} 时也是)，
+     * 不能遮挡时录制失败，原因为 {@link FailReason#REDACTION_UNSUPPORTED}
+     *
+     * @param rects 遮挡区域(屏幕坐标)，为null或空时取消遮挡
+     */
+    public void setRedactionRects(List<Rect> rects) {
+        this.redactionRects = rects;
+        MediaProjectionService service = mediaProjectionService;
+        if (service != null) {
+            service.setRedactionRects(rects);
+        }
+    }
+
+    /**
+     * 添加 帧处理链(在采集线程执行；需要在后台线程执行时，将处理链作为 FrameListener 传给 startFrameStream)
+     *
+     * @param chain chain
+     */
+    public void addFrameProcessorChain(FrameProcessorChain chain) {
+        addFrameProcessorChain(chain, 0, 0);
+    }
+
+    /**
+     * 添加 帧处理链，并按处理链单独检测与前一帧的差异(各阶段可以据此跳过未变化的帧)
+     *
+     * @param chain        chain
+     * @param tileSize     差异检测分块边长(像素)，0表示不检测
+     * @param sampleStride 差异检测采样间隔(像素)，不能大于 tileSize
+     */
+    public void addFrameProcessorChain(FrameProcessorChain chain, int tileSize, int sampleStride) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
             return;
         }
-        mediaProjectionService.capture(callback);
+        service.addFrameProcessorChain(chain, tileSize, sampleStride);
+    }
+
+    /**
+     * 移除 帧处理链
+     *
+     * @param chain chain
+     */
+    public void removeFrameProcessorChain(FrameProcessorChain chain) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            return;
+        }
+        service.removeFrameProcessorChain(chain);
     }
 
     /**
@@ -149,21 +452,126 @@ public class MediaProjectionHelper {
      * @param callback callback
      */
     public void startMediaRecorder(MediaRecorderCallback callback) {
-        if (mediaProjectionService == null) {
-            callback.onFail();
+        startMediaRecorder(null, callback);
+    }
+
+    /**
+     * 开始 屏幕录制
+     *
+     * @param config   录制配置(MediaRecorder/MediaCodec 引擎、码率模式、关键帧间隔、profile/level、HEVC)，为null时使用默认配置
+     * @param callback callback
+     */
+    public void startMediaRecorder(RecorderConfig config, MediaRecorderCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.startRecording(config, callback);
+    }
+
+    /**
+     * 切换 屏幕录制文件(热备模式下无缝切换，结果通过 MediaRecorderCallback.onSwitch 返回)
+     */
+    public void switchMediaRecorder() {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
             return;
         }
-        mediaProjectionService.startRecording(callback);
+        service.switchRecording();
+    }
+
+    /**
+     * 保存 回放(RecorderConfig.setReplayDurationMs 开启回放模式时有效，将最近一段时长写入新文件，录制继续)
+     *
+     * @param callback callback
+     */
+    public void saveReplay(MediaRecorderCallback callback) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
+            notifyNotReady(callback);
+            return;
+        }
+        service.saveReplay(callback);
     }
 
     /**
      * 停止 屏幕录制
      */
     public void stopMediaRecorder() {
-        if (mediaProjectionService == null) {
+        MediaProjectionService service = mediaProjectionService;
+        if (service == null) {
             return;
         }
-        mediaProjectionService.stopRecording();
+        service.stopRecording();
+    }
+
+    /**
+     * 在回调线程执行(与服务的回调在同一线程)
+     *
+     * @param runnable runnable
+     */
+    private void runOnCallbackThread(Runnable runnable) {
+        Executor executor = callbackExecutor;
+        if (executor != null) {
+            executor.execute(runnable);
+        } else {
+            mainHandler.post(runnable);
+        }
+    }
+
+    private void notifyNotReady(final BurstCaptureCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
+    }
+
+    private void notifyNotReady(final CaptureFileCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
+    }
+
+    private void notifyNotReady(final MediaRecorderCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
+    }
+
+    private void notifyNotReady(final ScreenCaptureCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
+    }
+
+    private void notifyNotReady(final ScreenCaptureLeaseCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
+    }
+
+    private void notifyNotReady(final ScreenFrameCallback callback) {
+        runOnCallbackThread(new Runnable() {
+            @Override
+            public void run() {
+                callback.onFail(FailReason.NOT_READY, null);
+            }
+        });
     }
 
 }
@@ -0,0 +1,291 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FailReason;
+
+import java.util.EnumMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * 截图/录制 指标(纯Java实现，不依赖Android)
+ * <p>
+ * 全部使用原子计数，无锁，可在任意线程记录；通过 {@link #snapshot()} 定期读取
+ * Created by agent on 2026/10/18
+ */
+public class MediaProjectionMetrics {
+
+    /**
+     * 耗时阶段
+     */
+    public enum Stage {
+
+        ACQUIRE,// 获取 Image
+        COPY,// 复制整帧到Bitmap
+        CROP,// 复制区域到Bitmap
+        DELIVER,// 从提交到回调开始执行(回调线程的排队耗时)
+        RECORDER_START,// 创建并启动录制引擎
+        RECORDER_STOP,// 停止并释放录制引擎
+        FAN_OUT,// 单 VirtualDisplay 模式下分发一帧到各输出Surface(GPU绘制的提交耗时)
+
+    }
+
+    private final LatencyHistogram[] histograms = new LatencyHistogram[Stage.values().length];
+    private final AtomicLong successCount = new AtomicLong();
+    private final AtomicLongArray failCounts = new AtomicLongArray(FailReason.values().length);
+    private final AtomicLong framesReceived = new AtomicLong();
+    private final AtomicLong framesDelivered = new AtomicLong();
+    private final AtomicLong recordedFrames = new AtomicLong();
+    private final AtomicLong recordedNanos = new AtomicLong();
+    private final AtomicLong compositedFrames = new AtomicLong();
+    private final AtomicLong compositedPixels = new AtomicLong();
+    private final AtomicLong uncountedCompositions = new AtomicLong();
+
+    public MediaProjectionMetrics() {
+        for (int i = 0; i < histograms.length; i++) {
+            histograms[i] = new LatencyHistogram();
+        }
+    }
+
+    /**
+     * 记录 阶段耗时
+     *
+     * @param stage stage
+     * @param nanos 耗时(纳秒)
+     */
+    public void recordLatency(Stage stage, long nanos) {
+        histograms[stage.ordinal()].record(nanos);
+    }
+
+    /**
+     * 记录 截图成功
+     */
+    public void recordSuccess() {
+        successCount.incrementAndGet();
+    }
+
+    /**
+     * 记录 失败(截图/录制)
+     *
+     * @param reason 原因
+     */
+    public void recordFail(FailReason reason) {
+        failCounts.incrementAndGet(reason.ordinal());
+    }
+
+    /**
+     * 记录 收到一帧(ImageReader)
+     */
+    public void recordFrameReceived() {
+        framesReceived.incrementAndGet();
+    }
+
+    /**
+     * 记录 分发一帧(截图回调或帧流)
+     */
+    public void recordFrameDelivered() {
+        framesDelivered.incrementAndGet();
+    }
+
+    /**
+     * 记录 一个录制引擎完成时的帧数和时长，用于计算实际录制帧率
+     *
+     * @param frames 编码的帧数
+     * @param nanos  录制时长(纳秒)
+     */
+    public void recordRecording(long frames, long nanos) {
+        if (frames < 0 || nanos <= 0) {
+            return;
+        }
+        recordedFrames.addAndGet(frames);
+        recordedNanos.addAndGet(nanos);
+    }
+
+    /**
+     * 记录 系统为 VirtualDisplay 合成的帧(估算合成负载：两个 VirtualDisplay 时每帧合成两次)
+     *
+     * @param frames 帧数，小于0时表示不能统计(如 MediaRecorder 引擎不提供帧数)，只记录次数
+     * @param width  VirtualDisplay 宽度
+     * @param height VirtualDisplay 高度
+     */
+    public void recordComposition(long frames, int width, int height) {
+        if (frames < 0) {
+            uncountedCompositions.incrementAndGet();
+            return;
+        }
+        if (frames == 0) {
+            return;
+        }
+        compositedFrames.addAndGet(frames);
+        compositedPixels.addAndGet(frames * width * height);
+    }
+
+    /**
+     * 获取 快照
+     *
+     * @return Snapshot
+     */
+    public Snapshot snapshot() {
+        Map<Stage, LatencyHistogram.Snapshot> latencies = new EnumMap<>(Stage.class);
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, histograms[stage.ordinal()].snapshot());
+        }
+        Map<FailReason, Long> fails = new EnumMap<>(FailReason.class);
+        for (FailReason reason : FailReason.values()) {
+            fails.put(reason, failCounts.get(reason.ordinal()));
+        }
+        return new Snapshot(latencies, successCount.get(), fails, framesReceived.get(), framesDelivered.get(),
+                recordedFrames.get(), recordedNanos.get(), compositedFrames.get(), compositedPixels.get(),
+                uncountedCompositions.get());
+    }
+
+    /**
+     * 重置
+     */
+    public void reset() {
+        for (LatencyHistogram histogram : histograms) {
+            histogram.reset();
+        }
+        successCount.set(0);
+        for (int i = 0; i < failCounts.length(); i++) {
+            failCounts.set(i, 0);
+        }
+        framesReceived.set(0);
+        framesDelivered.set(0);
+        recordedFrames.set(0);
+        recordedNanos.set(0);
+        compositedFrames.set(0);
+        compositedPixels.set(0);
+        uncountedCompositions.set(0);
+    }
+
+    /**
+     * 指标快照
+     */
+    public static class Snapshot {
+
+        private final Map<Stage, LatencyHistogram.Snapshot> latencies;
+        private final long successCount;
+        private final Map<FailReason, Long> failCounts;
+        private final long framesReceived;
+        private final long framesDelivered;
+        private final long recordedFrames;
+        private final long recordedNanos;
+        private final long compositedFrames;
+        private final long compositedPixels;
+        private final long uncountedCompositions;
+
+        private Snapshot(Map<Stage, LatencyHistogram.Snapshot> latencies, long successCount, Map<FailReason, Long> failCounts,
+                         long framesReceived, long framesDelivered, long recordedFrames, long recordedNanos,
+                         long compositedFrames, long compositedPixels, long uncountedCompositions) {
+            this.latencies = latencies;
+            this.successCount = successCount;
+            this.failCounts = failCounts;
+            this.framesReceived = framesReceived;
+            this.framesDelivered = framesDelivered;
+            this.recordedFrames = recordedFrames;
+            this.recordedNanos = recordedNanos;
+            this.compositedFrames = compositedFrames;
+            this.compositedPixels = compositedPixels;
+            this.uncountedCompositions = uncountedCompositions;
+        }
+
+        public LatencyHistogram.Snapshot getLatency(Stage stage) {
+            return latencies.get(stage);
+        }
+
+        public long getSuccessCount() {
+            return successCount;
+        }
+
+        public long getFailCount(FailReason reason) {
+            return failCounts.get(reason);
+        }
+
+        /**
+         * 获取 失败总数
+         *
+         * @return long
+         */
+        public long getFailCount() {
+            long total = 0;
+            for (long count : failCounts.values()) {
+                total += count;
+            }
+            return total;
+        }
+
+        public long getFramesReceived() {
+            return framesReceived;
+        }
+
+        public long getFramesDelivered() {
+            return framesDelivered;
+        }
+
+        public long getRecordedFrames() {
+            return recordedFrames;
+        }
+
+        /**
+         * 获取 实际录制帧率(已完成的录制，不支持统计帧数的录制引擎不计入)
+         *
+         * @return fps，没有数据时返回0
+         */
+        public double getRecordedFps() {
+            return recordedNanos > 0 ? recordedFrames * 1e9 / recordedNanos : 0;
+        }
+
+        /**
+         * 获取 系统为 VirtualDisplay 合成的帧数(不支持统计帧数的录制引擎不计入，见 {@link #getUncountedCompositions()})
+         *
+         * @return long
+         */
+        public long getCompositedFrames() {
+            return compositedFrames;
+        }
+
+        /**
+         * 获取 系统为 VirtualDisplay 合成的像素数，与时长相除即为合成负载
+         *
+         * @return long
+         */
+        public long getCompositedPixels() {
+            return compositedPixels;
+        }
+
+        /**
+         * 获取 未能统计合成帧数的次数(两个 VirtualDisplay 时使用 MediaRecorder 引擎录制)，大于0时合成负载偏低
+         *
+         * @return long
+         */
+        public long getUncountedCompositions() {
+            return uncountedCompositions;
+        }
+
+        @Override
+        public String toString() {
+            StringBuilder builder = new StringBuilder();
+            builder.append("success=").append(successCount)
+                    .append(" fail=").append(getFailCount())
+                    .append(" frames=").append(framesDelivered).append('/').append(framesReceived)
+                    .append(" recordedFps=").append(String.format(Locale.US, "%.1f", getRecordedFps()))
+                    .append(" composited=").append(compositedFrames).append('/').append(compositedPixels).append("px");
+            if (uncountedCompositions > 0) {
+                builder.append(" uncounted=").append(uncountedCompositions);
+            }
+            for (Map.Entry<FailReason, Long> entry : failCounts.entrySet()) {
+                if (entry.getValue() > 0) {
+                    builder.append("\n  fail ").append(entry.getKey()).append('=').append(entry.getValue());
+                }
+            }
+            for (Map.Entry<Stage, LatencyHistogram.Snapshot> entry : latencies.entrySet()) {
+                builder.append("\n  ").append(entry.getKey()).append(": ").append(entry.getValue());
+            }
+            return builder.toString();
+        }
+
+    }
+
+}
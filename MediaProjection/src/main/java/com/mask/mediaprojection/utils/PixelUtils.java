@@ -0,0 +1,306 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.TileRect;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * 像素数据 工具类(纯Java实现，不依赖Android，可在JVM上测试)
+ * Created by agent on 2026/10/18
+ */
+public class PixelUtils {
+
+    private PixelUtils() {
+        super();
+    }
+
+    /**
+     * 返回紧凑排列时一行的字节数
+     *
+     * @param width       宽度
+     * @param pixelStride 每个像素的字节数
+     * @return int
+     */
+    public static int getRowBytes(int width, int pixelStride) {
+        return width * pixelStride;
+    }
+
+    /**
+     * 返回紧凑排列时整帧的字节数
+     *
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @return int
+     */
+    public static int getFrameBytes(int width, int height, int pixelStride) {
+        return getRowBytes(width, pixelStride) * height;
+    }
+
+    /**
+     * 是否有行填充(rowStride 大于 一行像素的字节数)
+     *
+     * @param width       宽度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数
+     * @return boolean
+     */
+    public static boolean hasRowPadding(int width, int pixelStride, int rowStride) {
+        return rowStride != getRowBytes(width, pixelStride);
+    }
+
+    /**
+     * 去除行填充，逐行紧凑复制到目标Buffer
+     * <p>
+     * 不会修改 src 的 position/limit；dst 从当前 position 开始写入，写入后 position 后移
+     *
+     * @param src         源数据(如 Image.Plane 的 Buffer)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数(包含填充)
+     * @param dst         目标Buffer，剩余空间不小于 width * height * pixelStride
+     */
+    public static void compact(ByteBuffer src, int width, int height, int pixelStride, int rowStride, ByteBuffer dst) {
+        int rowBytes = getRowBytes(width, pixelStride);
+        checkArgs(src, width, height, rowBytes, rowStride, rowBytes * height, dst);
+
+        ByteBuffer srcRow = src.duplicate();
+        int srcStart = src.position();
+
+        // 无行填充，整块复制
+        if (rowStride == rowBytes) {
+            srcRow.limit(srcStart + rowBytes * height);
+            srcRow.position(srcStart);
+            dst.put(srcRow);
+            return;
+        }
+
+        // 有行填充，逐行复制(最后一行可能不包含填充)
+        for (int row = 0; row < height; row++) {
+            int rowStart = srcStart + row * rowStride;
+            srcRow.limit(rowStart + rowBytes);
+            srcRow.position(rowStart);
+            dst.put(srcRow);
+        }
+    }
+
+    /**
+     * 去除行填充，逐行紧凑复制到目标Buffer，遮挡区域不读取源数据，直接写入不透明黑色
+     * <p>
+     * 不会修改 src 的 position/limit；dst 从当前 position 开始写入，写入后 position 后移
+     *
+     * @param src         源数据(如 Image.Plane 的 Buffer)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数(包含填充)
+     * @param masks       遮挡区域(帧内坐标，按 left 升序)，为null或空时等同于 {@link #compact(ByteBuffer, int, int, int, int, ByteBuffer)}
+     * @param dst         目标Buffer，剩余空间不小于 width * height * pixelStride
+     */
+    public static void compact(ByteBuffer src, int width, int height, int pixelStride, int rowStride, TileRect[] masks, ByteBuffer dst) {
+        if (masks == null || masks.length == 0) {
+            compact(src, width, height, pixelStride, rowStride, dst);
+            return;
+        }
+        int rowBytes = getRowBytes(width, pixelStride);
+        checkArgs(src, width, height, rowBytes, rowStride, rowBytes * height, dst);
+
+        ByteBuffer srcRow = src.duplicate();
+        int srcStart = src.position();
+        for (int row = 0; row < height; row++) {
+            int rowStart = srcStart + row * rowStride;
+            int x = 0;
+            for (TileRect mask : masks) {
+                if (row < mask.getTop() || row >= mask.getBottom()) {
+                    continue;
+                }
+                int left = Math.max(x, mask.getLeft());
+                int right = Math.min(width, mask.getRight());
+                if (right <= left) {
+                    continue;
+                }
+                if (left > x) {
+                    srcRow.limit(rowStart + left * pixelStride);
+                    srcRow.position(rowStart + x * pixelStride);
+                    dst.put(srcRow);
+                }
+                int dstPos = dst.position();
+                fillMask(dst, dstPos, right - left, pixelStride);
+                dst.position(dstPos + (right - left) * pixelStride);
+                x = right;
+            }
+            if (x < width) {
+                srcRow.limit(rowStart + rowBytes);
+                srcRow.position(rowStart + x * pixelStride);
+                dst.put(srcRow);
+            }
+        }
+    }
+
+    /**
+     * 将区域填充为不透明黑色(用于转换格式后的遮挡)
+     * <p>
+     * 使用绝对位置写入，不修改 buffer 的 position
+     *
+     * @param buffer      帧数据(从position开始)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数(包含填充)
+     * @param rects       区域(帧内坐标)，超出帧的部分忽略
+     */
+    public static void fillRects(ByteBuffer buffer, int width, int height, int pixelStride, int rowStride, TileRect[] rects) {
+        if (rects == null) {
+            return;
+        }
+        int start = buffer.position();
+        for (TileRect rect : rects) {
+            int left = Math.max(0, rect.getLeft());
+            int right = Math.min(width, rect.getRight());
+            int top = Math.max(0, rect.getTop());
+            int bottom = Math.min(height, rect.getBottom());
+            for (int row = top; row < bottom && left < right; row++) {
+                fillMask(buffer, start + row * rowStride + left * pixelStride, right - left, pixelStride);
+            }
+        }
+    }
+
+    /**
+     * 写入不透明黑色(4字节像素的第4字节为Alpha，2字节像素为 RGB_565)
+     */
+    private static void fillMask(ByteBuffer dst, int position, int pixels, int pixelStride) {
+        for (int i = 0; i < pixels; i++) {
+            for (int j = 0; j < pixelStride; j++) {
+                dst.put(position++, (pixelStride == 4 && j == 3) ? (byte) 0xFF : 0);
+            }
+        }
+    }
+
+    /**
+     * 返回 区域左上角像素相对于帧起点的偏移量
+     *
+     * @param left        区域左边
+     * @param top         区域上边
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数(包含填充)
+     * @return int
+     */
+    public static int getRegionOffset(int left, int top, int pixelStride, int rowStride) {
+        return top * rowStride + left * pixelStride;
+    }
+
+    /**
+     * 复制区域，只读取区域内的行/列，逐行紧凑复制到目标Buffer
+     * <p>
+     * 不会修改 src 的 position/limit；dst 从当前 position 开始写入，写入后 position 后移
+     *
+     * @param src          源数据(如 Image.Plane 的 Buffer)
+     * @param frameWidth   帧宽度
+     * @param frameHeight  帧高度
+     * @param pixelStride  每个像素的字节数
+     * @param rowStride    每行的字节数(包含填充)
+     * @param left         区域左边
+     * @param top          区域上边
+     * @param regionWidth  区域宽度
+     * @param regionHeight 区域高度
+     * @param dst          目标Buffer，剩余空间不小于 regionWidth * regionHeight * pixelStride
+     */
+    public static void copyRegion(ByteBuffer src, int frameWidth, int frameHeight, int pixelStride, int rowStride,
+                                  int left, int top, int regionWidth, int regionHeight, ByteBuffer dst) {
+        if (left < 0 || top < 0 || regionWidth <= 0 || regionHeight <= 0
+                || left + regionWidth > frameWidth || top + regionHeight > frameHeight) {
+            throw new IllegalArgumentException("region [" + left + "," + top + " " + regionWidth + "x" + regionHeight
+                    + "] out of frame " + frameWidth + "x" + frameHeight);
+        }
+        ByteBuffer region = src.duplicate();
+        region.position(src.position() + getRegionOffset(left, top, pixelStride, rowStride));
+        compact(region, regionWidth, regionHeight, pixelStride, rowStride, dst);
+    }
+
+    /**
+     * RGBA_8888 转换为 RGB_565(按本机字节序写入，与 Bitmap.Config.RGB_565 内存布局一致)
+     *
+     * @param src         源数据
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数(4)
+     * @param rowStride   每行的字节数(包含填充)
+     * @param dst         目标Buffer，剩余空间不小于 width * height * 2
+     */
+    public static void convertRgbaToRgb565(ByteBuffer src, int width, int height, int pixelStride, int rowStride, ByteBuffer dst) {
+        checkArgs(src, width, height, getRowBytes(width, pixelStride), rowStride, width * height * 2, dst);
+
+        ByteBuffer out = dst.duplicate().order(ByteOrder.nativeOrder());
+        int srcStart = src.position();
+        int dstPos = dst.position();
+        for (int row = 0; row < height; row++) {
+            int srcPos = srcStart + row * rowStride;
+            for (int col = 0; col < width; col++) {
+                int r = src.get(srcPos) & 0xFF;
+                int g = src.get(srcPos + 1) & 0xFF;
+                int b = src.get(srcPos + 2) & 0xFF;
+                out.putShort(dstPos, (short) (((r & 0xF8) << 8) | ((g & 0xFC) << 3) | (b >> 3)));
+                srcPos += pixelStride;
+                dstPos += 2;
+            }
+        }
+        dst.position(dstPos);
+    }
+
+    /**
+     * RGB_565 转换为 RGBA_8888(源数据按本机字节序读取，与 ImageReader RGB_565 内存布局一致)
+     *
+     * @param src         源数据
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数(2)
+     * @param rowStride   每行的字节数(包含填充)
+     * @param dst         目标Buffer，剩余空间不小于 width * height * 4
+     */
+    public static void convertRgb565ToRgba(ByteBuffer src, int width, int height, int pixelStride, int rowStride, ByteBuffer dst) {
+        checkArgs(src, width, height, getRowBytes(width, pixelStride), rowStride, width * height * 4, dst);
+
+        ByteBuffer in = src.duplicate().order(ByteOrder.nativeOrder());
+        int srcStart = src.position();
+        int dstPos = dst.position();
+        for (int row = 0; row < height; row++) {
+            int srcPos = srcStart + row * rowStride;
+            for (int col = 0; col < width; col++) {
+                int value = in.getShort(srcPos) & 0xFFFF;
+                int r = (value >> 11) & 0x1F;
+                int g = (value >> 5) & 0x3F;
+                int b = value & 0x1F;
+                // 高位复制到低位，保证 0x1F -> 0xFF
+                dst.put(dstPos, (byte) ((r << 3) | (r >> 2)));
+                dst.put(dstPos + 1, (byte) ((g << 2) | (g >> 4)));
+                dst.put(dstPos + 2, (byte) ((b << 3) | (b >> 2)));
+                dst.put(dstPos + 3, (byte) 0xFF);
+                srcPos += pixelStride;
+                dstPos += 4;
+            }
+        }
+        dst.position(dstPos);
+    }
+
+    /**
+     * 校验参数
+     */
+    private static void checkArgs(ByteBuffer src, int width, int height, int rowBytes, int rowStride, int dstBytes, ByteBuffer dst) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0: " + width + "x" + height);
+        }
+        if (rowStride < rowBytes) {
+            throw new IllegalArgumentException("rowStride " + rowStride + " < rowBytes " + rowBytes);
+        }
+        int srcBytes = rowStride * (height - 1) + rowBytes;
+        if (src.remaining() < srcBytes) {
+            throw new IllegalArgumentException("src remaining " + src.remaining() + " < " + srcBytes);
+        }
+        if (dst.remaining() < dstBytes) {
+            throw new IllegalArgumentException("dst remaining " + dst.remaining() + " < " + dstBytes);
+        }
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FrameSize;
+
+/**
+ * 尺寸 工具类(纯Java实现，不依赖Android，可在JVM上测试)
+ * Created by agent on 2026/10/18
+ */
+public class SizeUtils {
+
+    public static final int DEFAULT_ALIGNMENT = 2;// 宽高按偶数对齐，兼容大部分编码器
+
+    private SizeUtils() {
+        super();
+    }
+
+    /**
+     * 计算 缩放后的尺寸(保持宽高比，宽高向下对齐)
+     *
+     * @param width      原始宽度
+     * @param height     原始高度
+     * @param densityDpi 原始densityDpi
+     * @param scale      缩放比例 (0, 1]
+     * @param alignment  宽高对齐值
+     * @return FrameSize
+     */
+    public static FrameSize scale(int width, int height, int densityDpi, float scale, int alignment) {
+        if (scale <= 0 || scale > 1) {
+            throw new IllegalArgumentException("scale must be in (0, 1]: " + scale);
+        }
+        if (alignment <= 0) {
+            throw new IllegalArgumentException("alignment must be > 0: " + alignment);
+        }
+        if (scale == 1 && width % alignment == 0 && height % alignment == 0) {
+            return new FrameSize(width, height, densityDpi);
+        }
+        int scaledWidth = align(Math.round(width * scale), alignment);
+        int scaledHeight = align(Math.round(height * scale), alignment);
+        int scaledDensityDpi = Math.max(1, Math.round(densityDpi * scale));
+        return new FrameSize(scaledWidth, scaledHeight, scaledDensityDpi);
+    }
+
+    /**
+     * 计算 适应目标尺寸的缩放比例(保持宽高比，不放大)
+     *
+     * @param width        原始宽度
+     * @param height       原始高度
+     * @param targetWidth  目标最大宽度
+     * @param targetHeight 目标最大高度
+     * @return 缩放比例 (0, 1]
+     */
+    public static float getFitScale(int width, int height, int targetWidth, int targetHeight) {
+        if (targetWidth <= 0 || targetHeight <= 0) {
+            throw new IllegalArgumentException("target size must be > 0: " + targetWidth + "x" + targetHeight);
+        }
+        float scale = Math.min((float) targetWidth / width, (float) targetHeight / height);
+        return Math.min(1f, scale);
+    }
+
+    /**
+     * 向下对齐，最小为 alignment
+     *
+     * @param value     value
+     * @param alignment alignment
+     * @return int
+     */
+    public static int align(int value, int alignment) {
+        return Math.max(alignment, value / alignment * alignment);
+    }
+
+}
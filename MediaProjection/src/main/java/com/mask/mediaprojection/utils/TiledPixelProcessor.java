@@ -0,0 +1,270 @@
+package com.mask.mediaprojection.utils;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * 分块并行像素处理(纯Java实现，不依赖Android，可在JVM上测试)
+ * <p>
+ * 将帧按行切分为若干行带，在 ForkJoinPool 上并行处理；各行带只读写自己的行，
+ * 使用Buffer的绝对位置读写，不修改共享Buffer的position，因此不需要加锁。
+ * 大分辨率(如 1440x3200)下单线程逐像素处理超过一帧间隔时使用；小帧的调度开销可能大于收益
+ * Created by agent on 2026/10/18
+ */
+public class TiledPixelProcessor {
+
+    private static final int DEFAULT_MIN_BAND_ROWS = 32;// 行带最小行数，避免任务过碎
+    private static final int BANDS_PER_THREAD = 4;// 每个线程分到的行带数，用于负载均衡
+
+    private final ForkJoinPool pool;
+    private final int minBandRows;
+
+    /**
+     * 使用默认线程池(所有实例共享，线程数为CPU核数)
+     */
+    public TiledPixelProcessor() {
+        this(DefaultPoolHolder.POOL, DEFAULT_MIN_BAND_ROWS);
+    }
+
+    /**
+     * @param pool        线程池
+     * @param minBandRows 行带最小行数
+     */
+    public TiledPixelProcessor(ForkJoinPool pool, int minBandRows) {
+        if (pool == null) {
+            throw new IllegalArgumentException("pool must not be null");
+        }
+        if (minBandRows <= 0) {
+            throw new IllegalArgumentException("minBandRows must be > 0: " + minBandRows);
+        }
+        this.pool = pool;
+        this.minBandRows = minBandRows;
+    }
+
+    /**
+     * 按行带并行执行(阻塞直到所有行带完成)
+     *
+     * @param rows   总行数
+     * @param kernel kernel
+     */
+    public void process(int rows, RowKernel kernel) {
+        if (rows <= 0) {
+            throw new IllegalArgumentException("rows must be > 0: " + rows);
+        }
+        int parallelism = pool.getParallelism();
+        int bandRows = Math.max(minBandRows, (rows + parallelism * BANDS_PER_THREAD - 1) / (parallelism * BANDS_PER_THREAD));
+        if (parallelism <= 1 || rows <= bandRows) {
+            // 不值得拆分，直接在当前线程执行
+            kernel.processRows(0, rows);
+            return;
+        }
+        pool.invoke(new BandTask(kernel, 0, rows, bandRows));
+    }
+
+    /**
+     * RGBA 转 灰度(每像素1字节，Y = 0.299R + 0.587G + 0.114B)
+     *
+     * @param src         源数据(RGBA/RGBX，从position开始)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数
+     * @param dst         目标Buffer，剩余空间不小于 width * height
+     */
+    public void convertRgbaToGray(final ByteBuffer src, final int width, int height, final int pixelStride, final int rowStride, ByteBuffer dst) {
+        checkArgs(src, width, height, pixelStride, rowStride, width * height, dst);
+
+        final int srcStart = src.position();
+        final int dstStart = dst.position();
+        final ByteBuffer out = dst.duplicate();
+        process(height, new RowKernel() {
+            @Override
+            public void processRows(int startRow, int endRow) {
+                for (int row = startRow; row < endRow; row++) {
+                    int srcPos = srcStart + row * rowStride;
+                    int dstPos = dstStart + row * width;
+                    for (int col = 0; col < width; col++) {
+                        int r = src.get(srcPos) & 0xFF;
+                        int g = src.get(srcPos + 1) & 0xFF;
+                        int b = src.get(srcPos + 2) & 0xFF;
+                        out.put(dstPos++, (byte) ((77 * r + 150 * g + 29 * b) >> 8));
+                        srcPos += pixelStride;
+                    }
+                }
+            }
+        });
+        dst.position(dstStart + width * height);
+    }
+
+    /**
+     * RGBA 转 RGB_565(本机字节序，与 {@link PixelUtils#convertRgbaToRgb565} 结果一致)
+     *
+     * @param src         源数据(RGBA/RGBX，从position开始)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数
+     * @param dst         目标Buffer，剩余空间不小于 width * height * 2
+     */
+    public void convertRgbaToRgb565(final ByteBuffer src, final int width, int height, final int pixelStride, final int rowStride, ByteBuffer dst) {
+        checkArgs(src, width, height, pixelStride, rowStride, width * height * 2, dst);
+
+        final int srcStart = src.position();
+        final int dstStart = dst.position();
+        final ByteBuffer out = dst.duplicate().order(ByteOrder.nativeOrder());
+        process(height, new RowKernel() {
+            @Override
+            public void processRows(int startRow, int endRow) {
+                for (int row = startRow; row < endRow; row++) {
+                    int srcPos = srcStart + row * rowStride;
+                    int dstPos = dstStart + row * width * 2;
+                    for (int col = 0; col < width; col++) {
+                        int r = src.get(srcPos) & 0xFF;
+                        int g = src.get(srcPos + 1) & 0xFF;
+                        int b = src.get(srcPos + 2) & 0xFF;
+                        out.putShort(dstPos, (short) (((r & 0xF8) << 8) | ((g & 0xFC) << 3) | (b >> 3)));
+                        srcPos += pixelStride;
+                        dstPos += 2;
+                    }
+                }
+            }
+        });
+        dst.position(dstStart + width * height * 2);
+    }
+
+    /**
+     * 按整数倍缩小(盒式滤波，每个输出像素为 factor x factor 区域的平均值，输出紧凑的 RGBA)
+     * <p>
+     * 输出尺寸为 (width / factor) x (height / factor)，不足 factor 的边缘行/列丢弃
+     *
+     * @param src         源数据(RGBA/RGBX，从position开始)
+     * @param width       宽度
+     * @param height      高度
+     * @param pixelStride 每个像素的字节数
+     * @param rowStride   每行的字节数
+     * @param factor      缩小倍数，不小于1
+     * @param dst         目标Buffer，剩余空间不小于 (width / factor) * (height / factor) * 4
+     */
+    public void downscale(final ByteBuffer src, int width, int height, final int pixelStride, final int rowStride, final int factor, ByteBuffer dst) {
+        if (factor < 1 || factor > width || factor > height) {
+            throw new IllegalArgumentException("factor must be in [1, min(width, height)]: " + factor);
+        }
+        final int dstWidth = width / factor;
+        final int dstHeight = height / factor;
+        checkArgs(src, width, height, pixelStride, rowStride, dstWidth * dstHeight * 4, dst);
+
+        final int srcStart = src.position();
+        final int dstStart = dst.position();
+        final ByteBuffer out = dst.duplicate();
+        final int area = factor * factor;
+        // 按输出行切分
+        process(dstHeight, new RowKernel() {
+            @Override
+            public void processRows(int startRow, int endRow) {
+                int[] sums = new int[dstWidth * 4];
+                for (int dstRow = startRow; dstRow < endRow; dstRow++) {
+                    Arrays.fill(sums, 0);
+                    for (int y = 0; y < factor; y++) {
+                        int srcPos = srcStart + (dstRow * factor + y) * rowStride;
+                        for (int dstCol = 0; dstCol < dstWidth; dstCol++) {
+                            int sumIndex = dstCol * 4;
+                            for (int x = 0; x < factor; x++) {
+                                sums[sumIndex] += src.get(srcPos) & 0xFF;
+                                sums[sumIndex + 1] += src.get(srcPos + 1) & 0xFF;
+                                sums[sumIndex + 2] += src.get(srcPos + 2) & 0xFF;
+                                sums[sumIndex + 3] += src.get(srcPos + 3) & 0xFF;
+                                srcPos += pixelStride;
+                            }
+                        }
+                    }
+                    int dstPos = dstStart + dstRow * dstWidth * 4;
+                    for (int i = 0; i < sums.length; i++) {
+                        out.put(dstPos + i, (byte) (sums[i] / area));
+                    }
+                }
+            }
+        });
+        dst.position(dstStart + dstWidth * dstHeight * 4);
+    }
+
+    private static void checkArgs(ByteBuffer src, int width, int height, int pixelStride, int rowStride, int dstBytes, ByteBuffer dst) {
+        if (width <= 0 || height <= 0) {
+            throw new IllegalArgumentException("width and height must be > 0: " + width + "x" + height);
+        }
+        if (pixelStride < 4) {
+            throw new IllegalArgumentException("pixelStride must be >= 4 for RGBA: " + pixelStride);
+        }
+        int rowBytes = PixelUtils.getRowBytes(width, pixelStride);
+        if (rowStride < rowBytes) {
+            throw new IllegalArgumentException("rowStride " + rowStride + " < rowBytes " + rowBytes);
+        }
+        int srcBytes = rowStride * (height - 1) + rowBytes;
+        if (src.remaining() < srcBytes) {
+            throw new IllegalArgumentException("src remaining " + src.remaining() + " < " + srcBytes);
+        }
+        if (dst.remaining() < dstBytes) {
+            throw new IllegalArgumentException("dst remaining " + dst.remaining() + " < " + dstBytes);
+        }
+    }
+
+    /**
+     * 行带处理(在线程池的线程中并发调用，不同调用的行区间不重叠)
+     */
+    public interface RowKernel {
+
+        /**
+         * 处理行区间
+         *
+         * @param startRow 起始行(包含)
+         * @param endRow   结束行(不包含)
+         */
+        void processRows(int startRow, int endRow);
+
+    }
+
+    /**
+     * 默认线程池(首次使用时创建；ForkJoinPool.commonPool 需要 Android 7.0)
+     */
+    private static class DefaultPoolHolder {
+
+        private static final ForkJoinPool POOL = new ForkJoinPool(Runtime.getRuntime().availableProcessors());
+
+    }
+
+    /**
+     * 二分拆分行区间，直到不超过行带大小
+     */
+    private static class BandTask extends RecursiveAction {
+
+        private static final long serialVersionUID = 1L;
+
+        private final RowKernel kernel;
+        private final int startRow;
+        private final int endRow;
+        private final int bandRows;
+
+        private BandTask(RowKernel kernel, int startRow, int endRow, int bandRows) {
+            this.kernel = kernel;
+            this.startRow = startRow;
+            this.endRow = endRow;
+            this.bandRows = bandRows;
+        }
+
+        @Override
+        protected void compute() {
+            int rows = endRow - startRow;
+            if (rows <= bandRows) {
+                kernel.processRows(startRow, endRow);
+                return;
+            }
+            int middleRow = startRow + rows / 2;
+            invokeAll(new BandTask(kernel, startRow, middleRow, bandRows),
+                    new BandTask(kernel, middleRow, endRow, bandRows));
+        }
+
+    }
+
+}
@@ -0,0 +1,163 @@
+package com.mask.mediaprojection.entity;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * ScreenFrame 裁剪及遮挡
+ * Created by agent on 2026/10/18
+ */
+public class ScreenFrameTest {
+
+    private static final int WIDTH = 10;
+    private static final int HEIGHT = 8;
+    private static final int PIXEL_STRIDE = 4;
+    private static final int ROW_STRIDE = WIDTH * PIXEL_STRIDE + 8;
+    private static final int PIXEL_FORMAT = 1;// PixelFormat.RGBA_8888
+    private static final long TIMESTAMP = 123456789L;
+
+    private static byte pixel(int x, int y, int channel) {
+        return (byte) (x * 31 + y * 7 + channel * 3 + 1);
+    }
+
+    private static ScreenFrame createFrame(TileRect[] masks) {
+        ByteBuffer buffer = ByteBuffer.allocate(ROW_STRIDE * (HEIGHT - 1) + WIDTH * PIXEL_STRIDE);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                for (int c = 0; c < PIXEL_STRIDE; c++) {
+                    buffer.put(y * ROW_STRIDE + x * PIXEL_STRIDE + c, pixel(x, y, c));
+                }
+            }
+        }
+        return new ScreenFrame(buffer, PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, TIMESTAMP, masks);
+    }
+
+    private static boolean isMasked(TileRect[] masks, int x, int y) {
+        for (TileRect mask : masks) {
+            if (x >= mask.getLeft() && x < mask.getRight() && y >= mask.getTop() && y < mask.getBottom()) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 校验复制结果：遮挡区域为不透明黑色，其他为原像素
+     *
+     * @param masks 遮挡区域(原帧坐标)
+     */
+    private static void assertCopy(ByteBuffer dst, int left, int top, int width, int height, TileRect[] masks) {
+        assertEquals(width * height * PIXEL_STRIDE, dst.position());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                boolean isMasked = isMasked(masks, left + x, top + y);
+                for (int c = 0; c < PIXEL_STRIDE; c++) {
+                    byte expected = isMasked ? (c == 3 ? (byte) 0xFF : 0) : pixel(left + x, top + y, c);
+                    int index = (y * width + x) * PIXEL_STRIDE + c;
+                    assertEquals("pixel " + x + "," + y + " channel " + c, expected, dst.get(index));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void cropWithoutMasks() {
+        ScreenFrame frame = createFrame(null).crop(3, 2, 5, 4);
+        assertEquals(5, frame.getWidth());
+        assertEquals(4, frame.getHeight());
+        assertEquals(ROW_STRIDE, frame.getRowStride());
+        assertEquals(TIMESTAMP, frame.getTimestamp());
+        assertFalse(frame.hasMasks());
+
+        ByteBuffer dst = ByteBuffer.allocate(frame.getFrameBytes());
+        frame.copyTo(dst);
+        assertCopy(dst, 3, 2, 5, 4, new TileRect[0]);
+    }
+
+    @Test
+    public void cropToBottomRightCorner() {
+        // 最后一行没有行填充，裁剪到右下角不能越界
+        ScreenFrame frame = createFrame(null).crop(WIDTH - 2, HEIGHT - 3, 2, 3);
+        ByteBuffer dst = ByteBuffer.allocate(frame.getFrameBytes());
+        frame.copyTo(dst);
+        assertCopy(dst, WIDTH - 2, HEIGHT - 3, 2, 3, new TileRect[0]);
+    }
+
+    @Test
+    public void cropThenCopyMasksStraddlingBorder() {
+        // 按 left 升序
+        TileRect[] masks = {
+                new TileRect(0, 0, 4, 3),// 跨左/上边
+                new TileRect(0, 7, 1, 8),// 在裁剪区域外
+                new TileRect(3, 5, 5, 8),// 跨下边
+                new TileRect(7, 2, 10, 6),// 跨右边
+        };
+        int left = 2;
+        int top = 1;
+        int width = 6;
+        int height = 5;
+        ScreenFrame frame = createFrame(masks).crop(left, top, width, height);
+
+        assertTrue(frame.hasMasks());
+        assertArrayEquals(new TileRect[]{
+                new TileRect(0, 0, 2, 2),
+                new TileRect(1, 4, 3, 5),
+                new TileRect(5, 1, 6, 5),
+        }, frame.getMasks());
+
+        ByteBuffer dst = ByteBuffer.allocate(frame.getFrameBytes());
+        frame.copyTo(dst);
+        assertCopy(dst, left, top, width, height, masks);
+    }
+
+    @Test
+    public void cropOutsideMasks() {
+        TileRect[] masks = {new TileRect(0, 0, 2, 2)};
+        ScreenFrame frame = createFrame(masks).crop(4, 4, 3, 3);
+        assertFalse(frame.hasMasks());
+        assertNull(frame.getMasks());
+
+        ByteBuffer dst = ByteBuffer.allocate(frame.getFrameBytes());
+        frame.copyTo(dst);
+        assertCopy(dst, 4, 4, 3, 3, masks);
+    }
+
+    @Test
+    public void cropOfCrop() {
+        TileRect[] masks = {new TileRect(4, 3, 6, 5)};
+        ScreenFrame frame = createFrame(masks).crop(2, 1, 7, 6).crop(1, 1, 4, 4);
+        ByteBuffer dst = ByteBuffer.allocate(frame.getFrameBytes());
+        frame.copyTo(dst);
+        assertCopy(dst, 3, 2, 4, 4, masks);
+    }
+
+    @Test
+    public void cropRejectsOutOfBounds() {
+        ScreenFrame frame = createFrame(null);
+        int[][] regions = {
+                {-1, 0, 2, 2},
+                {0, -1, 2, 2},
+                {0, 0, 0, 1},
+                {0, 0, 1, 0},
+                {WIDTH - 1, 0, 2, 1},
+                {0, HEIGHT - 1, 1, 2},
+        };
+        for (int[] region : regions) {
+            try {
+                frame.crop(region[0], region[1], region[2], region[3]);
+                fail("region " + region[0] + "," + region[1] + " " + region[2] + "x" + region[3]);
+            } catch (IllegalArgumentException expected) {
+                // expected
+            }
+        }
+    }
+
+}
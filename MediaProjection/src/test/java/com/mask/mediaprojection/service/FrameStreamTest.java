@@ -0,0 +1,171 @@
+package com.mask.mediaprojection.service;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.FrameStreamConfig;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+import com.mask.mediaprojection.interfaces.FrameListener;
+import com.mask.mediaprojection.utils.MediaProjectionMetrics;
+
+import org.junit.After;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FrameStream 丢帧时的差异合并及监听抛出异常
+ * Created by agent on 2026/10/18
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class FrameStreamTest {
+
+    private static final int WIDTH = 32;
+    private static final int HEIGHT = 16;
+    private static final int PIXEL_STRIDE = 4;
+    private static final int PIXEL_FORMAT = 1;// PixelFormat.RGBA_8888
+    private static final int TILE_SIZE = 8;
+    private static final long TIMEOUT_SECONDS = 10;
+
+    private final ByteBuffer pixels = ByteBuffer.allocate(WIDTH * HEIGHT * PIXEL_STRIDE);
+    private long timestamp;
+    private FrameStream frameStream;
+
+    @After
+    public void tearDown() {
+        if (frameStream != null) {
+            frameStream.stop();
+        }
+    }
+
+    private void setPixel(int x, int y, int value) {
+        pixels.putInt((y * WIDTH + x) * PIXEL_STRIDE, value);
+    }
+
+    private void offer() {
+        ScreenFrame frame = new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE,
+                WIDTH * PIXEL_STRIDE, ++timestamp);
+        if (frameStream.accept(frame.getTimestamp())) {
+            frameStream.offer(frame);
+        }
+    }
+
+    /**
+     * 阻塞在第一帧的监听，记录之后的差异
+     */
+    private static class BlockingListener extends FrameListener {
+
+        private final CountDownLatch firstFrameLatch = new CountDownLatch(1);
+        private final CountDownLatch releaseLatch = new CountDownLatch(1);
+        private final CountDownLatch doneLatch;
+        private final List<Long> timestamps = Collections.synchronizedList(new ArrayList<Long>());
+        private final List<FrameDiff> diffs = Collections.synchronizedList(new ArrayList<FrameDiff>());
+
+        private BlockingListener(int frameCount) {
+            doneLatch = new CountDownLatch(frameCount);
+        }
+
+        @Override
+        public void onFrame(ScreenFrame frame, FrameDiff diff) {
+            timestamps.add(frame.getTimestamp());
+            diffs.add(diff);
+            if (firstFrameLatch.getCount() > 0) {
+                firstFrameLatch.countDown();
+                try {
+                    releaseLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            doneLatch.countDown();
+        }
+
+    }
+
+    /**
+     * 等待 已分发的帧数(之后入队的帧不会挤掉未分发的帧)
+     */
+    private static void awaitFrames(BlockingListener listener, int count) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + TimeUnit.SECONDS.toMillis(TIMEOUT_SECONDS);
+        while (listener.timestamps.size() < count) {
+            assertTrue("frame stream stalled", System.currentTimeMillis() < deadline);
+            Thread.sleep(5);
+        }
+    }
+
+    @Test
+    public void mergesDiffOfDroppedFrame() throws Exception {
+        BlockingListener listener = new BlockingListener(3);
+        FrameStreamConfig config = new FrameStreamConfig().setQueueCapacity(1).setChangeDetection(TILE_SIZE, 1);
+        frameStream = new FrameStream(config, listener, new MediaProjectionMetrics());
+
+        offer();
+        assertTrue(listener.firstFrameLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // 监听阻塞期间：第2帧入队后被第3帧挤掉
+        setPixel(0, 0, 1);
+        offer();
+        setPixel(20, 12, 2);
+        offer();
+        assertEquals(1, frameStream.getDroppedCount());
+        listener.releaseLatch.countDown();
+        awaitFrames(listener, 2);
+
+        // 第4帧：只有第4帧自身的变化
+        setPixel(31, 15, 3);
+        offer();
+        assertTrue(listener.doneLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+
+        assertEquals(Arrays.asList(1L, 3L, 4L), listener.timestamps);
+        assertTrue(listener.diffs.get(0).isFullFrame());
+        // 第3帧包含被丢弃的第2帧的变化
+        FrameDiff merged = listener.diffs.get(1);
+        assertFalse(merged.isFullFrame());
+        assertEquals(Arrays.asList(new TileRect(0, 0, 8, 8), new TileRect(16, 8, 24, 16)), merged.getDirtyRects());
+        assertEquals(Collections.singletonList(new TileRect(24, 8, 32, 16)), listener.diffs.get(2).getDirtyRects());
+    }
+
+    @Test
+    public void stopsWhenListenerThrows() throws Exception {
+        final RuntimeException exception = new IllegalStateException("listener failed");
+        final CountDownLatch errorLatch = new CountDownLatch(1);
+        final Throwable[] error = new Throwable[1];
+        frameStream = new FrameStream(new FrameStreamConfig(), new FrameListener() {
+            @Override
+            public void onFrame(ScreenFrame frame) {
+                throw exception;
+            }
+
+            @Override
+            public void onError(Throwable throwable) {
+                error[0] = throwable;
+                errorLatch.countDown();
+            }
+        }, new MediaProjectionMetrics());
+
+        offer();
+        assertTrue(errorLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        assertEquals(exception, error[0]);
+        assertTrue(frameStream.isStopped());
+        assertEquals(0, frameStream.getDeliveredCount());
+
+        // 停止后不再接收帧
+        offer();
+        assertEquals(1, frameStream.getReceivedCount());
+    }
+
+}
@@ -0,0 +1,295 @@
+package com.mask.mediaprojection.service;
+
+import android.app.Activity;
+import android.app.Application;
+import android.content.Context;
+import android.content.Intent;
+import android.graphics.Rect;
+import android.hardware.display.VirtualDisplay;
+import android.media.projection.MediaProjection;
+import android.media.projection.MediaProjectionManager;
+import android.util.DisplayMetrics;
+
+import com.mask.mediaprojection.entity.FailReason;
+import com.mask.mediaprojection.interfaces.MediaRecorderCallback;
+import com.mask.mediaprojection.interfaces.ScreenCaptureCallback;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.robolectric.Robolectric;
+import org.robolectric.RobolectricTestRunner;
+import org.robolectric.RuntimeEnvironment;
+import org.robolectric.android.controller.ServiceController;
+import org.robolectric.annotation.Config;
+import org.robolectric.annotation.LooperMode;
+import org.robolectric.shadow.api.Shadow;
+import org.robolectric.shadows.ShadowContextImpl;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * MediaProjectionService 多线程并发调用截图/录制
+ * <p>
+ * 各线程同时调用 capture/startRecording/stopRecording，全部经采集线程串行执行，
+ * 结束后校验每个请求只回调一次、录制的开始与结束成对、服务状态一致；
+ * 另外校验有遮挡区域但不能遮挡录制时(没有GPU)录制失败
+ * Created by agent on 2026/10/18
+ */
+@RunWith(RobolectricTestRunner.class)
+@Config(sdk = 28, manifest = Config.NONE)
+@LooperMode(LooperMode.Mode.PAUSED)
+public class MediaProjectionServiceStressTest {
+
+    private static final int THREAD_COUNT = 8;
+    private static final int CALLS_PER_THREAD = 200;
+    private static final long TIMEOUT_SECONDS = 30;
+
+    private ServiceController<MediaProjectionService> controller;
+    private MediaProjectionService service;
+    private Thread captureThread;
+
+    @Before
+    public void setUp() throws Exception {
+        MediaProjection mediaProjection = mock(MediaProjection.class);
+        when(mediaProjection.createVirtualDisplay(anyString(), anyInt(), anyInt(), anyInt(), anyInt(),
+                any(), any(), any())).thenReturn(mock(VirtualDisplay.class));
+        MediaProjectionManager manager = mock(MediaProjectionManager.class);
+        when(manager.getMediaProjection(eq(Activity.RESULT_OK), any(Intent.class))).thenReturn(mediaProjection);
+        Application application = RuntimeEnvironment.application;
+        ShadowContextImpl shadowContext = Shadow.extract(application.getBaseContext());
+        shadowContext.setSystemService(Context.MEDIA_PROJECTION_SERVICE, manager);
+
+        controller = Robolectric.buildService(MediaProjectionService.class).create();
+        service = controller.get();
+        service.setCallbackExecutor(new Executor() {
+            @Override
+            public void execute(Runnable command) {
+                command.run();
+            }
+        });
+
+        DisplayMetrics displayMetrics = new DisplayMetrics();
+        displayMetrics.widthPixels = 720;
+        displayMetrics.heightPixels = 1280;
+        displayMetrics.densityDpi = 320;
+        service.createVirtualDisplay(Activity.RESULT_OK, new Intent(), displayMetrics, true, true);
+
+        // 等待创建完成，并记录采集线程
+        final Thread[] thread = new Thread[1];
+        final CountDownLatch latch = new CountDownLatch(1);
+        service.capture(new ScreenCaptureCallback() {
+            @Override
+            public void onFail(FailReason reason, Throwable throwable) {
+                thread[0] = Thread.currentThread();
+                latch.countDown();
+            }
+        });
+        assertTrue(latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        captureThread = thread[0];
+        assertEquals("MediaProjection-Capture", captureThread.getName());
+    }
+
+    @After
+    public void tearDown() {
+        controller.destroy();
+    }
+
+    /**
+     * 截图回调：记录回调次数，所有回调都应在采集线程
+     */
+    private class CountingCaptureCallback extends ScreenCaptureCallback {
+
+        private final AtomicInteger resultCount = new AtomicInteger();
+        private volatile FailReason failReason;
+        private volatile Thread thread;
+
+        @Override
+        public void onFail(FailReason reason, Throwable throwable) {
+            failReason = reason;
+            thread = Thread.currentThread();
+            resultCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 录制回调：记录结果
+     */
+    private class CountingRecorderCallback extends MediaRecorderCallback {
+
+        private final AtomicInteger resultCount = new AtomicInteger();
+        private volatile FailReason failReason;
+        private volatile File file;
+        private volatile Thread thread;
+
+        @Override
+        public void onSuccess(File file) {
+            this.file = file;
+            thread = Thread.currentThread();
+            resultCount.incrementAndGet();
+        }
+
+        @Override
+        public void onFail(FailReason reason, Throwable throwable) {
+            failReason = reason;
+            thread = Thread.currentThread();
+            resultCount.incrementAndGet();
+        }
+
+    }
+
+    /**
+     * 等待 采集线程执行完之前提交的所有任务
+     */
+    private void drainCaptureThread() throws InterruptedException {
+        final CountDownLatch latch = new CountDownLatch(1);
+        service.capture(new ScreenCaptureCallback() {
+            @Override
+            public void onFail(FailReason reason, Throwable throwable) {
+                latch.countDown();
+            }
+        });
+        assertTrue("capture thread stalled", latch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+    }
+
+    @Test
+    public void concurrentCaptureAndRecording() throws Exception {
+        final List<CountingCaptureCallback> captureCallbacks = Collections.synchronizedList(new ArrayList<CountingCaptureCallback>());
+        final List<CountingRecorderCallback> recorderCallbacks = Collections.synchronizedList(new ArrayList<CountingRecorderCallback>());
+        final CountDownLatch startLatch = new CountDownLatch(1);
+        final CountDownLatch doneLatch = new CountDownLatch(THREAD_COUNT);
+        final AtomicInteger stopCount = new AtomicInteger();
+        for (int i = 0; i < THREAD_COUNT; i++) {
+            final Random random = new Random(i);
+            new Thread(new Runnable() {
+                @Override
+                public void run() {
+                    try {
+                        startLatch.await();
+                        for (int j = 0; j < CALLS_PER_THREAD; j++) {
+                            int action = random.nextInt(3);
+                            if (action == 0) {
+                                CountingCaptureCallback callback = new CountingCaptureCallback();
+                                captureCallbacks.add(callback);
+                                service.capture(callback);
+                            } else if (action == 1) {
+                                CountingRecorderCallback callback = new CountingRecorderCallback();
+                                recorderCallbacks.add(callback);
+                                service.startRecording(callback);
+                            } else {
+                                stopCount.incrementAndGet();
+                                service.stopRecording();
+                            }
+                        }
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    } finally {
+                        doneLatch.countDown();
+                    }
+                }
+            }, "Caller-" + i).start();
+        }
+        startLatch.countDown();
+        assertTrue(doneLatch.await(TIMEOUT_SECONDS, TimeUnit.SECONDS));
+        // 结束最后一次录制
+        service.stopRecording();
+        drainCaptureThread();
+
+        // 每个截图请求只回调一次，且在采集线程
+        for (CountingCaptureCallback callback : captureCallbacks) {
+            assertEquals(1, callback.resultCount.get());
+            assertEquals(captureThread, callback.thread);
+            assertEquals(FailReason.NO_NEW_FRAME, callback.failReason);
+        }
+
+        // 每个录制请求只回调一次：开始时正在录制则 BUSY，否则在之后的 stop 时完成
+        int startedCount = 0;
+        for (CountingRecorderCallback callback : recorderCallbacks) {
+            assertEquals(1, callback.resultCount.get());
+            assertEquals(captureThread, callback.thread);
+            if (callback.failReason == FailReason.BUSY) {
+                continue;
+            }
+            startedCount++;
+            assertNull(callback.failReason);
+            assertNotNull(callback.file);
+        }
+        assertTrue(startedCount > 0);
+        // 每次成功开始都对应一次 stop
+        assertTrue(startedCount <= stopCount.get() + 1);
+        assertEquals(recorderCallbacks.size() - startedCount, countBusy(recorderCallbacks));
+
+        // 状态一致：可以重新开始并停止录制
+        CountingRecorderCallback callback = new CountingRecorderCallback();
+        service.startRecording(callback);
+        service.stopRecording();
+        drainCaptureThread();
+        assertEquals(1, callback.resultCount.get());
+        assertNull(callback.failReason);
+        assertNotNull(callback.file);
+    }
+
+    @Test
+    public void redactedRecordingFailsWithoutSharedDisplay() throws Exception {
+        // 没有GPU时不能创建共用 VirtualDisplay，有遮挡区域的录制不能开始
+        service.setRedactionRects(Collections.singletonList(new Rect(0, 0, 100, 100)));
+        CountingRecorderCallback callback = new CountingRecorderCallback();
+        service.startRecording(callback);
+        drainCaptureThread();
+        assertEquals(1, callback.resultCount.get());
+        assertEquals(FailReason.REDACTION_UNSUPPORTED, callback.failReason);
+
+        // 录制中设置遮挡区域：停止录制，返回设置之前录制的文件
+        service.setRedactionRects(null);
+        callback = new CountingRecorderCallback();
+        service.startRecording(callback);
+        drainCaptureThread();
+        assertEquals(0, callback.resultCount.get());
+        service.setRedactionRects(Collections.singletonList(new Rect(0, 0, 100, 100)));
+        drainCaptureThread();
+        assertEquals(2, callback.resultCount.get());
+        assertEquals(FailReason.REDACTION_UNSUPPORTED, callback.failReason);
+        assertNotNull(callback.file);
+
+        // 取消遮挡后可以正常录制
+        service.setRedactionRects(null);
+        callback = new CountingRecorderCallback();
+        service.startRecording(callback);
+        service.stopRecording();
+        drainCaptureThread();
+        assertEquals(1, callback.resultCount.get());
+        assertNull(callback.failReason);
+    }
+
+    private static int countBusy(List<CountingRecorderCallback> callbacks) {
+        int count = 0;
+        for (CountingRecorderCallback callback : callbacks) {
+            if (callback.failReason == FailReason.BUSY) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+}
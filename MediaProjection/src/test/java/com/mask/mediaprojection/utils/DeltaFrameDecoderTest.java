@@ -0,0 +1,292 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+/**
+ * DeltaFrameEncoder/DeltaFrameDecoder 编解码
+ * Created by agent on 2026/10/18
+ */
+public class DeltaFrameDecoderTest {
+
+    private static final int WIDTH = 40;
+    private static final int HEIGHT = 24;
+    private static final int PIXEL_STRIDE = 4;
+    private static final int ROW_STRIDE = WIDTH * PIXEL_STRIDE + 16;// 有行填充
+    private static final int PIXEL_FORMAT = 1;// PixelFormat.RGBA_8888
+    private static final int TILE_SIZE = 8;
+
+    private DeltaFrameEncoder encoder;
+    private DeltaFrameDecoder decoder;
+    private ByteBuffer pixels;
+    private long timestamp;
+
+    @Before
+    public void setUp() {
+        encoder = new DeltaFrameEncoder(TILE_SIZE, 1, DeltaFrameEncoder.DEFAULT_KEY_FRAME_INTERVAL);
+        decoder = new DeltaFrameDecoder();
+        pixels = ByteBuffer.allocate(ROW_STRIDE * (HEIGHT - 1) + WIDTH * PIXEL_STRIDE);
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                fill(x, y, (byte) (x * 7 + y * 3));
+            }
+        }
+    }
+
+    private void fill(int x, int y, byte value) {
+        for (int c = 0; c < PIXEL_STRIDE; c++) {
+            pixels.put(y * ROW_STRIDE + x * PIXEL_STRIDE + c, (byte) (value + c));
+        }
+    }
+
+    private void fillRect(int left, int top, int width, int height, byte value) {
+        for (int y = top; y < top + height; y++) {
+            for (int x = left; x < left + width; x++) {
+                fill(x, y, value);
+            }
+        }
+    }
+
+    private ScreenFrame createFrame() {
+        return new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, ++timestamp);
+    }
+
+    private ByteBuffer encode() {
+        ByteBuffer out = ByteBuffer.allocate(encoder.getMaxEncodedBytes(WIDTH, HEIGHT, PIXEL_STRIDE));
+        encoder.encode(createFrame(), out);
+        out.flip();
+        return out;
+    }
+
+    /**
+     * 校验 解码结果与当前像素一致
+     */
+    private void assertDecoded(ScreenFrame frame) {
+        assertEquals(WIDTH, frame.getWidth());
+        assertEquals(HEIGHT, frame.getHeight());
+        assertEquals(PIXEL_FORMAT, frame.getPixelFormat());
+        ByteBuffer buffer = frame.getBuffer();
+        int rowBytes = frame.getRowStride();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH * PIXEL_STRIDE; x++) {
+                assertEquals("byte " + x + "," + y, pixels.get(y * ROW_STRIDE + x), buffer.get(y * rowBytes + x));
+            }
+        }
+    }
+
+    /**
+     * 校验 解码失败且不修改当前帧
+     */
+    private void assertRejected(ByteBuffer packet, Class<? extends RuntimeException> type) {
+        ScreenFrame before = decoder.getFrame();
+        int position = packet.position();
+        try {
+            decoder.decode(packet);
+            fail("expected " + type.getSimpleName());
+        } catch (RuntimeException e) {
+            assertEquals(type, e.getClass());
+        }
+        assertEquals(position, packet.position());
+        if (before == null) {
+            assertNull(decoder.getFrame());
+        } else {
+            ScreenFrame after = decoder.getFrame();
+            assertEquals(before.getTimestamp(), after.getTimestamp());
+            assertDecoded(after);
+        }
+    }
+
+    private static ByteBuffer header(byte type, int pixelStride, int width, int height, int rectCount, int extraBytes) {
+        ByteBuffer packet = ByteBuffer.allocate(DeltaFrameEncoder.HEADER_BYTES + extraBytes).order(ByteOrder.BIG_ENDIAN);
+        packet.putInt(DeltaFrameEncoder.MAGIC);
+        packet.put(type);
+        packet.put((byte) pixelStride);
+        packet.putInt(PIXEL_FORMAT);
+        packet.putInt(width);
+        packet.putInt(height);
+        packet.putLong(99);
+        packet.putInt(rectCount);
+        return packet;
+    }
+
+    @Test
+    public void roundTripKeyAndDeltaFrames() {
+        ByteBuffer keyFrame = encode();
+        assertDecoded(decoder.decode(keyFrame));
+        assertTrue(decoder.isLastKeyFrame());
+        assertFalse(keyFrame.hasRemaining());
+
+        // 修改跨分块的区域
+        fillRect(5, 3, 12, 6, (byte) 0x7F);
+        fillRect(WIDTH - 1, HEIGHT - 1, 1, 1, (byte) 0x10);
+        ByteBuffer deltaFrame = encode();
+        ScreenFrame frame = decoder.decode(deltaFrame);
+        assertFalse(decoder.isLastKeyFrame());
+        assertTrue(decoder.getLastRectCount() > 0);
+        assertTrue(deltaFrame.limit() < keyFrame.limit());
+        assertEquals(timestamp, frame.getTimestamp());
+        assertDecoded(frame);
+
+        // 未变化时不输出
+        ByteBuffer out = ByteBuffer.allocate(encoder.getMaxEncodedBytes(WIDTH, HEIGHT, PIXEL_STRIDE));
+        assertEquals(0, encoder.encode(createFrame(), out));
+        assertEquals(0, out.position());
+    }
+
+    @Test
+    public void decodesConsecutivePackets() {
+        // 多个编码结果连续写入同一个Buffer
+        ByteBuffer stream = ByteBuffer.allocate(encoder.getMaxEncodedBytes(WIDTH, HEIGHT, PIXEL_STRIDE) * 3);
+        encoder.encode(createFrame(), stream);
+        fillRect(0, 0, 3, 3, (byte) 1);
+        encoder.encode(createFrame(), stream);
+        fillRect(30, 20, 10, 4, (byte) 2);
+        encoder.encode(createFrame(), stream);
+        stream.flip();
+
+        decoder.decode(stream);
+        decoder.decode(stream);
+        assertDecoded(decoder.decode(stream));
+        assertFalse(stream.hasRemaining());
+    }
+
+    @Test
+    public void masksRedactedPixels() {
+        TileRect[] masks = {new TileRect(3, 2, 13, 9), new TileRect(20, 10, 30, 20)};
+        ByteBuffer out = ByteBuffer.allocate(encoder.getMaxEncodedBytes(WIDTH, HEIGHT, PIXEL_STRIDE));
+        encoder.encode(new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, ++timestamp, masks), out);
+        out.flip();
+        ScreenFrame frame = decoder.decode(out);
+
+        // 遮挡区域内的变化不输出
+        fillRect(4, 3, 5, 5, (byte) 0x33);
+        out.clear();
+        assertEquals(0, encoder.encode(new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, ++timestamp, masks), out));
+
+        // 跨遮挡边界的变化：只输出遮挡外的像素
+        fillRect(10, 0, 8, 4, (byte) 0x44);
+        out.clear();
+        assertTrue(encoder.encode(new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, ++timestamp, masks), out) > 0);
+        out.flip();
+        frame = decoder.decode(out);
+
+        ByteBuffer buffer = frame.getBuffer();
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 0; x < WIDTH; x++) {
+                boolean isMasked = false;
+                for (TileRect mask : masks) {
+                    isMasked |= x >= mask.getLeft() && x < mask.getRight() && y >= mask.getTop() && y < mask.getBottom();
+                }
+                for (int c = 0; c < PIXEL_STRIDE; c++) {
+                    byte expected = isMasked ? (c == 3 ? (byte) 0xFF : 0) : pixels.get(y * ROW_STRIDE + x * PIXEL_STRIDE + c);
+                    assertEquals("pixel " + x + "," + y + " channel " + c, expected, buffer.get(y * frame.getRowStride() + x * PIXEL_STRIDE + c));
+                }
+            }
+        }
+    }
+
+    @Test
+    public void rejectsDeltaFrameBeforeKeyFrame() {
+        encode();
+        fillRect(0, 0, 4, 4, (byte) 3);
+        assertRejected(encode(), IllegalStateException.class);
+    }
+
+    @Test
+    public void rejectsTruncatedPacketWithoutChangingFrame() {
+        decoder.decode(encode());
+        // 保存修改前的像素，用于校验失败后画布未变化
+        ByteBuffer decoded = ByteBuffer.allocate(pixels.capacity());
+        decoded.put(pixels.duplicate()).clear();
+        fillRect(0, 0, WIDTH, HEIGHT / 2, (byte) 9);
+        ByteBuffer original = encode();
+        pixels = decoded;
+        for (int length : new int[]{0, 3, DeltaFrameEncoder.HEADER_BYTES - 1, DeltaFrameEncoder.HEADER_BYTES + 5,
+                original.limit() / 2, original.limit() - 1}) {
+            ByteBuffer packet = original.duplicate();
+            packet.limit(length);
+            assertRejected(packet, IllegalArgumentException.class);
+        }
+    }
+
+    @Test
+    public void rejectsBadHeader() {
+        assertRejected(ByteBuffer.allocate(DeltaFrameEncoder.HEADER_BYTES), IllegalArgumentException.class);
+        int max = DeltaFrameEncoder.MAX_DIMENSION;
+        int[][] headers = {
+                {0, WIDTH, HEIGHT, 0},
+                {-1, WIDTH, HEIGHT, 0},
+                {PIXEL_STRIDE, 0, HEIGHT, 0},
+                {PIXEL_STRIDE, WIDTH, -1, 0},
+                {PIXEL_STRIDE, max + 1, HEIGHT, 0},
+                {PIXEL_STRIDE, WIDTH, Integer.MAX_VALUE, 0},
+                {Byte.MAX_VALUE, max, max, 0},// 帧字节数超过 int 范围
+                {PIXEL_STRIDE, WIDTH, HEIGHT, -1},
+        };
+        for (int[] header : headers) {
+            ByteBuffer packet = header(DeltaFrameEncoder.TYPE_KEY_FRAME, header[0], header[1], header[2], header[3], 0);
+            packet.flip();
+            assertRejected(packet, IllegalArgumentException.class);
+        }
+        ByteBuffer packet = header((byte) 7, PIXEL_STRIDE, WIDTH, HEIGHT, 0, 0);
+        packet.flip();
+        assertRejected(packet, IllegalArgumentException.class);
+    }
+
+    @Test
+    public void rejectsMalformedRectsWithoutChangingFrame() {
+        decoder.decode(encode());
+
+        // 区域数远大于数据长度
+        ByteBuffer packet = header(DeltaFrameEncoder.TYPE_DELTA_FRAME, PIXEL_STRIDE, WIDTH, HEIGHT, Integer.MAX_VALUE, 0);
+        packet.flip();
+        assertRejected(packet, IllegalArgumentException.class);
+
+        // 第一个区域有效，第二个区域超出帧：第一个区域也不能写入
+        int rectBytes = 2 * 2 * PIXEL_STRIDE;
+        packet = header(DeltaFrameEncoder.TYPE_DELTA_FRAME, PIXEL_STRIDE, WIDTH, HEIGHT, 2,
+                2 * DeltaFrameEncoder.RECT_HEADER_BYTES + 2 * rectBytes);
+        packet.putShort((short) 0).putShort((short) 0).putShort((short) 2).putShort((short) 2);
+        packet.put(new byte[rectBytes]);
+        packet.putShort((short) (WIDTH - 1)).putShort((short) 0).putShort((short) 2).putShort((short) 2);
+        packet.put(new byte[rectBytes]);
+        packet.flip();
+        assertRejected(packet, IllegalArgumentException.class);
+
+        // 区域尺寸为最大值(ushort)
+        packet = header(DeltaFrameEncoder.TYPE_DELTA_FRAME, PIXEL_STRIDE, WIDTH, HEIGHT, 1, DeltaFrameEncoder.RECT_HEADER_BYTES);
+        packet.putShort((short) 0).putShort((short) 0).putShort((short) 0xFFFF).putShort((short) 0xFFFF);
+        packet.flip();
+        assertRejected(packet, IllegalArgumentException.class);
+
+        // 尺寸与画布不一致的差量帧
+        packet = header(DeltaFrameEncoder.TYPE_DELTA_FRAME, PIXEL_STRIDE, WIDTH + 1, HEIGHT, 0, 0);
+        packet.flip();
+        assertRejected(packet, IllegalStateException.class);
+    }
+
+    @Test
+    public void rejectsTruncatedKeyFrameOfNewSize() {
+        decoder.decode(encode());
+        // 新尺寸的关键帧数据不完整，不能替换画布
+        ByteBuffer packet = header(DeltaFrameEncoder.TYPE_KEY_FRAME, PIXEL_STRIDE, 16, 16, 1,
+                DeltaFrameEncoder.RECT_HEADER_BYTES + 10);
+        packet.putShort((short) 0).putShort((short) 0).putShort((short) 16).putShort((short) 16);
+        packet.put(new byte[10]);
+        packet.flip();
+        assertRejected(packet, IllegalArgumentException.class);
+    }
+
+}
@@ -0,0 +1,184 @@
+package com.mask.mediaprojection.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * EncodedRingBuffer 淘汰及读取
+ * Created by agent on 2026/10/18
+ */
+public class EncodedRingBufferTest {
+
+    private static final long FRAME_US = 33333;
+    private static final long LONG_DURATION_US = 3600 * 1000000L;
+
+    /**
+     * 创建 帧数据(内容由时间戳决定，读取错位时可以发现)
+     */
+    private static ByteBuffer frame(int size, long ptsUs) {
+        ByteBuffer data = ByteBuffer.allocate(size);
+        for (int i = 0; i < size; i++) {
+            data.put(i, (byte) (ptsUs / FRAME_US * 13 + i));
+        }
+        return data;
+    }
+
+    private static boolean add(EncodedRingBuffer ringBuffer, int index, int size, boolean isKeyFrame) {
+        long ptsUs = index * FRAME_US;
+        return ringBuffer.add(frame(size, ptsUs), ptsUs, isKeyFrame ? 1 : 0, isKeyFrame);
+    }
+
+    /**
+     * 添加 GOP(第一帧为关键帧)
+     *
+     * @return 下一帧的序号
+     */
+    private static int addGop(EncodedRingBuffer ringBuffer, int index, int frameCount, int size) {
+        for (int i = 0; i < frameCount; i++) {
+            assertTrue(add(ringBuffer, index + i, size, i == 0));
+        }
+        return index + frameCount;
+    }
+
+    /**
+     * 校验 所有帧可读取且数据正确，第一帧为关键帧
+     */
+    private static void assertReadable(EncodedRingBuffer ringBuffer) {
+        List<EncodedRingBuffer.Sample> samples = ringBuffer.getSamples();
+        assertTrue(samples.get(0).isKeyFrame());
+        long usedBytes = 0;
+        for (EncodedRingBuffer.Sample sample : samples) {
+            ByteBuffer dst = ByteBuffer.allocate(sample.getSize());
+            assertTrue(ringBuffer.read(sample, dst));
+            assertEquals(sample.getSize(), dst.position());
+            dst.flip();
+            assertEquals(frame(sample.getSize(), sample.getPresentationTimeUs()), dst);
+            usedBytes += sample.getSize();
+        }
+        assertEquals(usedBytes, ringBuffer.getUsedBytes());
+    }
+
+    @Test
+    public void dropsUntilFirstKeyFrame() {
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(1000, LONG_DURATION_US);
+        assertFalse(add(ringBuffer, 0, 10, false));
+        assertFalse(add(ringBuffer, 1, 10, false));
+        assertTrue(add(ringBuffer, 2, 10, true));
+        assertTrue(add(ringBuffer, 3, 10, false));
+        assertEquals(2, ringBuffer.getDroppedCount());
+        assertEquals(2, ringBuffer.getSampleCount());
+        assertReadable(ringBuffer);
+    }
+
+    @Test
+    public void evictsWholeGopWhenFull() {
+        // 每个GOP 4帧 x 100字节，可容纳2个半GOP
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(1000, LONG_DURATION_US);
+        int index = addGop(ringBuffer, 0, 4, 100);
+        index = addGop(ringBuffer, index, 4, 100);
+        assertEquals(0, ringBuffer.getEvictedCount());
+
+        index = addGop(ringBuffer, index, 4, 100);
+        // 第三个GOP写入第3帧时空间不足，整个第一个GOP被淘汰
+        assertEquals(4, ringBuffer.getEvictedCount());
+        assertEquals(8, ringBuffer.getSampleCount());
+        assertEquals(4 * FRAME_US, ringBuffer.getSamples().get(0).getPresentationTimeUs());
+        assertEquals(7 * FRAME_US, ringBuffer.getDurationUs());
+        assertReadable(ringBuffer);
+    }
+
+    @Test
+    public void wrapsAroundWithVariableSizes() {
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(1024, LONG_DURATION_US);
+        int index = 0;
+        for (int gop = 0; gop < 50; gop++) {
+            int size = 37 + (gop * 53) % 150;// 不整除容量，写入位置在不同处回绕
+            index = addGop(ringBuffer, index, 3, size);
+            assertTrue(ringBuffer.getUsedBytes() <= ringBuffer.getMaxBytes());
+            assertReadable(ringBuffer);
+        }
+        assertEquals(0, ringBuffer.getDroppedCount());
+        assertEquals(index, ringBuffer.getEvictedCount() + ringBuffer.getSampleCount());
+    }
+
+    @Test
+    public void keepsMemoryCapWhenGopFillsBuffer() {
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(500, LONG_DURATION_US);
+        int index = 0;
+        // 一个GOP超过内存上限：放不下的帧被丢弃，直到下一个关键帧
+        for (int i = 0; i < 8; i++) {
+            boolean isAdded = add(ringBuffer, index++, 100, i == 0);
+            assertEquals(i < 5, isAdded);
+        }
+        assertEquals(3, ringBuffer.getDroppedCount());
+        assertEquals(500, ringBuffer.getUsedBytes());
+
+        // 单帧超过内存上限
+        assertFalse(add(ringBuffer, index++, 501, true));
+        assertFalse(add(ringBuffer, index++, 10, false));
+        assertEquals(5, ringBuffer.getDroppedCount());
+
+        // 新的关键帧淘汰旧GOP后继续保存
+        assertTrue(add(ringBuffer, index++, 100, true));
+        assertTrue(add(ringBuffer, index, 100, false));
+        assertEquals(2, ringBuffer.getSampleCount());
+        assertEquals(5, ringBuffer.getEvictedCount());
+        assertReadable(ringBuffer);
+    }
+
+    @Test
+    public void trimsToDurationOnGopBoundary() {
+        // 保留10帧时长，每个GOP 4帧
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(100000, 10 * FRAME_US);
+        int index = 0;
+        for (int gop = 0; gop < 10; gop++) {
+            index = addGop(ringBuffer, index, 4, 10);
+            List<EncodedRingBuffer.Sample> samples = ringBuffer.getSamples();
+            assertTrue(samples.get(0).isKeyFrame());
+            // 淘汰第一个GOP后不足保留时长时才保留，因此时长在 [保留时长, 保留时长+GOP) 内
+            if (gop >= 3) {
+                long latestPtsUs = samples.get(samples.size() - 1).getPresentationTimeUs();
+                long secondKeyFramePtsUs = samples.get(4).getPresentationTimeUs();
+                assertTrue(latestPtsUs - secondKeyFramePtsUs < 10 * FRAME_US);
+                assertTrue(ringBuffer.getDurationUs() >= 10 * FRAME_US);
+            }
+        }
+        assertEquals(0, ringBuffer.getEvictedCount() % 4);
+        assertReadable(ringBuffer);
+    }
+
+    @Test
+    public void readFailsAfterEviction() {
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(800, LONG_DURATION_US);
+        int index = addGop(ringBuffer, 0, 4, 100);
+        index = addGop(ringBuffer, index, 4, 100);
+        List<EncodedRingBuffer.Sample> samples = ringBuffer.getSamples();
+
+        // 继续录制，第一个GOP被淘汰，读取较早的帧列表时跳过
+        addGop(ringBuffer, index, 2, 100);
+        ByteBuffer dst = ByteBuffer.allocate(100);
+        for (int i = 0; i < samples.size(); i++) {
+            dst.clear();
+            assertEquals("sample " + i, i >= 4, ringBuffer.read(samples.get(i), dst));
+        }
+
+        ringBuffer.clear();
+        dst.clear();
+        assertFalse(ringBuffer.read(samples.get(7), dst));
+        assertEquals(0, dst.position());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void readRejectsSmallDst() {
+        EncodedRingBuffer ringBuffer = new EncodedRingBuffer(1000, LONG_DURATION_US);
+        add(ringBuffer, 0, 100, true);
+        ringBuffer.read(ringBuffer.getSamples().get(0), ByteBuffer.allocate(99));
+    }
+
+}
@@ -0,0 +1,198 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.entity.TileRect;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * FrameDiffDetector 分块哈希差异检测
+ * Created by agent on 2026/10/18
+ */
+public class FrameDiffDetectorTest {
+
+    private static final int WIDTH = 40;// 最右一列分块不完整
+    private static final int HEIGHT = 20;
+    private static final int PIXEL_STRIDE = 4;
+    private static final int ROW_STRIDE = WIDTH * PIXEL_STRIDE + 8;// 有行填充
+    private static final int PIXEL_FORMAT = 1;// PixelFormat.RGBA_8888
+    private static final int TILE_SIZE = 8;
+    private static final int SAMPLE_STRIDE = 2;
+
+    private ByteBuffer pixels;
+
+    @Before
+    public void setUp() {
+        pixels = createPixels(WIDTH, HEIGHT, ROW_STRIDE);
+    }
+
+    private static ByteBuffer createPixels(int width, int height, int rowStride) {
+        ByteBuffer buffer = ByteBuffer.allocate(rowStride * (height - 1) + width * PIXEL_STRIDE);
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                buffer.putInt(y * rowStride + x * PIXEL_STRIDE, x * 31 + y * 1009);
+            }
+        }
+        return buffer;
+    }
+
+    private void setPixel(int x, int y, int value) {
+        pixels.putInt(y * ROW_STRIDE + x * PIXEL_STRIDE, value);
+    }
+
+    private ScreenFrame createFrame(TileRect[] masks) {
+        return new ScreenFrame(pixels.duplicate(), PIXEL_FORMAT, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, 0, masks);
+    }
+
+    private FrameDiff detect(FrameDiffDetector detector) {
+        return detector.detect(pixels, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE);
+    }
+
+    @Test
+    public void firstFrameIsFullFrame() {
+        FrameDiff diff = detect(new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE));
+        assertTrue(diff.isFullFrame());
+        assertEquals(5 * 3, diff.getTileCount());
+        assertEquals(diff.getTileCount(), diff.getDirtyTileCount());
+        // 每行分块合并为一个区域，最后一行分块高度不完整
+        assertEquals(Arrays.asList(new TileRect(0, 0, 40, 8), new TileRect(0, 8, 40, 16), new TileRect(0, 16, 40, 20)),
+                diff.getDirtyRects());
+        assertEquals(0, pixels.position());
+    }
+
+    @Test
+    public void unchangedFrame() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        FrameDiff diff = detect(detector);
+        assertFalse(diff.isChanged());
+        assertFalse(diff.isFullFrame());
+        assertEquals(0, diff.getDirtyTileCount());
+        assertEquals(Collections.<TileRect>emptyList(), diff.getDirtyRects());
+    }
+
+    @Test
+    public void singlePixelOnSamplingGrid() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        // 分块(2,1)内的采样点
+        setPixel(18, 10, -1);
+        FrameDiff diff = detect(detector);
+        assertEquals(1, diff.getDirtyTileCount());
+        assertEquals(Collections.singletonList(new TileRect(16, 8, 24, 16)), diff.getDirtyRects());
+        // 恢复后再次变化
+        setPixel(18, 10, 18 * 31 + 10 * 1009);
+        assertEquals(1, detect(detector).getDirtyTileCount());
+    }
+
+    @Test
+    public void singlePixelBetweenSamples() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        // 采样间隔为2时只检测偶数坐标，奇数坐标的变化检测不到
+        setPixel(19, 10, -1);
+        setPixel(18, 11, -1);
+        assertFalse(detect(detector).isChanged());
+
+        // 采样间隔为1时每个像素都参与计算
+        FrameDiffDetector fullDetector = new FrameDiffDetector(TILE_SIZE, 1);
+        detect(fullDetector);
+        setPixel(19, 11, -1);
+        assertEquals(Collections.singletonList(new TileRect(16, 8, 24, 16)), detect(fullDetector).getDirtyRects());
+    }
+
+    @Test
+    public void mergesAdjacentTilesInRow() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        // 第0行：分块0、1相邻，分块3单独；第2行：最右一个分块
+        setPixel(0, 0, -1);
+        setPixel(8, 2, -1);
+        setPixel(24, 4, -1);
+        setPixel(38, 18, -1);
+        FrameDiff diff = detect(detector);
+        assertEquals(4, diff.getDirtyTileCount());
+        assertEquals(Arrays.asList(new TileRect(0, 0, 16, 8), new TileRect(24, 0, 32, 8), new TileRect(32, 16, 40, 20)),
+                diff.getDirtyRects());
+    }
+
+    @Test
+    public void maskedPixelsHashAsZero() {
+        TileRect[] masks = {new TileRect(2, 2, 12, 6), new TileRect(20, 0, 30, 20)};
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detector.detect(createFrame(masks));
+        // 遮挡区域内的变化不视为变化
+        setPixel(4, 4, -1);
+        setPixel(24, 16, -1);
+        assertFalse(detector.detect(createFrame(masks)).isChanged());
+
+        // 遮挡区域内写入0与遮挡后的内容相同
+        FrameDiffDetector maskedDetector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        maskedDetector.detect(createFrame(masks));
+        for (int y = 2; y < 6; y++) {
+            for (int x = 2; x < 12; x++) {
+                setPixel(x, y, 0);
+            }
+        }
+        for (int y = 0; y < HEIGHT; y++) {
+            for (int x = 20; x < 30; x++) {
+                setPixel(x, y, 0);
+            }
+        }
+        assertFalse(maskedDetector.detect(createFrame(null)).isChanged());
+
+        // 遮挡区域外的变化仍然检测到
+        setPixel(12, 4, -1);
+        assertEquals(Collections.singletonList(new TileRect(8, 0, 16, 8)), detector.detect(createFrame(masks)).getDirtyRects());
+    }
+
+    @Test
+    public void sizeChangeResetsState() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        ByteBuffer rotated = createPixels(HEIGHT, WIDTH, HEIGHT * PIXEL_STRIDE);
+        FrameDiff diff = detector.detect(rotated, HEIGHT, WIDTH, PIXEL_STRIDE, HEIGHT * PIXEL_STRIDE);
+        assertTrue(diff.isFullFrame());
+        assertEquals(3 * 5, diff.getDirtyTileCount());
+        assertFalse(detector.detect(rotated, HEIGHT, WIDTH, PIXEL_STRIDE, HEIGHT * PIXEL_STRIDE).isChanged());
+
+        // 回到原尺寸，没有可比较的前一帧
+        assertTrue(detect(detector).isFullFrame());
+
+        detector.reset();
+        assertTrue(detect(detector).isFullFrame());
+        assertFalse(detect(detector).isChanged());
+    }
+
+    @Test
+    public void mergeDiffOfDroppedFrame() {
+        FrameDiffDetector detector = new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE);
+        detect(detector);
+        setPixel(0, 0, -1);
+        FrameDiff older = detect(detector);
+        setPixel(8, 0, -1);
+        setPixel(30, 10, -1);
+        FrameDiff newer = detect(detector);
+
+        FrameDiff merged = FrameDiffDetector.merge(older, newer, WIDTH, HEIGHT);
+        assertFalse(merged.isFullFrame());
+        assertEquals(3, merged.getDirtyTileCount());
+        assertEquals(Arrays.asList(new TileRect(0, 0, 16, 8), new TileRect(24, 8, 32, 16)), merged.getDirtyRects());
+
+        // 较早的帧为整帧时合并结果也是整帧
+        FrameDiff full = FrameDiffDetector.merge(detect(new FrameDiffDetector(TILE_SIZE, SAMPLE_STRIDE)), newer, WIDTH, HEIGHT);
+        assertTrue(full.isFullFrame());
+        assertEquals(full.getTileCount(), full.getDirtyTileCount());
+    }
+
+}
@@ -0,0 +1,71 @@
+package com.mask.mediaprojection.utils;
+
+import org.junit.Test;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * FrameQueue 丢弃最旧的帧及计数
+ * Created by agent on 2026/10/18
+ */
+public class FrameQueueTest {
+
+    @Test
+    public void pollsInOrder() {
+        FrameQueue<Integer> queue = new FrameQueue<>(3);
+        assertNull(queue.offer(1));
+        assertNull(queue.offer(2));
+        assertEquals(2, queue.size());
+        assertEquals(Integer.valueOf(1), queue.poll());
+        assertEquals(Integer.valueOf(2), queue.poll());
+        assertNull(queue.poll());
+        assertEquals(2, queue.getOfferedCount());
+        assertEquals(0, queue.getDroppedCount());
+    }
+
+    @Test
+    public void dropsOldestWhenFull() {
+        FrameQueue<Integer> queue = new FrameQueue<>(2);
+        assertNull(queue.offer(1));
+        assertNull(queue.offer(2));
+        // 已满：丢弃最旧的帧并返回给调用方
+        assertEquals(Integer.valueOf(1), queue.offer(3));
+        assertEquals(Integer.valueOf(2), queue.offer(4));
+        assertEquals(2, queue.size());
+        assertEquals(4, queue.getOfferedCount());
+        assertEquals(2, queue.getDroppedCount());
+
+        // 出队后有空位，不再丢弃
+        assertEquals(Integer.valueOf(3), queue.poll());
+        assertNull(queue.offer(5));
+        assertEquals(Arrays.asList(4, 5), queue.clear());
+        assertEquals(5, queue.getOfferedCount());
+        assertEquals(2, queue.getDroppedCount());
+    }
+
+    @Test
+    public void clearDoesNotCountAsDropped() {
+        FrameQueue<Integer> queue = new FrameQueue<>(1);
+        assertEquals(Collections.<Integer>emptyList(), queue.clear());
+        queue.offer(1);
+        assertEquals(Collections.singletonList(1), queue.clear());
+        assertEquals(0, queue.size());
+        assertEquals(0, queue.getDroppedCount());
+        assertEquals(1, queue.getOfferedCount());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void rejectsZeroCapacity() {
+        new FrameQueue<Integer>(0);
+    }
+
+    @Test(expected = NullPointerException.class)
+    public void rejectsNullFrame() {
+        new FrameQueue<Integer>(1).offer(null);
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.mask.mediaprojection.utils;
+
+import com.mask.mediaprojection.entity.TileRect;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+/**
+ * MaskUtils 遮挡区域坐标换算
+ * Created by agent on 2026/10/18
+ */
+public class MaskUtilsTest {
+
+    private static final int SCREEN_WIDTH = 1080;
+    private static final int SCREEN_HEIGHT = 1920;
+
+    @Test
+    public void sameSizeKeepsCoordinates() {
+        TileRect rect = new TileRect(10, 20, 300, 400);
+        assertEquals(rect, MaskUtils.mapToOutput(rect, SCREEN_WIDTH, SCREEN_HEIGHT, SCREEN_WIDTH, SCREEN_HEIGHT));
+    }
+
+    @Test
+    public void scaledOutwards() {
+        // 缩小一半：左上向下取整、右下向上取整，遮挡区域不会变小
+        TileRect mask = MaskUtils.mapToOutput(new TileRect(1, 3, 5, 7), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960);
+        assertEquals(new TileRect(0, 1, 3, 4), mask);
+
+        // 宽高比例不同(如按固定尺寸录制)
+        mask = MaskUtils.mapToOutput(new TileRect(540, 960, 1080, 1920), SCREEN_WIDTH, SCREEN_HEIGHT, 720, 720);
+        assertEquals(new TileRect(360, 360, 720, 720), mask);
+    }
+
+    @Test
+    public void clampedToOutput() {
+        TileRect mask = MaskUtils.mapToOutput(new TileRect(-10, -10, 20, 20), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960);
+        assertEquals(new TileRect(0, 0, 10, 10), mask);
+        mask = MaskUtils.mapToOutput(new TileRect(1000, 1800, 2000, 3000), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960);
+        assertEquals(new TileRect(500, 900, 540, 960), mask);
+
+        // 在输出范围之外或为空
+        assertNull(MaskUtils.mapToOutput(new TileRect(1080, 0, 1200, 100), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960));
+        assertNull(MaskUtils.mapToOutput(new TileRect(-100, 0, 0, 100), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960));
+        assertNull(MaskUtils.mapToOutput(new TileRect(10, 10, 10, 100), SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960));
+    }
+
+    @Test
+    public void createMasksSortedByLeft() {
+        TileRect[] rects = {new TileRect(600, 0, 700, 100), new TileRect(2000, 0, 2100, 100), new TileRect(100, 200, 300, 400)};
+        TileRect[] masks = MaskUtils.createMasks(rects, SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960);
+        assertArrayEquals(new TileRect[]{new TileRect(50, 100, 150, 200), new TileRect(300, 0, 350, 50)}, masks);
+        assertEquals(0, MaskUtils.createMasks(new TileRect[0], SCREEN_WIDTH, SCREEN_HEIGHT, 540, 960).length);
+    }
+
+    @Test
+    public void glBottomFlipsVertically() {
+        // GL 坐标原点在左下角：顶部的区域在 GL 坐标中靠上
+        assertEquals(80, MaskUtils.toGlBottom(new TileRect(0, 0, 20, 20), 100));
+        assertEquals(70, MaskUtils.toGlBottom(new TileRect(5, 10, 20, 30), 100));
+        assertEquals(0, MaskUtils.toGlBottom(new TileRect(0, 60, 100, 100), 100));
+    }
+
+}
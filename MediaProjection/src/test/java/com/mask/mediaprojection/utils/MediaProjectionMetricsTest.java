@@ -0,0 +1,32 @@
+package com.mask.mediaprojection.utils;
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+/**
+ * MediaProjectionMetrics 合成负载统计
+ * Created by agent on 2026/10/18
+ */
+public class MediaProjectionMetricsTest {
+
+    @Test
+    public void uncountedComposition() {
+        MediaProjectionMetrics metrics = new MediaProjectionMetrics();
+        metrics.recordComposition(3, 10, 20);
+        metrics.recordComposition(0, 10, 20);
+        // 录制引擎不提供帧数
+        metrics.recordComposition(-1, 10, 20);
+
+        MediaProjectionMetrics.Snapshot snapshot = metrics.snapshot();
+        assertEquals(3, snapshot.getCompositedFrames());
+        assertEquals(3 * 10 * 20, snapshot.getCompositedPixels());
+        assertEquals(1, snapshot.getUncountedCompositions());
+        assertTrue(snapshot.toString().contains("uncounted=1"));
+
+        metrics.reset();
+        assertEquals(0, metrics.snapshot().getUncountedCompositions());
+    }
+
+}
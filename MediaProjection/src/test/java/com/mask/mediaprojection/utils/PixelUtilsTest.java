@@ -0,0 +1,134 @@
+package com.mask.mediaprojection.utils;
+
+import org.junit.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+/**
+ * PixelUtils 区域复制
+ * Created by agent on 2026/10/18
+ */
+public class PixelUtilsTest {
+
+    private static final int WIDTH = 8;
+    private static final int HEIGHT = 6;
+    private static final int PIXEL_STRIDE = 4;
+    private static final int ROW_STRIDE = WIDTH * PIXEL_STRIDE + 12;// 有行填充
+    private static final byte PADDING = 0x55;
+
+    /**
+     * 像素值由坐标和通道决定，复制错位时可以发现
+     */
+    static byte pixel(int x, int y, int channel) {
+        return (byte) (x * 31 + y * 7 + channel * 3 + 1);
+    }
+
+    /**
+     * 创建 帧数据(行填充写入 PADDING，最后一行不包含填充，与 Image.Plane 一致)
+     */
+    static ByteBuffer createFrame(int width, int height, int pixelStride, int rowStride) {
+        ByteBuffer buffer = ByteBuffer.allocate(rowStride * (height - 1) + width * pixelStride);
+        for (int y = 0; y < height; y++) {
+            for (int offset = 0; offset < rowStride && y * rowStride + offset < buffer.capacity(); offset++) {
+                int x = offset / pixelStride;
+                byte value = x < width ? pixel(x, y, offset % pixelStride) : PADDING;
+                buffer.put(y * rowStride + offset, value);
+            }
+        }
+        return buffer;
+    }
+
+    private static void assertRegion(ByteBuffer dst, int left, int top, int width, int height) {
+        assertEquals(width * height * PIXEL_STRIDE, dst.position());
+        for (int y = 0; y < height; y++) {
+            for (int x = 0; x < width; x++) {
+                for (int c = 0; c < PIXEL_STRIDE; c++) {
+                    int index = (y * width + x) * PIXEL_STRIDE + c;
+                    assertEquals("pixel " + x + "," + y + " channel " + c, pixel(left + x, top + y, c), dst.get(index));
+                }
+            }
+        }
+    }
+
+    private static ByteBuffer copyRegion(ByteBuffer src, int rowStride, int left, int top, int width, int height) {
+        ByteBuffer dst = ByteBuffer.allocate(width * height * PIXEL_STRIDE);
+        PixelUtils.copyRegion(src, WIDTH, HEIGHT, PIXEL_STRIDE, rowStride, left, top, width, height, dst);
+        return dst;
+    }
+
+    @Test
+    public void copyRegionAtEachEdge() {
+        ByteBuffer src = createFrame(WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE);
+        int[][] regions = {
+                {0, 0, 3, 2},// 左上
+                {WIDTH - 3, 0, 3, 2},// 右上
+                {0, HEIGHT - 2, 3, 2},// 左下
+                {WIDTH - 3, HEIGHT - 2, 3, 2},// 右下(最后一行没有填充)
+                {0, 2, WIDTH, 1},// 整行
+                {WIDTH - 1, 0, 1, HEIGHT},// 最右一列
+                {0, 0, WIDTH, HEIGHT},// 整帧
+        };
+        for (int[] region : regions) {
+            ByteBuffer dst = copyRegion(src, ROW_STRIDE, region[0], region[1], region[2], region[3]);
+            assertRegion(dst, region[0], region[1], region[2], region[3]);
+        }
+        // 不修改 src
+        assertEquals(0, src.position());
+        assertEquals(src.capacity(), src.limit());
+    }
+
+    @Test
+    public void copyRegionWithoutRowPadding() {
+        int rowStride = WIDTH * PIXEL_STRIDE;
+        ByteBuffer src = createFrame(WIDTH, HEIGHT, PIXEL_STRIDE, rowStride);
+        ByteBuffer dst = copyRegion(src, rowStride, 2, 1, 4, 3);
+        assertRegion(dst, 2, 1, 4, 3);
+    }
+
+    @Test
+    public void copyRegionFromSrcPosition() {
+        // src 从 position 开始为帧数据
+        ByteBuffer frame = createFrame(WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE);
+        ByteBuffer src = ByteBuffer.allocate(frame.capacity() + 7);
+        src.position(7);
+        src.put(frame);
+        src.position(7);
+        ByteBuffer dst = copyRegion(src, ROW_STRIDE, 5, 3, 3, 3);
+        assertRegion(dst, 5, 3, 3, 3);
+        assertEquals(7, src.position());
+    }
+
+    @Test
+    public void copyRegionRejectsOutOfBounds() {
+        ByteBuffer src = createFrame(WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE);
+        int[][] regions = {
+                {-1, 0, 2, 2},
+                {0, -1, 2, 2},
+                {0, 0, 0, 2},
+                {0, 0, 2, 0},
+                {WIDTH - 1, 0, 2, 1},// 超出右边
+                {0, HEIGHT - 1, 1, 2},// 超出下边
+                {WIDTH, 0, 1, 1},
+        };
+        for (int[] region : regions) {
+            ByteBuffer dst = ByteBuffer.allocate(WIDTH * HEIGHT * PIXEL_STRIDE);
+            try {
+                PixelUtils.copyRegion(src, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, region[0], region[1], region[2], region[3], dst);
+                fail("region " + region[0] + "," + region[1] + " " + region[2] + "x" + region[3]);
+            } catch (IllegalArgumentException expected) {
+                assertEquals(0, dst.position());
+            }
+        }
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void copyRegionRejectsSmallDst() {
+        ByteBuffer src = createFrame(WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE);
+        ByteBuffer dst = ByteBuffer.allocate(3 * 3 * PIXEL_STRIDE - 1);
+        PixelUtils.copyRegion(src, WIDTH, HEIGHT, PIXEL_STRIDE, ROW_STRIDE, 0, 0, 3, 3, dst);
+    }
+
+}
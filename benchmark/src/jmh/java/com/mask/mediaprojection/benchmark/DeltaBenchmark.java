@@ -0,0 +1,71 @@
+package com.mask.mediaprojection.benchmark;
+
+import com.mask.mediaprojection.entity.ScreenFrame;
+import com.mask.mediaprojection.utils.DeltaFrameDecoder;
+import com.mask.mediaprojection.utils.DeltaFrameEncoder;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 差量帧编码/解码单帧耗时，每帧修改一个 128x128 的区域(如光标、输入框)
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DeltaBenchmark {
+
+    private static final int REGION_SIZE = 128;
+
+    private DeltaFrameEncoder encoder;
+    private DeltaFrameDecoder decoder;
+    private ScreenFrame frame;
+    private ByteBuffer packet;
+    private int counter;
+
+    @Setup
+    public void setup(FrameState state) {
+        encoder = new DeltaFrameEncoder(DeltaFrameEncoder.DEFAULT_TILE_SIZE, 1, Integer.MAX_VALUE);
+        decoder = new DeltaFrameDecoder();
+        frame = new ScreenFrame(state.src, 1, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, 0);
+        packet = state.allocate(encoder.getMaxEncodedBytes(state.width, state.height, FrameState.PIXEL_STRIDE));
+        // 先编码关键帧
+        encoder.encode(frame, packet);
+        packet.flip();
+        decoder.decode(packet);
+    }
+
+    @Benchmark
+    public ScreenFrame encodeDecode(FrameState state) {
+        touchRegion(state);
+        packet.clear();
+        encoder.encode(frame, packet);
+        packet.flip();
+        return decoder.decode(packet);
+    }
+
+    /**
+     * 修改 一个区域的像素，位置每帧变化
+     *
+     * @param state state
+     */
+    private void touchRegion(FrameState state) {
+        counter++;
+        int left = (counter * REGION_SIZE) % (state.width - REGION_SIZE);
+        int top = (counter * REGION_SIZE / 2) % (state.height - REGION_SIZE);
+        for (int y = top; y < top + REGION_SIZE; y++) {
+            int offset = y * state.rowStride + left * FrameState.PIXEL_STRIDE;
+            state.src.putInt(offset, state.src.getInt(offset) + counter);
+        }
+    }
+
+}
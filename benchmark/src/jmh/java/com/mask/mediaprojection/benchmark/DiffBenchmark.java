@@ -0,0 +1,45 @@
+package com.mask.mediaprojection.benchmark;
+
+import com.mask.mediaprojection.entity.FrameDiff;
+import com.mask.mediaprojection.utils.FrameDiffDetector;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 帧差异检测(分块哈希)单帧耗时，帧内容不变，即监控场景下最常见的情况
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class DiffBenchmark {
+
+    @Param({"64"})
+    public int tileSize;
+
+    @Param({"1", "4"})
+    public int sampleStride;
+
+    private FrameDiffDetector detector;
+
+    @Setup
+    public void setup(FrameState state) {
+        detector = new FrameDiffDetector(tileSize, sampleStride);
+        detector.detect(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride);
+    }
+
+    @Benchmark
+    public FrameDiff detect(FrameState state) {
+        return detector.detect(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride);
+    }
+
+}
@@ -0,0 +1,62 @@
+package com.mask.mediaprojection.benchmark;
+
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.Random;
+
+/**
+ * 合成的屏幕帧(RGBA_8888，带行填充，与 ImageReader 输出的布局一致)
+ * Created by agent on 2026/10/18
+ */
+@State(Scope.Thread)
+public class FrameState {
+
+    public static final int PIXEL_STRIDE = 4;
+    public static final int ROW_PADDING = 64;// 行填充字节数
+
+    @Param({"1280x720", "1920x1080", "2560x1440", "1440x3200"})
+    public String resolution;
+
+    @Param({"heap", "direct"})
+    public String bufferType;
+
+    public int width;
+    public int height;
+    public int rowStride;
+
+    public ByteBuffer src;// RGBA_8888 源帧
+    public ByteBuffer src565;// RGB_565 源帧(紧凑)
+    public ByteBuffer dst;// 输出，足够容纳整帧 RGBA_8888
+
+    @Setup
+    public void setup() {
+        String[] size = resolution.split("x");
+        width = Integer.parseInt(size[0]);
+        height = Integer.parseInt(size[1]);
+        rowStride = width * PIXEL_STRIDE + ROW_PADDING;
+
+        Random random = new Random(width);
+        src = allocate(rowStride * height);
+        fill(src, random);
+        src565 = allocate(width * height * 2).order(ByteOrder.nativeOrder());
+        fill(src565, random);
+        dst = allocate(width * height * PIXEL_STRIDE);
+    }
+
+    public ByteBuffer allocate(int capacity) {
+        return "direct".equals(bufferType) ? ByteBuffer.allocateDirect(capacity) : ByteBuffer.allocate(capacity);
+    }
+
+    private static void fill(ByteBuffer buffer, Random random) {
+        byte[] bytes = new byte[buffer.capacity()];
+        random.nextBytes(bytes);
+        buffer.put(bytes);
+        buffer.clear();
+    }
+
+}
@@ -0,0 +1,53 @@
+package com.mask.mediaprojection.benchmark;
+
+import com.mask.mediaprojection.utils.PixelUtils;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 截图热路径：去除行填充、裁剪、格式转换(单帧耗时)
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class PixelBenchmark {
+
+    @Benchmark
+    public ByteBuffer compact(FrameState state) {
+        state.dst.clear();
+        PixelUtils.compact(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, state.dst);
+        return state.dst;
+    }
+
+    @Benchmark
+    public ByteBuffer cropCenter(FrameState state) {
+        // 中心 1/2 * 1/2 区域
+        int regionWidth = state.width / 2;
+        int regionHeight = state.height / 2;
+        state.dst.clear();
+        PixelUtils.copyRegion(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride,
+                regionWidth / 2, regionHeight / 2, regionWidth, regionHeight, state.dst);
+        return state.dst;
+    }
+
+    @Benchmark
+    public ByteBuffer convertRgbaToRgb565(FrameState state) {
+        state.dst.clear();
+        PixelUtils.convertRgbaToRgb565(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, state.dst);
+        return state.dst;
+    }
+
+    @Benchmark
+    public ByteBuffer convertRgb565ToRgba(FrameState state) {
+        state.dst.clear();
+        PixelUtils.convertRgb565ToRgba(state.src565, state.width, state.height, 2, state.width * 2, state.dst);
+        return state.dst;
+    }
+
+}
@@ -0,0 +1,66 @@
+package com.mask.mediaprojection.benchmark;
+
+import com.mask.mediaprojection.utils.TiledPixelProcessor;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 分块并行像素处理：不同线程数下的单帧耗时(parallelism=1 即单线程基准，对比可得加速比)
+ * Created by agent on 2026/10/18
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@State(Scope.Thread)
+public class TiledBenchmark {
+
+    @Param({"1", "2", "4", "8"})
+    public int parallelism;
+
+    private ForkJoinPool pool;
+    private TiledPixelProcessor processor;
+
+    @Setup
+    public void setup() {
+        pool = new ForkJoinPool(parallelism);
+        processor = new TiledPixelProcessor(pool, 32);
+    }
+
+    @TearDown
+    public void tearDown() {
+        pool.shutdown();
+    }
+
+    @Benchmark
+    public ByteBuffer convertRgbaToGray(FrameState state) {
+        state.dst.clear();
+        processor.convertRgbaToGray(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, state.dst);
+        return state.dst;
+    }
+
+    @Benchmark
+    public ByteBuffer convertRgbaToRgb565(FrameState state) {
+        state.dst.clear();
+        processor.convertRgbaToRgb565(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, state.dst);
+        return state.dst;
+    }
+
+    @Benchmark
+    public ByteBuffer downscale2x(FrameState state) {
+        state.dst.clear();
+        processor.downscale(state.src, state.width, state.height, FrameState.PIXEL_STRIDE, state.rowStride, 2, state.dst);
+        return state.dst;
+    }
+
+}